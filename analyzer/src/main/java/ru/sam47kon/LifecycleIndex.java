@@ -0,0 +1,318 @@
+package ru.sam47kon;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.stream.Stream;
+
+/// Обратный индекс .lc: позиции call-ref (номер файла, порядковый номер call-ref) по id и по параметрам внутри call-ref
+final class LifecycleIndex {
+	private static final int VERSION = 2;
+	private static final String INDEX_FILE = ".lc.index";
+	private static final String EXTENSION = ".lc";
+	private static final String CALL_REF = "call-ref";
+	private static final String PARAMETER = "parameter";
+	// Индекс читается из папки конфигурации, поэтому десериализуются только свои классы и классы JDK
+	private static final ObjectInputFilter CLASS_FILTER = ObjectInputFilter.Config.createFilter("ru.sam47kon.*;java.base/*;!*");
+	// XMLInputFactory дорог в создании и не обязан быть потокобезопасным: у каждого потока свой
+	private static final ThreadLocal<XMLInputFactory> XML_INPUT_FACTORY = ThreadLocal.withInitial(LifecycleIndex::newFactory);
+
+	private final Path root;
+	// Файлы по номерам позиций, null — номер удаленного файла
+	private final List<FileEntry> files;
+	// Строки call-ref файлов по их порядковым номерам, в порядке files
+	private final List<int[]> lines;
+	// Позиции по терминам: номер файла в старших 32 битах, порядковый номер call-ref в младших.
+	// Несколько call-ref в одной строке — разные позиции, поэтому параметры одного не приписываются другому
+	private final Map<String, long[]> postings;
+
+	private LifecycleIndex(@NotNull Path root, @NotNull List<FileEntry> files, @NotNull List<int[]> lines, @NotNull Map<String, long[]> postings) {
+		this.root = root;
+		this.files = files;
+		this.lines = lines;
+		this.postings = postings;
+	}
+
+	/// Индекс папки root: сохраненный, дополненный изменившимися файлами, или построенный заново
+	static @NotNull LifecycleIndex open(@NotNull Path root) throws IOException {
+		LifecycleIndex index = load(root);
+		long start = System.currentTimeMillis();
+		int updated = index.update();
+		if (updated > 0) {
+			index.save();
+		}
+		// В stdout только строки файл:строка результатов, сводка по индексу — в stderr, как и ошибки
+		System.err.println("Индекс " + root.resolve(INDEX_FILE) + ": файлов " + index.fileCount() + ", перечитано " + updated
+				+ " за " + (System.currentTimeMillis() - start) + " ms");
+		return index;
+	}
+
+	/// Позиции call-ref с заданным id
+	long @NotNull [] callRefs(@NotNull String id) {
+		return postings(CALL_REF + ":" + id);
+	}
+
+	/// Позиции call-ref, внутри которых есть параметр name со значением value
+	long @NotNull [] parameters(@NotNull String name, @NotNull String value) {
+		return postings(PARAMETER + ":" + name + "=" + value);
+	}
+
+	/// Позиции, которые есть в обоих списках
+	static long @NotNull [] intersect(long @NotNull [] left, long @NotNull [] right) {
+		long[] result = new long[Math.min(left.length, right.length)];
+		int size = 0;
+		for (int i = 0, j = 0; i < left.length && j < right.length; ) {
+			if (left[i] < right[j]) {
+				i++;
+			} else if (left[i] > right[j]) {
+				j++;
+			} else {
+				result[size++] = left[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, size);
+	}
+
+	/// Позиции left, которых нет в right
+	static long @NotNull [] subtract(long @NotNull [] left, long @NotNull [] right) {
+		long[] result = new long[left.length];
+		int size = 0;
+		int j = 0;
+		for (long location : left) {
+			while (j < right.length && right[j] < location) {
+				j++;
+			}
+			if (j == right.length || right[j] != location) {
+				result[size++] = location;
+			}
+		}
+		return Arrays.copyOf(result, size);
+	}
+
+	/// Файлы позиций без повторов, в порядке номеров
+	@NotNull List<Path> files(long @NotNull [] locations) {
+		return Arrays.stream(locations).mapToInt(location -> (int) (location >>> 32)).distinct().mapToObj(this::file).toList();
+	}
+
+	/// Все файлы индекса
+	@NotNull List<Path> files() {
+		return files.stream().filter(Objects::nonNull).map(file -> root.resolve(file.path)).toList();
+	}
+
+	@NotNull List<MethodFinder.Result> results(long @NotNull [] locations) {
+		List<MethodFinder.Result> results = new ArrayList<>(locations.length);
+		for (long location : locations) {
+			int id = (int) (location >>> 32);
+			results.add(new MethodFinder.Result(file(id).toAbsolutePath().toString(), lines.get(id)[(int) location]));
+		}
+		return results;
+	}
+
+	/// Потоковое чтение XML фабрикой текущего потока
+	static @NotNull XMLStreamReader newReader(@NotNull InputStream in) throws XMLStreamException {
+		return XML_INPUT_FACTORY.get().createXMLStreamReader(in);
+	}
+
+	private @NotNull Path file(int id) {
+		return root.resolve(files.get(id).path);
+	}
+
+	private long @NotNull [] postings(@NotNull String term) {
+		return postings.getOrDefault(term, new long[0]);
+	}
+
+	private int fileCount() {
+		return (int) files.stream().filter(Objects::nonNull).count();
+	}
+
+	/// Перечитывает новые и измененные файлы и отбрасывает удаленные, возвращает количество перечитанных файлов
+	private int update() throws IOException {
+		Map<String, Integer> ids = new HashMap<>();
+		for (int id = 0; id < files.size(); id++) {
+			if (files.get(id) != null) {
+				ids.put(files.get(id).path, id);
+			}
+		}
+		List<Path> paths;
+		try (Stream<Path> walk = Files.walk(root)) {
+			paths = walk.filter(path -> path.toString().endsWith(EXTENSION)).toList();
+		}
+		Set<Integer> stale = new HashSet<>();
+		Map<Path, FileEntry> changed = new LinkedHashMap<>();
+		// Измененный файл сохраняет свой номер
+		Map<Path, Integer> reused = new HashMap<>();
+		for (Path path : paths) {
+			BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+			if (!attributes.isRegularFile()) {
+				continue;
+			}
+			FileEntry entry = new FileEntry(root.relativize(path).toString(), attributes.lastModifiedTime().toMillis(), attributes.size());
+			Integer id = ids.remove(entry.path);
+			if (id == null || !entry.equals(files.get(id))) {
+				changed.put(path, entry);
+				if (id != null) {
+					stale.add(id);
+					reused.put(path, id);
+				}
+			}
+		}
+		// Оставшиеся в ids файлы удалены
+		stale.addAll(ids.values());
+		for (int id : ids.values()) {
+			files.set(id, null);
+			lines.set(id, null);
+		}
+		if (changed.isEmpty() && stale.isEmpty()) {
+			return 0;
+		}
+		if (!stale.isEmpty()) {
+			postings.replaceAll((term, locations) -> Arrays.stream(locations).filter(location -> !stale.contains((int) (location >>> 32))).toArray());
+			postings.values().removeIf(locations -> locations.length == 0);
+		}
+
+		// Разбор параллельно, запись в индекс — в порядке обхода, номера файлов не зависят от потоков
+		List<Path> changedPaths = new ArrayList<>(changed.keySet());
+		List<Scan> scanned = changedPaths.parallelStream().map(LifecycleIndex::scan).toList();
+		Map<String, List<Long>> added = new HashMap<>();
+		for (int i = 0; i < changedPaths.size(); i++) {
+			Path path = changedPaths.get(i);
+			Scan scan = scanned.get(i);
+			Integer id = reused.get(path);
+			if (scan == null) {
+				// Не разобран: без записи в индексе файл будет прочитан при следующем запуске
+				if (id != null) {
+					files.set(id, null);
+					lines.set(id, null);
+				}
+				continue;
+			}
+			if (id == null) {
+				id = files.size();
+				files.add(null);
+				lines.add(null);
+			}
+			files.set(id, changed.get(path));
+			lines.set(id, scan.lines);
+			int fileId = id;
+			for (Term term : scan.terms) {
+				added.computeIfAbsent(term.term, k -> new ArrayList<>()).add((long) fileId << 32 | term.callRef);
+			}
+		}
+		added.forEach((term, locations) -> postings.merge(term, locations.stream().mapToLong(Long::longValue).sorted().distinct().toArray(),
+				LifecycleIndex::union));
+		return changed.size();
+	}
+
+	/// call-ref и параметры внутри них; параметр относится к ближайшему объемлющему call-ref. null — файл не разобран
+	private static @Nullable Scan scan(@NotNull Path file) {
+		List<Term> terms = new ArrayList<>();
+		List<Integer> lines = new ArrayList<>();
+		Deque<Integer> calls = new ArrayDeque<>();
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+			XMLStreamReader xmlReader = newReader(in);
+			try {
+				while (xmlReader.hasNext()) {
+					int event = xmlReader.next();
+					if (event == XMLStreamConstants.START_ELEMENT) {
+						if (CALL_REF.equals(xmlReader.getLocalName())) {
+							int callRef = lines.size();
+							lines.add(xmlReader.getLocation().getLineNumber());
+							calls.push(callRef);
+							String id = MethodFinder.getAttributeValue(xmlReader, "id");
+							if (id != null) {
+								terms.add(new Term(CALL_REF + ":" + id, callRef));
+							}
+						} else if (PARAMETER.equals(xmlReader.getLocalName()) && !calls.isEmpty()) {
+							String name = MethodFinder.getAttributeValue(xmlReader, "name");
+							String value = MethodFinder.getAttributeValue(xmlReader, "value");
+							if (name != null && value != null) {
+								terms.add(new Term(PARAMETER + ":" + name + "=" + value, calls.peek()));
+							}
+						}
+					} else if (event == XMLStreamConstants.END_ELEMENT && CALL_REF.equals(xmlReader.getLocalName())) {
+						calls.pop();
+					}
+				}
+			} finally {
+				xmlReader.close();
+			}
+			return new Scan(terms, lines.stream().mapToInt(Integer::intValue).toArray());
+		} catch (IOException | XMLStreamException e) {
+			System.err.println("Ошибка обработки файла " + file.toAbsolutePath() + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/// Объединение отсортированных списков без повторов
+	static long @NotNull [] union(long @NotNull [] left, long @NotNull [] right) {
+		long[] all = Arrays.copyOf(left, left.length + right.length);
+		System.arraycopy(right, 0, all, left.length, right.length);
+		return Arrays.stream(all).sorted().distinct().toArray();
+	}
+
+	private static @NotNull XMLInputFactory newFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		// Конфигурации не ссылаются на внешние сущности, их загрузка только замедляет разбор
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		return factory;
+	}
+
+	private static @NotNull LifecycleIndex load(@NotNull Path root) {
+		Path indexFile = root.resolve(INDEX_FILE);
+		try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+			in.setObjectInputFilter(CLASS_FILTER);
+			if (in.readInt() == VERSION) {
+				@SuppressWarnings("unchecked")
+				List<FileEntry> files = (List<FileEntry>) in.readObject();
+				@SuppressWarnings("unchecked")
+				List<int[]> lines = (List<int[]>) in.readObject();
+				@SuppressWarnings("unchecked")
+				Map<String, long[]> postings = (Map<String, long[]>) in.readObject();
+				return new LifecycleIndex(root, files, lines, postings);
+			}
+		} catch (NoSuchFileException e) {
+			// первый запуск
+		} catch (Exception e) {
+			System.err.println("Индекс " + indexFile + " не прочитан, строится заново: " + e.getMessage());
+		}
+		return new LifecycleIndex(root, new ArrayList<>(), new ArrayList<>(), new HashMap<>());
+	}
+
+	private void save() {
+		Path indexFile = root.resolve(INDEX_FILE);
+		Path tmp = indexFile.resolveSibling(INDEX_FILE + ".tmp");
+		try {
+			try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				out.writeInt(VERSION);
+				out.writeObject(files);
+				out.writeObject(lines);
+				out.writeObject(postings);
+			}
+			Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.err.println("Индекс " + indexFile + " не записан: " + e.getMessage());
+		}
+	}
+
+	private record FileEntry(String path, long lastModified, long size) implements Serializable {
+	}
+
+	/// Термин в call-ref с порядковым номером callRef
+	private record Term(String term, int callRef) {
+	}
+
+	/// Термины файла и строки его call-ref по порядковым номерам
+	private record Scan(List<Term> terms, int[] lines) {
+	}
+}
@@ -0,0 +1,269 @@
+package ru.sam47kon;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.xml.stream.XMLStreamReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/// Запрос вида элемент[атрибут=значение,...] [having условие], например call-ref[id=X] having parameter[name=A,value=true] and not parameter[name=B,value=true]
+final class LifecycleQuery {
+	private static final String CALL_REF = "call-ref";
+	private static final String PARAMETER = "parameter";
+
+	final String text;
+	final Pattern element;
+	// Элементы условия по номерам, на которые ссылается условие
+	final List<Pattern> patterns = new ArrayList<>();
+	// null — без условия
+	private final @Nullable Condition condition;
+
+	private LifecycleQuery(@NotNull String text) {
+		this.text = text;
+		Parser parser = new Parser(text);
+		this.element = parser.pattern();
+		this.condition = parser.accept("having") ? parser.or(patterns) : null;
+		parser.end();
+	}
+
+	static @NotNull LifecycleQuery parse(@NotNull String text) {
+		return new LifecycleQuery(text.trim());
+	}
+
+	/// Выполнено ли условие по найденным элементам условия found (по номерам patterns)
+	boolean matches(boolean @NotNull [] found) {
+		return condition == null || condition.test(found);
+	}
+
+	/// Позиции найденных элементов по индексу или null, если запрос не выражается через термины индекса
+	long @Nullable [] evaluate(@NotNull LifecycleIndex index) {
+		String id = callRefId();
+		if (id == null || !patterns.stream().allMatch(LifecycleQuery::isIndexedParameter)) {
+			return null;
+		}
+		long[] callRefs = index.callRefs(id);
+		return condition == null ? callRefs : condition.positions(callRefs, index, patterns);
+	}
+
+	/// Позиции, в файлах которых может быть найденный элемент, или null — искать во всех файлах
+	long @Nullable [] candidates(@NotNull LifecycleIndex index) {
+		String id = element.name.equals(CALL_REF) ? element.attributes.get("id") : null;
+		return id != null ? index.callRefs(id) : null;
+	}
+
+	@Override
+	public String toString() {
+		return text;
+	}
+
+	private @Nullable String callRefId() {
+		return element.name.equals(CALL_REF) && element.attributes.size() == 1 ? element.attributes.get("id") : null;
+	}
+
+	private static boolean isIndexedParameter(@NotNull Pattern pattern) {
+		return pattern.name.equals(PARAMETER) && pattern.attributes.size() == 2
+				&& pattern.attributes.containsKey("name") && pattern.attributes.containsKey("value");
+	}
+
+	/// Элемент с заданным локальным именем и значениями атрибутов
+	record Pattern(String name, Map<String, String> attributes) {
+		boolean matches(@NotNull XMLStreamReader reader) {
+			if (!name.equals(reader.getLocalName())) {
+				return false;
+			}
+			for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+				if (!attribute.getValue().equals(MethodFinder.getAttributeValue(reader, attribute.getKey()))) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private sealed interface Condition {
+		boolean test(boolean @NotNull [] found);
+
+		/// Позиции из all, для которых условие выполнено
+		long @NotNull [] positions(long @NotNull [] all, @NotNull LifecycleIndex index, @NotNull List<Pattern> patterns);
+	}
+
+	private record Has(int pattern) implements Condition {
+		@Override
+		public boolean test(boolean @NotNull [] found) {
+			return found[pattern];
+		}
+
+		@Override
+		public long @NotNull [] positions(long @NotNull [] all, @NotNull LifecycleIndex index, @NotNull List<Pattern> patterns) {
+			Map<String, String> attributes = patterns.get(pattern).attributes;
+			return LifecycleIndex.intersect(all, index.parameters(attributes.get("name"), attributes.get("value")));
+		}
+	}
+
+	private record Not(Condition condition) implements Condition {
+		@Override
+		public boolean test(boolean @NotNull [] found) {
+			return !condition.test(found);
+		}
+
+		@Override
+		public long @NotNull [] positions(long @NotNull [] all, @NotNull LifecycleIndex index, @NotNull List<Pattern> patterns) {
+			return LifecycleIndex.subtract(all, condition.positions(all, index, patterns));
+		}
+	}
+
+	private record And(Condition left, Condition right) implements Condition {
+		@Override
+		public boolean test(boolean @NotNull [] found) {
+			return left.test(found) && right.test(found);
+		}
+
+		@Override
+		public long @NotNull [] positions(long @NotNull [] all, @NotNull LifecycleIndex index, @NotNull List<Pattern> patterns) {
+			return right.positions(left.positions(all, index, patterns), index, patterns);
+		}
+	}
+
+	private record Or(Condition left, Condition right) implements Condition {
+		@Override
+		public boolean test(boolean @NotNull [] found) {
+			return left.test(found) || right.test(found);
+		}
+
+		@Override
+		public long @NotNull [] positions(long @NotNull [] all, @NotNull LifecycleIndex index, @NotNull List<Pattern> patterns) {
+			return LifecycleIndex.union(left.positions(all, index, patterns), right.positions(all, index, patterns));
+		}
+	}
+
+	/// Разбор рекурсивным спуском: or := and ("or" and)*, and := unary ("and" unary)*, unary := "not" unary | "(" or ")" | pattern
+	private static final class Parser {
+		private static final String SYMBOLS = "[]=,()";
+
+		private final String text;
+		private int position;
+
+		Parser(@NotNull String text) {
+			this.text = text;
+		}
+
+		@NotNull Condition or(@NotNull List<Pattern> patterns) {
+			Condition condition = and(patterns);
+			while (accept("or")) {
+				condition = new Or(condition, and(patterns));
+			}
+			return condition;
+		}
+
+		@NotNull Pattern pattern() {
+			String name = word();
+			Map<String, String> attributes = new LinkedHashMap<>();
+			if (acceptSymbol('[')) {
+				do {
+					String attribute = word();
+					expect('=');
+					attributes.put(attribute, word());
+				} while (acceptSymbol(','));
+				expect(']');
+			}
+			return new Pattern(name, attributes);
+		}
+
+		boolean accept(@NotNull String keyword) {
+			skipSpaces();
+			int end = position + keyword.length();
+			if (text.regionMatches(true, position, keyword, 0, keyword.length()) && (end == text.length() || isBoundary(text.charAt(end)))) {
+				position = end;
+				return true;
+			}
+			return false;
+		}
+
+		void end() {
+			skipSpaces();
+			if (position < text.length()) {
+				throw error("конец запроса");
+			}
+		}
+
+		private @NotNull Condition and(@NotNull List<Pattern> patterns) {
+			Condition condition = unary(patterns);
+			while (accept("and")) {
+				condition = new And(condition, unary(patterns));
+			}
+			return condition;
+		}
+
+		private @NotNull Condition unary(@NotNull List<Pattern> patterns) {
+			if (accept("not")) {
+				return new Not(unary(patterns));
+			}
+			if (acceptSymbol('(')) {
+				Condition condition = or(patterns);
+				expect(')');
+				return condition;
+			}
+			Pattern pattern = pattern();
+			int index = patterns.indexOf(pattern);
+			if (index < 0) {
+				index = patterns.size();
+				patterns.add(pattern);
+			}
+			return new Has(index);
+		}
+
+		/// Имя или значение: слово до пробела или служебного символа либо строка в кавычках
+		private @NotNull String word() {
+			skipSpaces();
+			if (position < text.length() && text.charAt(position) == '"') {
+				int end = text.indexOf('"', position + 1);
+				if (end < 0) {
+					throw error("закрывающая кавычка");
+				}
+				String value = text.substring(position + 1, end);
+				position = end + 1;
+				return value;
+			}
+			int start = position;
+			while (position < text.length() && !isBoundary(text.charAt(position))) {
+				position++;
+			}
+			if (start == position) {
+				throw error("имя или значение");
+			}
+			return text.substring(start, position);
+		}
+
+		private boolean acceptSymbol(char symbol) {
+			skipSpaces();
+			if (position < text.length() && text.charAt(position) == symbol) {
+				position++;
+				return true;
+			}
+			return false;
+		}
+
+		private void expect(char symbol) {
+			if (!acceptSymbol(symbol)) {
+				throw error("'" + symbol + "'");
+			}
+		}
+
+		private void skipSpaces() {
+			while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+				position++;
+			}
+		}
+
+		private static boolean isBoundary(char c) {
+			return Character.isWhitespace(c) || SYMBOLS.indexOf(c) >= 0 || c == '"';
+		}
+
+		private @NotNull IllegalArgumentException error(@NotNull String expected) {
+			return new IllegalArgumentException("Ошибка в запросе [" + text + "]: в позиции " + position + " ожидается " + expected);
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package ru.sam47kon;
+
+import lombok.Value;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+public class MethodFinder {
+	private static final String XML_PATH = "D:\\doc\\projects\\gitlab\\05\\ufos-func-05\\Func\\config\\lifecycles";
+
+	// Вызовы updateFundsInFundsJournalLCAllnew (или findFundsInFundsJournalCall) по текущему документу, но не по исходному
+	private static final String DEFAULT_QUERY = "call-ref[id=updateFundsInFundsJournalLCAllnew]"
+			+ " having parameter[name=findByCurrentDocGuid,value=true] and not parameter[name=findBySourceDocGuid,value=true]";
+
+	/// [путь к конфигурации жизненных циклов] [--query запрос]... [--queries файл с запросами по одному в строке]
+	public static void main(String[] args) throws Exception {
+		Path root = Paths.get(XML_PATH);
+		List<LifecycleQuery> queries = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "--query" -> queries.add(LifecycleQuery.parse(value(args, ++i)));
+				case "--queries" -> Files.readAllLines(Paths.get(value(args, ++i))).stream()
+						.map(String::trim)
+						.filter(line -> !line.isEmpty() && !line.startsWith("#"))
+						.forEach(line -> queries.add(LifecycleQuery.parse(line)));
+				default -> root = Paths.get(args[i]);
+			}
+		}
+		if (queries.isEmpty()) {
+			queries.add(LifecycleQuery.parse(DEFAULT_QUERY));
+		}
+		Map<LifecycleQuery, List<Result>> results = search(root, queries);
+		results.forEach((query, found) -> {
+			if (results.size() > 1) {
+				System.out.println(query + ": " + found.size());
+			}
+			found.forEach(r -> System.out.println(r.file + ":" + r.lineNumber));
+		});
+	}
+
+	/// Результаты запросов в их порядке: по индексу {@link LifecycleIndex}, если запрос выражается через его термины, иначе проходом {@link QueryMatcher}
+	static @NotNull Map<LifecycleQuery, List<Result>> search(@NotNull Path root, @NotNull List<LifecycleQuery> queries) throws IOException {
+		LifecycleIndex index = LifecycleIndex.open(root);
+		Map<LifecycleQuery, List<Result>> results = new LinkedHashMap<>();
+		List<LifecycleQuery> streamed = new ArrayList<>();
+		Set<Path> files = new HashSet<>();
+		for (LifecycleQuery query : queries) {
+			long[] positions = query.evaluate(index);
+			if (positions != null) {
+				results.put(query, index.results(positions));
+				continue;
+			}
+			results.put(query, new ArrayList<>());
+			streamed.add(query);
+			long[] candidates = query.candidates(index);
+			files.addAll(candidates != null ? index.files(candidates) : index.files());
+		}
+		if (streamed.isEmpty()) {
+			return results;
+		}
+		QueryMatcher matcher = new QueryMatcher(streamed);
+		// Файлы в порядке индекса, как и результаты по индексу
+		List<Path> paths = index.files().stream().filter(files::contains).toList();
+		List<List<List<Integer>>> matches = paths.parallelStream().map(matcher::match).toList();
+		for (int i = 0; i < paths.size(); i++) {
+			if (matches.get(i) == null) {
+				continue;
+			}
+			String file = paths.get(i).toAbsolutePath().toString();
+			for (int query = 0; query < streamed.size(); query++) {
+				for (int line : matches.get(i).get(query)) {
+					results.get(streamed.get(query)).add(new Result(file, line));
+				}
+			}
+		}
+		return results;
+	}
+
+	private static String value(String[] args, int i) {
+		if (i >= args.length) {
+			throw new IllegalArgumentException("Не задано значение параметра " + args[i - 1]);
+		}
+		return args[i];
+	}
+
+	static @Nullable String getAttributeValue(@NotNull XMLStreamReader reader, String attrName) {
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			if (attrName.equals(reader.getAttributeLocalName(i))) {
+				return reader.getAttributeValue(i);
+			}
+		}
+		return null;
+	}
+
+	@Value
+	static class Result {
+		String file;
+		int lineNumber;
+	}
+}
@@ -0,0 +1,104 @@
+package ru.sam47kon;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/// Проверка нескольких запросов {@link LifecycleQuery} за один проход StAX по файлу
+final class QueryMatcher {
+	private final List<LifecycleQuery> queries;
+
+	QueryMatcher(@NotNull List<LifecycleQuery> queries) {
+		this.queries = queries;
+	}
+
+	/// Строки найденных элементов по запросам, в порядке queries, или null, если файл не разобран
+	@Nullable List<List<Integer>> match(@NotNull Path file) {
+		List<List<Integer>> lines = new ArrayList<>();
+		queries.forEach(query -> lines.add(new ArrayList<>()));
+		Deque<Frame> frames = new ArrayDeque<>();
+		int depth = 0;
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+			XMLStreamReader xmlReader = LifecycleIndex.newReader(in);
+			try {
+				while (xmlReader.hasNext()) {
+					int event = xmlReader.next();
+					if (event == XMLStreamConstants.START_ELEMENT) {
+						depth++;
+						String name = xmlReader.getLocalName();
+						for (Frame frame : frames) {
+							if (frame.nested == 0) {
+								frame.check(xmlReader);
+							}
+							if (name.equals(frame.query.element.name())) {
+								frame.nested++;
+							}
+						}
+						for (int i = 0; i < queries.size(); i++) {
+							if (queries.get(i).element.matches(xmlReader)) {
+								frames.push(new Frame(i, queries.get(i), depth, xmlReader.getLocation().getLineNumber()));
+							}
+						}
+					} else if (event == XMLStreamConstants.END_ELEMENT) {
+						while (!frames.isEmpty() && frames.peek().depth == depth) {
+							Frame frame = frames.pop();
+							if (frame.query.matches(frame.found)) {
+								lines.get(frame.index).add(frame.line);
+							}
+						}
+						String name = xmlReader.getLocalName();
+						for (Frame frame : frames) {
+							if (name.equals(frame.query.element.name())) {
+								frame.nested--;
+							}
+						}
+						depth--;
+					}
+				}
+			} finally {
+				xmlReader.close();
+			}
+		} catch (IOException | XMLStreamException e) {
+			System.err.println("Ошибка обработки файла " + file.toAbsolutePath() + ": " + e.getMessage());
+			return null;
+		}
+		// Вложенные найденные элементы закрываются раньше объемлющих
+		lines.forEach(Collections::sort);
+		return lines;
+	}
+
+	private static final class Frame {
+		final int index;
+		final LifecycleQuery query;
+		final int depth;
+		final int line;
+		final boolean[] found;
+		// Открытых внутри элементов с тем же именем: их содержимое относится к ним
+		int nested;
+
+		Frame(int index, @NotNull LifecycleQuery query, int depth, int line) {
+			this.index = index;
+			this.query = query;
+			this.depth = depth;
+			this.line = line;
+			this.found = new boolean[query.patterns.size()];
+		}
+
+		void check(@NotNull XMLStreamReader reader) {
+			for (int i = 0; i < found.length; i++) {
+				if (!found[i] && query.patterns.get(i).matches(reader)) {
+					found[i] = true;
+				}
+			}
+		}
+	}
+}
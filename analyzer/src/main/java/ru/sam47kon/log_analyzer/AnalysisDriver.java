@@ -0,0 +1,583 @@
+package ru.sam47kon.log_analyzer;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.commons.lang3.time.StopWatch;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static ru.sam47kon.log_analyzer.LogAnalyzer.logDebug;
+import static ru.sam47kon.log_analyzer.LogAnalyzer.logError;
+
+/// Общий проход по логам для нескольких анализаторов {@link LogPlugin}: каждый файл читается один раз
+public class AnalysisDriver {
+	private static final String PATH_TO_LOG_FILE = ".";
+
+	public static void main(String[] args) {
+		Options options = Options.parse(args, PATH_TO_LOG_FILE);
+		run(options, List.of(new LogAnalyzer.Plugin(options.sobiJoin()), new PoibAnalyzer.Plugin(options.sobiJoin()), new DLCPerfAnalyzer.Plugin()));
+	}
+
+	static void run(@NotNull Options options, @NotNull List<LogPlugin<?>> plugins) {
+		StopWatch stopWatch = new StopWatch();
+		stopWatch.start();
+		MemoryBudget.configure(options.heapBudget());
+		try (LogFiles.Archives archives = new LogFiles.Archives()) {
+			List<Path> files;
+			try {
+				files = LogFiles.find(options.logDir(), name -> plugins.stream().anyMatch(plugin -> accepts(plugin, name)), archives);
+			} catch (IOException e) {
+				logError(String.format("Ошибка при сканировании директории: %s", ExceptionUtils.getRootCauseMessage(e)));
+				return;
+			}
+			try (AnalysisMetrics metrics = AnalysisMetrics.start(options, files)) {
+				run(options, plugins, files, stopWatch, metrics);
+				if (metrics != null) {
+					metrics.write(options.logDir());
+				}
+			}
+		}
+	}
+
+	private static void run(@NotNull Options options, @NotNull List<LogPlugin<?>> plugins, @NotNull List<Path> files, @NotNull StopWatch stopWatch,
+							@Nullable AnalysisMetrics metrics) {
+		// Файлы с одним и тем же набором анализаторов читаются одним автоматом
+		Map<List<LogPlugin<?>>, FilePlugins> pluginSets = new HashMap<>();
+		Map<Path, FilePlugins> filePlugins = new HashMap<>();
+		for (Path file : files) {
+			String name = file.getFileName().toString();
+			List<LogPlugin<?>> accepting = plugins.stream().filter(plugin -> accepts(plugin, name)).toList();
+			filePlugins.put(file, pluginSets.computeIfAbsent(accepting, set -> new FilePlugins(set, options, metrics)));
+		}
+		warnUnsupportedFilters(options, plugins);
+
+		LogCheckpoints<FilePartials> checkpoints = LogCheckpoints.load(options,
+				plugins.stream().map(LogPlugin::prefix).collect(Collectors.joining("+")) + options.filterKey());
+		EventCache cache = EventCache.open(options);
+		List<RetainedPartials> results = LogFiles.analyze(files, options, file -> {
+			FilePlugins set = filePlugins.get(file);
+			List<Serializable> cached = cache.read(file, set.plugins);
+			if (cached != null) {
+				fileFinished(metrics);
+				// Колонки событий остаются в отображенном файле кэша
+				return new RetainedPartials(new FilePartials(cached), null, 0);
+			}
+			long start = set.start(file);
+			if (start < 0) {
+				fileFinished(metrics);
+				logDebug(String.format("Файл [%s] вне заданного интервала времени, пропущен", file.getFileName()));
+				return new RetainedPartials(set.newPartials(), null, 0);
+			}
+			boolean splits = splits(file, options);
+			Reservation reservation = MemoryBudget.enabled() ? new Reservation() : null;
+			// Чтение с найденной позиции --from не сочетается с дочитыванием по контрольным точкам
+			FilePartials partials = !options.checkpoints() && (splits || start > 0)
+					? set.analyzeChunks(file, start, splits ? options.chunkBytes() : 0, reservation)
+					: checkpoints.analyze(file, set::newPartials, set.matcher, set.filter,
+					(partial, source) -> set.analyze(partial, source, file, reservation));
+			cache.write(file, set.plugins, partials.partials());
+			fileFinished(metrics);
+			return RetainedPartials.retain(file, set, partials, reservation);
+		});
+		checkpoints.save();
+		stopWatch.stop();
+		logDebug("Время анализа: " + stopWatch.getTime() + " ms");
+		if (metrics != null) {
+			metrics.scanFinished();
+			metrics.wall("анализ файлов", stopWatch.getNanoTime());
+		}
+
+		// Слитые события анализаторов для сопоставления между ними
+		Map<Class<?>, EventStore> joinEvents = new HashMap<>();
+		for (LogPlugin<?> plugin : plugins) {
+			List<Integer> fileIndexes = new ArrayList<>();
+			List<Integer> pluginIndexes = new ArrayList<>();
+			for (int i = 0; i < files.size(); i++) {
+				int index = filePlugins.get(files.get(i)).plugins.indexOf(plugin);
+				if (index >= 0) {
+					fileIndexes.add(i);
+					pluginIndexes.add(index);
+				}
+			}
+			if (fileIndexes.isEmpty()) {
+				logError(String.format("Нет файлов, соответствующих маске '%s'", plugin.prefix()));
+				continue;
+			}
+			// Выгруженные результаты читаются с диска при каждом обращении и не задерживаются в памяти
+			long reportStart = System.nanoTime();
+			EventStore events = report(plugin, new AbstractList<>() {
+				@Override
+				public Serializable get(int i) {
+					return results.get(fileIndexes.get(i)).load().get(pluginIndexes.get(i));
+				}
+
+				@Override
+				public int size() {
+					return fileIndexes.size();
+				}
+			}, options);
+			if (metrics != null) {
+				metrics.wall("отчет: " + plugin.prefix(), System.nanoTime() - reportStart);
+			}
+			if (events != null) {
+				joinEvents.put(plugin.getClass(), events);
+			}
+		}
+		if (options.sobiJoin()) {
+			EventStore transitions = joinEvents.get(LogAnalyzer.Plugin.class);
+			EventStore requests = joinEvents.get(PoibAnalyzer.Plugin.class);
+			if (transitions == null || requests == null) {
+				logError("Для --sobi-join нужны логи сервера и POIB");
+			} else {
+				long joinStart = System.nanoTime();
+				SobiJoin.report(transitions, requests, options);
+				if (metrics != null) {
+					metrics.wall("сопоставление SOBI", System.nanoTime() - joinStart);
+				}
+			}
+		}
+	}
+
+	private static void fileFinished(@Nullable AnalysisMetrics metrics) {
+		if (metrics != null) {
+			metrics.fileFinished();
+		}
+	}
+
+	/// Чтение строк одним анализатором в заданный частичный результат, для режима слежения
+	static <T extends Serializable> @NotNull LogFollower.LineConsumer lineConsumer(@NotNull LogPlugin<T> plugin, @NotNull T partial) {
+		FilePlugins set = new FilePlugins(List.of(plugin), null, null);
+		FilePartials partials = new FilePartials(List.of(partial));
+		return source -> set.analyze(partials, source);
+	}
+
+	/// Файл разбирается кусками: он несжатый и больше куска, а контрольные точки (дочитывание с позиции) не нужны
+	private static boolean splits(@NotNull Path file, @NotNull Options options) {
+		try {
+			return options.parallel() && !options.checkpoints() && options.chunkBytes() > 0 && !LineSource.isCompressed(file)
+					&& Files.size(file) > options.chunkBytes();
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static void warnUnsupportedFilters(@NotNull Options options, @NotNull List<LogPlugin<?>> plugins) {
+		for (LogPlugin<?> plugin : plugins) {
+			if (options.timeFiltered() && plugin.timestampFormat() == null
+					|| options.guid() != null && plugin.guidMarker(options.guid()) == null
+					|| options.docType() != null && plugin.docTypeMarker(options.docType()) == null) {
+				logDebug(String.format("Анализатор '%s' не поддерживает часть заданных фильтров, они к нему не применяются", plugin.prefix()));
+			}
+		}
+	}
+
+	private static boolean accepts(@NotNull LogPlugin<?> plugin, @NotNull String fileName) {
+		return fileName.startsWith(plugin.prefix()) && !fileName.equals(plugin.reportName());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Serializable> @Nullable EventStore report(@NotNull LogPlugin<T> plugin, @NotNull List<Serializable> partials,
+																		 @NotNull Options options) {
+		return plugin.report((List<T>) partials, options);
+	}
+
+	/// Анализаторы одного файла: маркеры i-го анализатора в общем автомате сдвинуты на offsets[i] бит, за ними маркеры фильтров
+	private static final class FilePlugins {
+		// Строки в файле бывают немного не по порядку времени: файлы пропускаются и чтение начинается с запасом
+		private static final long SKEW_MILLIS = 60_000;
+		// Через сколько прочитанных строк уточнять оценку памяти частичных результатов для бюджета
+		private static final int BUDGET_CHECK_LINES = 1 << 14;
+
+		final List<LogPlugin<?>> plugins;
+		final MarkerMatcher matcher;
+		final long filter;
+		// null — метрики не собираются
+		private final @Nullable AnalysisMetrics metrics;
+		// Подписи маркеров общего автомата и анализаторов для метрик
+		private final String[] markerNames;
+		private final String[] pluginNames;
+		private final int[] offsets;
+		private final long[] masks;
+		private final long[] required;
+		// Маркеры фильтров, которые может проверить сам источник строк: анализатор в наборе один
+		private final long sourceRequired;
+		// Интервал [fromMillis, toMillis) в миллисекундах формата времени анализатора, formats[i] == null — без интервала
+		private final TimestampFormat[] formats;
+		private final long[] fromMillis;
+		private final long[] toMillis;
+		// Интервал задан всем анализаторам: чтение заканчивается, когда все строки позже интервала
+		private final boolean timed;
+
+		/// @param options фильтры строк или null — без фильтров
+		FilePlugins(@NotNull List<LogPlugin<?>> plugins, @Nullable Options options, @Nullable AnalysisMetrics metrics) {
+			this.plugins = plugins;
+			this.metrics = metrics;
+			this.offsets = new int[plugins.size()];
+			this.masks = new long[plugins.size()];
+			this.required = new long[plugins.size()];
+			this.formats = new TimestampFormat[plugins.size()];
+			this.fromMillis = new long[plugins.size()];
+			this.toMillis = new long[plugins.size()];
+			List<MarkerMatcher> matchers = new ArrayList<>(plugins.stream().map(LogPlugin::markers).toList());
+			long filter = 0;
+			int offset = 0;
+			for (int i = 0; i < plugins.size(); i++) {
+				int size = plugins.get(i).markers().size();
+				offsets[i] = offset;
+				masks[i] = size == Long.SIZE ? -1L : (1L << size) - 1;
+				filter |= plugins.get(i).filter() << offset;
+				offset += size;
+			}
+			boolean timed = options != null && options.timeFiltered();
+			for (int i = 0; i < plugins.size(); i++) {
+				LogPlugin<?> plugin = plugins.get(i);
+				MarkerMatcher.Builder markers = MarkerMatcher.builder();
+				int size = 0;
+				String guidMarker = options != null && options.guid() != null ? plugin.guidMarker(options.guid()) : null;
+				if (guidMarker != null) {
+					markers.contains(guidMarker);
+					size++;
+				}
+				String docTypeMarker = options != null && options.docType() != null ? plugin.docTypeMarker(options.docType()) : null;
+				if (docTypeMarker != null) {
+					markers.contains(docTypeMarker);
+					size++;
+				}
+				if (size > 0) {
+					matchers.add(markers.build());
+					required[i] = (1L << size) - 1 << offset;
+					offset += size;
+				}
+				formats[i] = options != null && options.timeFiltered() ? plugin.timestampFormat() : null;
+				fromMillis[i] = formats[i] != null && options.from() != null ? formats[i].epochMillis(options.from()) : Long.MIN_VALUE;
+				toMillis[i] = formats[i] != null && options.to() != null ? formats[i].epochMillis(options.to()) : Long.MAX_VALUE;
+				timed &= formats[i] != null;
+			}
+			this.matcher = MarkerMatcher.combine(matchers);
+			this.filter = filter;
+			this.sourceRequired = plugins.size() == 1 ? required[0] : 0;
+			this.timed = timed;
+			this.pluginNames = plugins.stream().map(LogPlugin::prefix).toArray(String[]::new);
+			this.markerNames = new String[matcher.size()];
+			for (int id = 0; id < markerNames.length; id++) {
+				int plugin = plugins.size() - 1;
+				while (plugin > 0 && offsets[plugin] > id) {
+					plugin--;
+				}
+				boolean own = id < offsets[plugin] + Long.bitCount(masks[plugin]);
+				markerNames[id] = (own ? pluginNames[plugin] : "фильтр") + ": " + matcher.marker(id);
+			}
+		}
+
+		/// Позиция, с которой читать несжатый файл по --from, или -1, если файл целиком вне интервала --from/--to
+		long start(@NotNull Path file) {
+			if (!timed || LineSource.isCompressed(file)) {
+				return 0;
+			}
+			try {
+				long start = Long.MAX_VALUE;
+				for (int i = 0; i < plugins.size(); i++) {
+					long[] bounds = LineSource.timeBounds(file, formats[i]);
+					if (bounds == null) {
+						return 0;
+					}
+					if (bounds[1] < skewed(fromMillis[i], -SKEW_MILLIS) || bounds[0] >= skewed(toMillis[i], SKEW_MILLIS)) {
+						continue;
+					}
+					start = Math.min(start, fromMillis[i] == Long.MIN_VALUE ? 0 : LineSource.seek(file, formats[i], fromMillis[i] - SKEW_MILLIS));
+				}
+				return start == Long.MAX_VALUE ? -1 : start;
+			} catch (IOException e) {
+				logError(String.format("Ошибка при поиске интервала времени в файле [%s]: %s", file.getFileName(), ExceptionUtils.getRootCauseMessage(e)));
+				return 0;
+			}
+		}
+
+		@NotNull FilePartials newPartials() {
+			List<Serializable> partials = new ArrayList<>();
+			plugins.forEach(plugin -> partials.add(plugin.newPartial()));
+			return new FilePartials(partials);
+		}
+
+		void analyze(@NotNull FilePartials partials, @NotNull LineSource source) throws Exception {
+			analyze(partials, source, true, true, null, null);
+		}
+
+		void analyze(@NotNull FilePartials partials, @NotNull LineSource source, @NotNull Path file, @Nullable Reservation reservation) throws Exception {
+			analyze(partials, source, true, true, file, reservation);
+		}
+
+		/// Разбор файла с позиции from кусками параллельно, chunkBytes == 0 — одним куском
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		@NotNull FilePartials analyzeChunks(@NotNull Path file, long from, long chunkBytes, @Nullable Reservation reservation) {
+			long[] bounds;
+			try {
+				bounds = LineSource.split(file, from, chunkBytes, matcher, this::needsFollowingLine);
+			} catch (IOException e) {
+				logError(String.format("Ошибка при обработке файла [%s]: %s", file.getFileName(), ExceptionUtils.getRootCauseMessage(e)));
+				return newPartials();
+			}
+			if (bounds.length > 2) {
+				logDebug(String.format("Анализ файла: %s, кусков: %d", file.getFileName(), bounds.length - 1));
+			} else {
+				logDebug(String.format("Анализ файла: %s с позиции %d", file.getFileName(), from));
+			}
+			FilePartials first = newPartials();
+			List<FilePartials> chunks = IntStream.range(0, bounds.length - 1).parallel().mapToObj(chunk -> {
+				FilePartials partials = chunk == 0 ? first : chunkPartials(first);
+				try (LineSource source = LineSource.open(file, matcher, filter, bounds[chunk], bounds[chunk + 1])) {
+					analyze(partials, source, chunk == 0, chunk == bounds.length - 2, file, reservation);
+				} catch (Exception e) {
+					logError(String.format("Ошибка при обработке файла [%s]: %s", file.getFileName(), ExceptionUtils.getRootCauseMessage(e)));
+				}
+				return partials;
+			}).toList();
+			long appendStart = System.nanoTime();
+			FilePartials partials = chunks.get(0);
+			for (FilePartials next : chunks.subList(1, chunks.size())) {
+				for (int i = 0; i < plugins.size(); i++) {
+					((LogPlugin) plugins.get(i)).append(partials.get(i), next.get(i));
+				}
+			}
+			if (metrics != null && chunks.size() > 1) {
+				metrics.stage("слияние кусков", System.nanoTime() - appendStart);
+			}
+			return partials;
+		}
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		private @NotNull FilePartials chunkPartials(@NotNull FilePartials first) {
+			List<Serializable> partials = new ArrayList<>();
+			for (int i = 0; i < plugins.size(); i++) {
+				partials.add(((LogPlugin) plugins.get(i)).newChunkPartial(first.get(i)));
+			}
+			return new FilePartials(partials);
+		}
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		long estimatedBytes(@NotNull FilePartials partials) {
+			long bytes = 0;
+			for (int i = 0; i < plugins.size(); i++) {
+				bytes += ((LogPlugin) plugins.get(i)).estimatedBytes(partials.get(i));
+			}
+			return bytes;
+		}
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		void release(@NotNull FilePartials partials) {
+			for (int i = 0; i < plugins.size(); i++) {
+				((LogPlugin) plugins.get(i)).release(partials.get(i));
+			}
+		}
+
+		/// Нужна ли строке с такими маркерами следующая строка хотя бы одному анализатору, которому строка интересна
+		boolean needsFollowingLine(long matches) {
+			boolean following = false;
+			for (int i = 0; i < plugins.size(); i++) {
+				long own = own(matches, i);
+				following |= (own & plugins.get(i).filter()) != 0 && plugins.get(i).needsFollowingLine(own);
+			}
+			return following;
+		}
+
+		/// @param first первый кусок файла: анализаторы получают {@link LogPlugin#fileStarted}
+		/// @param last  последний кусок: анализаторы получают {@link LogPlugin#fileFinished}
+		/// @param file  файл для метрик или null — не учитывать
+		/// @param reservation куда занимать место по оценке partials или null — без бюджета памяти
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		private void analyze(@NotNull FilePartials partials, @NotNull LineSource source, boolean first, boolean last,
+							 @Nullable Path file, @Nullable Reservation reservation) throws Exception {
+			source.require(sourceRequired);
+			AnalysisMetrics.Chunk chunk = metrics != null && file != null ? new AnalysisMetrics.Chunk(markerNames, pluginNames) : null;
+			long startPosition = source.position();
+			long startLine = source.lineNumber();
+			long time0 = chunk != null ? System.nanoTime() : 0;
+			if (first) {
+				String firstLine = source.firstLine();
+				for (int i = 0; i < plugins.size(); i++) {
+					((LogPlugin) plugins.get(i)).fileStarted(partials.get(i), firstLine);
+				}
+			}
+			// Место, занятое в бюджете по оценке partials этим чтением
+			long reserved = 0;
+			long lines = 0;
+			String line;
+			// Источник отдает только строки с маркерами хотя бы одного анализатора, строка декодируется один раз
+			while ((line = source.nextMatching()) != null) {
+				long matches = source.matches();
+				if (chunk != null) {
+					long now = System.nanoTime();
+					chunk.scanNanos += now - time0;
+					time0 = now;
+					chunk.matched(matches);
+					if (chunk.matchedLines % AnalysisMetrics.PROGRESS_LINES == 0) {
+						long read = source.position() - startPosition;
+						metrics.progress(read - chunk.reportedBytes);
+						chunk.reportedBytes = read;
+					}
+				}
+				String followingLine = null;
+				if (needsFollowingLine(matches)) {
+					followingLine = source.nextLine();
+					if (followingLine == null && (source.completeLinesOnly() || source.hasNextLine())) {
+						// Следующая строка еще не дописана: строка будет прочитана вместе с ней в следующий раз
+						source.unreadLastLine();
+						break;
+					}
+				}
+				boolean finished = timed;
+				for (int i = 0; i < plugins.size(); i++) {
+					LogPlugin plugin = plugins.get(i);
+					long time = fromMillis[i];
+					if (formats[i] != null) {
+						try {
+							time = formats[i].parse(line);
+							finished &= time >= skewed(toMillis[i], SKEW_MILLIS);
+						} catch (ParseException e) {
+							// строку без метки времени решает сам анализатор
+							finished = false;
+						}
+					}
+					long own = own(matches, i);
+					if ((own & plugin.filter()) == 0 || (matches & required[i]) != required[i] || time < fromMillis[i] || time >= toMillis[i]) {
+						continue;
+					}
+					plugin.line(partials.get(i), line, own, plugin.needsFollowingLine(own) ? followingLine : null,
+							chunk != null ? chunk : LogPlugin.ParseMark.NONE);
+					if (chunk != null) {
+						long now = System.nanoTime();
+						chunk.lineFinished(i, time0, now);
+						time0 = now;
+					}
+				}
+				if (reservation != null && ++lines % BUDGET_CHECK_LINES == 0) {
+					long estimate = estimatedBytes(partials);
+					if (estimate > reserved && reservation.reserve(estimate - reserved)) {
+						reserved = estimate;
+					}
+				}
+				if (finished) {
+					// Дальше в файле только строки позже интервала
+					break;
+				}
+			}
+			if (chunk != null) {
+				chunk.scanNanos += System.nanoTime() - time0;
+				metrics.finished(file, chunk, source.position() - startPosition, source.lineNumber() - startLine);
+			}
+			if (!last) {
+				return;
+			}
+			String lastLine = source.lastLine();
+			for (int i = 0; i < plugins.size(); i++) {
+				((LogPlugin) plugins.get(i)).fileFinished(partials.get(i), lastLine);
+			}
+		}
+
+		/// time + skew без переполнения для неограниченных концов интервала
+		private static long skewed(long time, long skew) {
+			return time == Long.MIN_VALUE || time == Long.MAX_VALUE ? time : time + skew;
+		}
+
+		private long own(long matches, int i) {
+			return matches >>> offsets[i] & masks[i];
+		}
+	}
+
+	/// Частичные результаты анализаторов одного файла, в порядке {@link FilePlugins#plugins}
+	private record FilePartials(List<Serializable> partials) implements Serializable {
+		@Nullable Serializable get(int i) {
+			return partials.get(i);
+		}
+	}
+
+	/// Место в {@link MemoryBudget}, занятое по ходу чтения файла под оценку {@link LogPlugin#estimatedBytes} его частичных результатов
+	private static final class Reservation {
+		private final AtomicLong bytes = new AtomicLong();
+
+		/// Занимает еще bytes, если они помещаются в бюджет
+		boolean reserve(long bytes) {
+			if (!MemoryBudget.tryReserve(bytes)) {
+				return false;
+			}
+			this.bytes.addAndGet(bytes);
+			return true;
+		}
+
+		long bytes() {
+			return bytes.get();
+		}
+	}
+
+	/// Частичные результаты прочитанного файла: в памяти или во временном файле, если не поместились в {@link MemoryBudget}
+	private static final class RetainedPartials {
+		private final @Nullable FilePartials partials;
+		private final @Nullable Path spill;
+		// Место в бюджете под partials, возвращается при передаче в отчет
+		private long reserved;
+
+		RetainedPartials(@Nullable FilePartials partials, @Nullable Path spill, long reserved) {
+			this.partials = partials;
+			this.spill = spill;
+			this.reserved = reserved;
+		}
+
+		/// Оценка слитых кусков уточняет занятое при чтении: результат остается в памяти, если она помещается в бюджет, иначе выгружается
+		static @NotNull RetainedPartials retain(@NotNull Path file, @NotNull FilePlugins set, @NotNull FilePartials partials,
+												@Nullable Reservation reservation) {
+			if (reservation == null) {
+				return new RetainedPartials(partials, null, 0);
+			}
+			long estimate = set.estimatedBytes(partials);
+			long reserved = reservation.bytes();
+			if (estimate <= reserved || MemoryBudget.tryReserve(estimate - reserved)) {
+				MemoryBudget.release(Math.max(reserved - estimate, 0));
+				return new RetainedPartials(partials, null, estimate);
+			}
+			try {
+				Path spill = Files.createTempFile("log-analyzer-", ".partial");
+				spill.toFile().deleteOnExit();
+				// Сериализуется сразу в файл, без копии в памяти
+				try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(spill)))) {
+					out.writeObject(partials);
+				}
+				MemoryBudget.release(reserved);
+				set.release(partials);
+				logDebug(String.format("Бюджет памяти исчерпан, результат файла [%s] выгружен в %s", file.getFileName(), spill));
+				return new RetainedPartials(null, spill, 0);
+			} catch (IOException e) {
+				logError(String.format("Результат файла [%s] не выгружен: %s", file.getFileName(), ExceptionUtils.getRootCauseMessage(e)));
+				return new RetainedPartials(partials, null, reserved);
+			}
+		}
+
+		/// Результат для отчета: место в бюджете возвращается, дальше он сливается с остальными
+		@NotNull FilePartials load() {
+			if (partials != null) {
+				MemoryBudget.release(reserved);
+				reserved = 0;
+				return partials;
+			}
+			try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(spill)))) {
+				in.setObjectInputFilter(LogCheckpoints.CLASS_FILTER);
+				return (FilePartials) in.readObject();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} catch (ClassNotFoundException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,409 @@
+package ru.sam47kon.log_analyzer;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static ru.sam47kon.log_analyzer.LogAnalyzer.logDebug;
+import static ru.sam47kon.log_analyzer.LogAnalyzer.logError;
+
+/// Метрики прохода по логам (--metrics): строка прогресса в stderr и сводка в {@link #METRICS_JSON}
+final class AnalysisMetrics implements AutoCloseable {
+	static final String METRICS_JSON = "analysisMetrics.json";
+	// Как часто кусок сообщает прочитанные байты для строки прогресса, в строках с маркерами
+	static final int PROGRESS_LINES = 1 << 12;
+	private static final long MB = 1 << 20;
+
+	private final long started = System.nanoTime();
+	private final long totalBytes;
+	private final int totalFiles;
+	private final LongAdder bytes = new LongAdder();
+	private final LongAdder lines = new LongAdder();
+	private final LongAdder matchedLines = new LongAdder();
+	private final LongAdder finishedFiles = new LongAdder();
+	private final Map<String, FileStats> files = new ConcurrentHashMap<>();
+	private final Map<String, LongAdder> markers = new ConcurrentHashMap<>();
+	// Время стадий, суммарно по потокам: параллельные стадии могут занять больше времени работы
+	private final Map<String, LongAdder> stageNanos = new ConcurrentHashMap<>();
+	// Время стадий по часам, в порядке выполнения
+	private final Map<String, Long> wallNanos = Collections.synchronizedMap(new LinkedHashMap<>());
+
+	private final ScheduledExecutorService progress;
+	private final List<NotificationEmitter> emitters = new ArrayList<>();
+	private final NotificationListener gcListener = this::gcFinished;
+	private final LongAdder gcPauses = new LongAdder();
+	private final LongAdder gcPauseMillis = new LongAdder();
+	private volatile long maxGcPauseMillis;
+	// Выделено потоками по номерам потоков: потоки пула завершаются, их последнее значение остается здесь
+	private final Map<Long, Long> allocated = new HashMap<>();
+	private long scanNanos;
+	private boolean progressShown;
+
+	private AnalysisMetrics(@NotNull List<Path> files) {
+		long total = 0;
+		for (Path file : files) {
+			try {
+				total += Files.size(file);
+			} catch (IOException e) {
+				// файл без размера не учитывается в прогрессе
+			}
+		}
+		this.totalBytes = total;
+		this.totalFiles = files.size();
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			if (collector instanceof NotificationEmitter emitter) {
+				emitter.addNotificationListener(gcListener, null, null);
+				emitters.add(emitter);
+			}
+		}
+		progress = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "metrics-progress");
+			thread.setDaemon(true);
+			return thread;
+		});
+		progress.scheduleAtFixedRate(this::showProgress, 1, 1, TimeUnit.SECONDS);
+	}
+
+	/// Метрики для файлов files или null, если они не включены
+	static @Nullable AnalysisMetrics start(@NotNull Options options, @NotNull List<Path> files) {
+		return options.metrics() ? new AnalysisMetrics(files) : null;
+	}
+
+	/// Прочитанные куском байты для строки прогресса
+	void progress(long bytesRead) {
+		bytes.add(bytesRead);
+	}
+
+	/// Кусок файла прочитан: его счетчики добавляются к общим
+	void finished(@NotNull Path file, @NotNull Chunk chunk, long bytesRead, long linesRead) {
+		bytes.add(bytesRead - chunk.reportedBytes);
+		lines.add(linesRead);
+		matchedLines.add(chunk.matchedLines);
+		files.computeIfAbsent(file.toString(), k -> new FileStats()).add(chunk, bytesRead, linesRead);
+		for (int id = 0; id < chunk.markerLines.length; id++) {
+			if (chunk.markerLines[id] > 0) {
+				markers.computeIfAbsent(chunk.markerNames[id], k -> new LongAdder()).add(chunk.markerLines[id]);
+			}
+		}
+		stage("чтение и поиск маркеров", chunk.scanNanos);
+		for (int i = 0; i < chunk.pluginNames.length; i++) {
+			stage("разбор: " + chunk.pluginNames[i], chunk.parseNanos[i]);
+			stage("агрегирование: " + chunk.pluginNames[i], chunk.aggregateNanos[i]);
+		}
+	}
+
+	/// Файл прочитан целиком, в том числе взят из кэша или контрольной точки
+	void fileFinished() {
+		finishedFiles.increment();
+	}
+
+	void stage(@NotNull String stage, long nanos) {
+		stageNanos.computeIfAbsent(stage, k -> new LongAdder()).add(nanos);
+	}
+
+	/// Стадия, выполняемая в одном потоке: учитывается и по часам
+	void wall(@NotNull String stage, long nanos) {
+		wallNanos.merge(stage, nanos, Long::sum);
+	}
+
+	/// Чтение файлов закончено: прогресс больше не обновляется
+	synchronized void scanFinished() {
+		scanNanos = System.nanoTime() - started;
+		sampleAllocated();
+		progress.shutdownNow();
+		if (progressShown) {
+			System.err.println();
+		}
+	}
+
+	/// Пишет сводку в папку логов
+	void write(@NotNull Path logDir) {
+		sampleAllocated();
+		String fileName = logDir.resolve(METRICS_JSON).toString();
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
+			writer.write(json());
+			writer.newLine();
+		} catch (IOException e) {
+			logError("Ошибка при записи в файл: " + ExceptionUtils.getRootCauseMessage(e));
+			return;
+		}
+		logDebug("Данные успешно записаны в файл: " + fileName);
+	}
+
+	@Override
+	public void close() {
+		progress.shutdownNow();
+		for (NotificationEmitter emitter : emitters) {
+			try {
+				emitter.removeNotificationListener(gcListener);
+			} catch (ListenerNotFoundException e) {
+				// уже снят
+			}
+		}
+	}
+
+	private synchronized void showProgress() {
+		try {
+			sampleAllocated();
+			double seconds = (System.nanoTime() - started) / 1e9;
+			long done = bytes.sum();
+			double bytesPerSecond = done / seconds;
+			String eta = done > 0 && totalBytes > done ? String.format(", осталось ~%d с", (long) ((totalBytes - done) / bytesPerSecond)) : "";
+			System.err.printf("\rФайлов %d/%d, %d/%d МБ, %.1f МБ/с, %d строк/с%s    ", finishedFiles.sum(), totalFiles, done / MB, totalBytes / MB,
+					bytesPerSecond / MB, (long) (lines.sum() / seconds), eta);
+			progressShown = true;
+		} catch (RuntimeException e) {
+			// строка прогресса не должна останавливать анализ
+		}
+	}
+
+	private void gcFinished(@NotNull Notification notification, Object handback) {
+		if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+			return;
+		}
+		GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+		// Циклы конкурентных сборщиков идут параллельно с приложением и паузами не считаются
+		if (info.getGcAction().contains("concurrent") || info.getGcName().contains("Concurrent")) {
+			return;
+		}
+		long millis = info.getGcInfo().getDuration();
+		gcPauses.increment();
+		gcPauseMillis.add(millis);
+		maxGcPauseMillis = Math.max(maxGcPauseMillis, millis);
+	}
+
+	private synchronized void sampleAllocated() {
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads) || !threads.isThreadAllocatedMemorySupported()) {
+			return;
+		}
+		long[] ids = threads.getAllThreadIds();
+		long[] values = threads.getThreadAllocatedBytes(ids);
+		for (int i = 0; i < ids.length; i++) {
+			if (values[i] >= 0) {
+				allocated.merge(ids[i], values[i], Math::max);
+			}
+		}
+	}
+
+	private synchronized @NotNull String json() {
+		long elapsedNanos = System.nanoTime() - started;
+		long scan = scanNanos > 0 ? scanNanos : elapsedNanos;
+		long allocatedBytes = allocated.values().stream().mapToLong(Long::longValue).sum();
+		long totalLines = lines.sum();
+		long matched = matchedLines.sum();
+		Json json = new Json();
+		json.field("wallMillis", TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+		json.field("scanMillis", TimeUnit.NANOSECONDS.toMillis(scan));
+		json.field("files", totalFiles);
+		json.field("bytes", bytes.sum());
+		json.field("lines", totalLines);
+		json.field("matchedLines", matched);
+		json.field("rejectedLines", totalLines - matched);
+		json.field("bytesPerSecond", perSecond(bytes.sum(), scan));
+		json.field("linesPerSecond", perSecond(totalLines, scan));
+		json.object("stageMillis");
+		stageNanos.entrySet().stream().sorted(Map.Entry.comparingByKey())
+				.forEach(entry -> json.field(entry.getKey(), TimeUnit.NANOSECONDS.toMillis(entry.getValue().sum())));
+		json.end();
+		json.object("wallStageMillis");
+		synchronized (wallNanos) {
+			wallNanos.forEach((stage, nanos) -> json.field(stage, TimeUnit.NANOSECONDS.toMillis(nanos)));
+		}
+		json.end();
+		json.object("markerLines");
+		markers.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry -> json.field(entry.getKey(), entry.getValue().sum()));
+		json.end();
+		json.field("allocatedBytes", allocatedBytes);
+		json.field("allocatedBytesPerSecond", perSecond(allocatedBytes, elapsedNanos));
+		json.object("gc");
+		json.field("pauses", gcPauses.sum());
+		json.field("pauseMillis", gcPauseMillis.sum());
+		json.field("maxPauseMillis", maxGcPauseMillis);
+		json.end();
+		json.array("fileStats");
+		files.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry -> {
+			FileStats stats = entry.getValue();
+			long nanos = stats.finished - stats.started;
+			json.object(null);
+			json.field("path", entry.getKey());
+			json.field("bytes", stats.bytes);
+			json.field("lines", stats.lines);
+			json.field("matchedLines", stats.matchedLines);
+			json.field("millis", TimeUnit.NANOSECONDS.toMillis(nanos));
+			json.field("bytesPerSecond", perSecond(stats.bytes, nanos));
+			json.field("linesPerSecond", perSecond(stats.lines, nanos));
+			json.end();
+		});
+		json.end();
+		return json.finish();
+	}
+
+	private static long perSecond(long value, long nanos) {
+		return nanos > 0 ? (long) (value * 1e9 / nanos) : 0;
+	}
+
+	/// Счетчики одного куска файла, заполняются одним потоком
+	static final class Chunk implements LogPlugin.ParseMark {
+		final long startedNanos = System.nanoTime();
+		private final String[] markerNames;
+		private final String[] pluginNames;
+		final long[] markerLines;
+		// Время разбора строк и агрегирования по анализаторам, граница — {@link LogPlugin.ParseMark#parsed}
+		private final long[] parseNanos;
+		private final long[] aggregateNanos;
+		// Отметка разбора в текущей строке
+		private boolean parsed;
+		private long parsedNanos;
+		long matchedLines;
+		long scanNanos;
+		// Байты, уже сообщенные через progress
+		long reportedBytes;
+
+		Chunk(String @NotNull [] markerNames, String @NotNull [] pluginNames) {
+			this.markerNames = markerNames;
+			this.pluginNames = pluginNames;
+			this.markerLines = new long[markerNames.length];
+			this.parseNanos = new long[pluginNames.length];
+			this.aggregateNanos = new long[pluginNames.length];
+		}
+
+		@Override
+		public void parsed() {
+			parsed = true;
+			parsedNanos = System.nanoTime();
+		}
+
+		/// Анализатор plugin обработал строку с started до finished
+		void lineFinished(int plugin, long started, long finished) {
+			long parsedAt = parsed ? parsedNanos : finished;
+			parseNanos[plugin] += parsedAt - started;
+			aggregateNanos[plugin] += finished - parsedAt;
+			parsed = false;
+		}
+
+		void matched(long matches) {
+			matchedLines++;
+			for (long rest = matches; rest != 0; rest &= rest - 1) {
+				markerLines[Long.numberOfTrailingZeros(rest)]++;
+			}
+		}
+	}
+
+	/// Файл целиком: куски читаются параллельно, время — от начала первого до конца последнего
+	private static final class FileStats {
+		long started = Long.MAX_VALUE;
+		long finished = Long.MIN_VALUE;
+		long bytes;
+		long lines;
+		long matchedLines;
+
+		synchronized void add(@NotNull Chunk chunk, long bytesRead, long linesRead) {
+			started = Math.min(started, chunk.startedNanos);
+			finished = Math.max(finished, System.nanoTime());
+			bytes += bytesRead;
+			lines += linesRead;
+			matchedLines += chunk.matchedLines;
+		}
+	}
+
+	/// Запись JSON без библиотек: поля пишутся по порядку, вложенность отслеживается стеком
+	private static final class Json {
+		private final StringBuilder text = new StringBuilder("{");
+		private final Deque<Character> closing = new ArrayDeque<>();
+		private boolean first = true;
+
+		void field(@NotNull String name, long value) {
+			name(name);
+			text.append(value);
+		}
+
+		void field(@NotNull String name, @NotNull String value) {
+			name(name);
+			string(value);
+		}
+
+		/// Объект в поле name или элемент массива при name == null
+		void object(@Nullable String name) {
+			open(name, '{', '}');
+		}
+
+		void array(@NotNull String name) {
+			open(name, '[', ']');
+		}
+
+		void end() {
+			text.append(closing.pop());
+			first = false;
+		}
+
+		@NotNull String finish() {
+			return text.append('}').toString();
+		}
+
+		private void open(@Nullable String name, char open, char close) {
+			if (name != null) {
+				name(name);
+			} else {
+				separator();
+			}
+			text.append(open);
+			closing.push(close);
+			first = true;
+		}
+
+		private void name(@NotNull String name) {
+			separator();
+			string(name);
+			text.append(':');
+		}
+
+		private void separator() {
+			if (!first) {
+				text.append(',');
+			}
+			first = false;
+		}
+
+		private void string(@NotNull String value) {
+			text.append('"');
+			for (int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+				switch (c) {
+					case '"' -> text.append("\\\"");
+					case '\\' -> text.append("\\\\");
+					case '\n' -> text.append("\\n");
+					case '\r' -> text.append("\\r");
+					case '\t' -> text.append("\\t");
+					default -> {
+						if (c < 0x20) {
+							text.append(String.format("\\u%04x", (int) c));
+						} else {
+							text.append(c);
+						}
+					}
+				}
+			}
+			text.append('"');
+		}
+	}
+}
@@ -0,0 +1,194 @@
+package ru.sam47kon.log_analyzer;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/// Количество одновременно выполняемых переходов по секундам: разностные массивы +1/-1 и проход с накоплением сумм
+final class ConcurrencyGauge implements Serializable {
+	@Serial
+	private static final long serialVersionUID = 1L;
+
+	static final long BASE_MILLIS = 1000;
+	// Секунды хранятся блоками по часу, только для часов с запусками и завершениями: логи без года на стыке лет
+	// и папки за долгий срок не требуют массива на весь охваченный период
+	private static final int BLOCK_SECONDS = 60 * 60;
+	private static final Pattern GUID = Pattern.compile("\\p{XDigit}{8}-\\p{XDigit}{4}-\\p{XDigit}{4}-\\p{XDigit}{4}-\\p{XDigit}+");
+
+	// Блоки по номерам часов от эпохи
+	private final TreeMap<Long, Block> blocks = new TreeMap<>();
+
+	/// Переход, выполнявшийся в [startTime, endTime)
+	void add(long startTime, long endTime) {
+		long end = Math.max(startTime, endTime);
+		long first = Math.floorDiv(startTime, BASE_MILLIS);
+		// Завершение ровно на границе секунды не задевает следующую
+		long last = Math.floorDiv(Math.max(startTime, end - 1), BASE_MILLIS);
+		block(first).overlapping[index(first)]++;
+		block(last + 1).overlapping[index(last + 1)]--;
+		if (first == last) {
+			block(first).partialMillis[index(first)] += end - startTime;
+			return;
+		}
+		block(first).partialMillis[index(first)] += (first + 1) * BASE_MILLIS - startTime;
+		block(last).partialMillis[index(last)] += end - last * BASE_MILLIS;
+		block(first + 1).covering[index(first + 1)]++;
+		block(last).covering[index(last)]--;
+	}
+
+	void merge(@NotNull ConcurrencyGauge other) {
+		other.blocks.forEach((hour, block) -> {
+			Block merged = blocks.computeIfAbsent(hour, k -> new Block());
+			for (int i = 0; i < BLOCK_SECONDS; i++) {
+				merged.overlapping[i] += block.overlapping[i];
+				merged.covering[i] += block.covering[i];
+				merged.partialMillis[i] += block.partialMillis[i];
+			}
+		});
+	}
+
+	/// Интервалы длиной intervalMillis (кратной секунде), в которых выполнялись переходы, по возрастанию времени
+	void forEach(long intervalMillis, @NotNull BucketConsumer consumer) throws IOException {
+		if (intervalMillis % BASE_MILLIS != 0) {
+			throw new IllegalArgumentException("Интервал " + intervalMillis + " не кратен секунде");
+		}
+		Sweep sweep = new Sweep(intervalMillis, consumer);
+		long next = Long.MIN_VALUE;
+		for (Map.Entry<Long, Block> entry : blocks.entrySet()) {
+			long firstSecond = entry.getKey() * BLOCK_SECONDS;
+			// Часы без блока: переходы, пересекающие их целиком, занимают каждую секунду
+			if (next != Long.MIN_VALUE && sweep.overlap != 0) {
+				for (long second = next; second < firstSecond; second++) {
+					sweep.second(second, 0, 0, 0);
+				}
+			}
+			Block block = entry.getValue();
+			for (int i = 0; i < BLOCK_SECONDS; i++) {
+				sweep.second(firstSecond + i, block.overlapping[i], block.covering[i], block.partialMillis[i]);
+			}
+			next = firstSecond + BLOCK_SECONDS;
+		}
+		sweep.finish();
+	}
+
+	/// Пики: подряд идущие интервалы, в которых среднее не ниже 90-го перцентиля по интервалам, не более limit с самым высоким средним
+	@NotNull List<Peak> peaks(long intervalMillis, int limit) throws IOException {
+		List<Peak> buckets = new ArrayList<>();
+		forEach(intervalMillis, (start, end, average, maxOverlapping) -> buckets.add(new Peak(start, end, average, maxOverlapping)));
+		if (buckets.isEmpty()) {
+			return List.of();
+		}
+		double[] averages = buckets.stream().mapToDouble(Peak::average).sorted().toArray();
+		double threshold = averages[(int) (0.9 * (averages.length - 1))];
+		List<Peak> peaks = new ArrayList<>();
+		Peak current = null;
+		for (Peak bucket : buckets) {
+			if (bucket.average < threshold) {
+				current = null;
+			} else if (current != null && current.end == bucket.start) {
+				current = new Peak(current.start, bucket.end, Math.max(current.average, bucket.average), Math.max(current.maxOverlapping, bucket.maxOverlapping));
+				peaks.set(peaks.size() - 1, current);
+			} else {
+				current = bucket;
+				peaks.add(current);
+			}
+		}
+		return peaks.stream().sorted(Comparator.comparingDouble(Peak::average).reversed()).limit(limit).toList();
+	}
+
+	/// Наибольшее среднее по интервалам длиной intervalMillis
+	double maxAverage(long intervalMillis) throws IOException {
+		double[] max = {0};
+		forEach(intervalMillis, (start, end, average, maxOverlapping) -> max[0] = Math.max(max[0], average));
+		return max[0];
+	}
+
+	/// Пул потоков: имя потока без GUID и номера, например default task-29 → default task
+	static @NotNull String pool(@NotNull String threadName) {
+		Matcher guid = GUID.matcher(threadName);
+		int end = guid.find() ? guid.start() : threadName.length();
+		int digit = 0;
+		while (digit < end && !Character.isDigit(threadName.charAt(digit))) {
+			digit++;
+		}
+		end = digit;
+		while (end > 0 && !Character.isLetter(threadName.charAt(end - 1))) {
+			end--;
+		}
+		return end == 0 ? threadName : threadName.substring(0, end);
+	}
+
+	private @NotNull Block block(long second) {
+		return blocks.computeIfAbsent(Math.floorDiv(second, BLOCK_SECONDS), k -> new Block());
+	}
+
+	private static int index(long second) {
+		return Math.floorMod(second, BLOCK_SECONDS);
+	}
+
+	/// Разности счетчиков и время выполнения по секундам одного часа
+	private static final class Block implements Serializable {
+		@Serial
+		private static final long serialVersionUID = 1L;
+
+		// Разности количества переходов, пересекающих секунду
+		final int[] overlapping = new int[BLOCK_SECONDS];
+		// Разности количества переходов, занимающих секунду целиком
+		final int[] covering = new int[BLOCK_SECONDS];
+		// Время выполнения в секунде переходов, занимающих ее частично
+		final long[] partialMillis = new long[BLOCK_SECONDS];
+	}
+
+	/// Проход по секундам с накоплением разностей, складывающий секунды в интервалы
+	private static final class Sweep {
+		final long intervalMillis;
+		final BucketConsumer consumer;
+		long start = Long.MIN_VALUE;
+		long busyMillis;
+		int maxOverlapping;
+		int overlap;
+		int cover;
+
+		Sweep(long intervalMillis, @NotNull BucketConsumer consumer) {
+			this.intervalMillis = intervalMillis;
+			this.consumer = consumer;
+		}
+
+		void second(long second, int overlapping, int covering, long partialMillis) throws IOException {
+			overlap += overlapping;
+			cover += covering;
+			if (overlap == 0) {
+				return;
+			}
+			long bucketStart = Math.floorDiv(second * BASE_MILLIS, intervalMillis) * intervalMillis;
+			if (bucketStart != start && maxOverlapping != 0) {
+				finish();
+			}
+			start = bucketStart;
+			busyMillis += partialMillis + cover * BASE_MILLIS;
+			maxOverlapping = Math.max(maxOverlapping, overlap);
+		}
+
+		void finish() throws IOException {
+			if (maxOverlapping != 0) {
+				consumer.accept(start, start + intervalMillis, (double) busyMillis / intervalMillis, maxOverlapping);
+				busyMillis = 0;
+				maxOverlapping = 0;
+			}
+		}
+	}
+
+	/// Интервал [start, end): среднее количество одновременно выполняемых переходов и наибольшее количество пересекающих секунду
+	record Peak(long start, long end, double average, int maxOverlapping) {
+	}
+
+	@FunctionalInterface
+	interface BucketConsumer {
+		void accept(long start, long end, double average, int maxOverlapping) throws IOException;
+	}
+}
@@ -0,0 +1,363 @@
+package ru.sam47kon.log_analyzer;
+
+import com.opencsv.CSVWriter;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Serial;
+import java.io.Serializable;
+import java.text.ParseException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static ru.sam47kon.log_analyzer.LogAnalyzer.*;
+
+public class DLCPerfAnalyzer {
+
+	private static final String DLC_PERF_PATTERN = "dlcperf";
+	private static final String PATH_TO_LOG_FILE = "C:\\Users\\bulavin.ilya\\Downloads\\01-SUP-1843316\\";
+	private static final String DELIMITER = ": ";
+	private static final String PATTERN_INFO = "Детали перехода ";
+	private static final String MS = "ms";
+	private static final String SEPARATOR = System.lineSeparator() + "\t";
+	private static final String DETAIL_LOG_CSV = "detailLog.csv";
+	private static final String DETAIL_LOG_XLSX = "detailLog.xlsx";
+	private static final MarkerMatcher MARKERS = MarkerMatcher.builder().endsWith(DELIMITER).build();
+	private static final int LONG_TRANSITION_MILLIS = 15_000;
+	private static final String[] HEADERS = {"Document Type", "Transition", "Time (ms)", "GUID", "Thread Name"};
+	private static final int TIME_COLUMN = 2;
+	private static final String SHEET_NAME = "Execution Info";
+	private static final int EXCEL_WINDOW_ROWS = 1000;
+	private static final int WIDTH_SAMPLE_ROWS = 1000;
+	// Строковые колонки EventStore
+	private static final int THREAD_NAME = 0;
+	private static final int DOC_TYPE = 1;
+	private static final int TRANSITION_NAME = 2;
+
+	// 2025-03-27 09:24:17,376 DEBUG [ExecutorService424b17d1-3dc5-4497-8c72-a3bf790ce2609] [LIFECYCLE-PERF-LOG] []: Детали перехода 9c9dd388-641f-4966-b96c-583a4da08074 для документа MSC_ApplCashFlowShrt:
+
+	public static void main(String[] args) {
+		AnalysisDriver.run(Options.parse(args, PATH_TO_LOG_FILE), List.of(new Plugin()));
+	}
+
+	static @Nullable String guid(@NotNull String header) {
+		return StringUtils.substringBetween(header, PATTERN_INFO, StringUtils.SPACE);
+	}
+
+	static @Nullable String docType(@NotNull String header) {
+		return StringUtils.substringBetween(header, "документа ", ":");
+	}
+
+	/// Строка деталей без "\ " в начале: имя перехода и время перехода
+	static @NotNull String details(@NotNull String followingLine) {
+		return StringUtils.substring(followingLine, 2);
+	}
+
+	static @NotNull String transitionName(@NotNull String details) {
+		return StringUtils.substringBefore(details, StringUtils.SPACE);
+	}
+
+	static int duration(@NotNull String details, @NotNull String transitionName) {
+		return Integer.parseInt(StringUtils.trim(StringUtils.substringBetween(details, transitionName, MS)));
+	}
+
+	/// Детали переходов: строка заголовка, заканчивающаяся на DELIMITER, и следующая за ней строка с именем и временем
+	static final class Plugin implements LogPlugin<AnalysisData>, EventCodec<AnalysisData> {
+		@Override
+		public @NotNull String prefix() {
+			return DLC_PERF_PATTERN;
+		}
+
+		@Override
+		public @Nullable String reportName() {
+			return null;
+		}
+
+		@Override
+		public @NotNull MarkerMatcher markers() {
+			return MARKERS;
+		}
+
+		@Override
+		public long filter() {
+			return MARKERS.mask(DELIMITER);
+		}
+
+		@Override
+		public @NotNull AnalysisData newPartial() {
+			return new AnalysisData();
+		}
+
+		@Override
+		public @NotNull TimestampFormat timestampFormat() {
+			return TIME_LOG_FORMAT;
+		}
+
+		@Override
+		public @NotNull String guidMarker(@NotNull String guid) {
+			return PATTERN_INFO + guid + StringUtils.SPACE;
+		}
+
+		@Override
+		public @NotNull String docTypeMarker(@NotNull String docType) {
+			return "документа " + docType + ":";
+		}
+
+		@Override
+		public boolean needsFollowingLine(long matches) {
+			return true;
+		}
+
+		@Override
+		public void line(@NotNull AnalysisData analysisData, @NotNull String line, long matches, String followingLine,
+						 @NotNull ParseMark mark) throws ParseException {
+			// Заголовок в конце файла без строки деталей пропускается
+			if (followingLine == null) {
+				return;
+			}
+			Guid guid = Guid.parse(guid(line));
+			long timeLog = TIME_LOG_FORMAT.parse(line);
+			String details = details(followingLine);
+			String transitionName = transitionName(details);
+			int duration = duration(details, transitionName);
+			String threadName = LogAnalyzer.threadName(line);
+			String docType = docType(line);
+			mark.parsed();
+			analysisData.events.add(timeLog, guid, duration, threadName, docType, transitionName);
+		}
+
+		@Override
+		public void release(@NotNull AnalysisData analysisData) {
+			analysisData.events.release();
+		}
+
+		@Override
+		public void append(@NotNull AnalysisData analysisData, @NotNull AnalysisData next) {
+			analysisData.merge(next);
+		}
+
+		@Override
+		public @NotNull EventStore events(@NotNull AnalysisData analysisData) {
+			return analysisData.events;
+		}
+
+		@Override
+		public @NotNull AnalysisData fromEvents(@NotNull EventStore events) {
+			AnalysisData analysisData = new AnalysisData();
+			analysisData.events = events;
+			return analysisData;
+		}
+
+		@Override
+		public @Nullable EventStore report(@NotNull List<AnalysisData> partials, @NotNull Options options) {
+			AnalysisData analysisData = new AnalysisData();
+			partials.forEach(analysisData::merge);
+
+			// Все сводки считаются после чтения проходами по колонкам, выгрузка идет в порядке логов
+			EventStore events = analysisData.events;
+			boolean empty = events.size() == 0;
+			System.out.println("Начало лога: " + TIME_LOG_FORMAT.format(empty ? java.sql.Date.valueOf("2050-01-01").getTime() : events.minTime()));
+			System.out.println("Конец лога: " + TIME_LOG_FORMAT.format(empty ? java.sql.Date.valueOf("1970-01-01").getTime() : events.maxTime()));
+			System.out.println("Всего успешных переходов: " + events.size());
+			// "Переходы:
+			System.out.println(formatTransitionCounts1(events));
+			List<String> slowest = new ArrayList<>();
+			events.forEachOrdinal(events.slowest(LONG_TRANSITION_MILLIS, SLOWEST_LIMIT), (chunk, row) -> slowest.add(describe(events, chunk, row)));
+			System.out.printf("Более 15 секунд: %d%n\t%s%n", events.countDurationAbove(LONG_TRANSITION_MILLIS), StringUtils.join(slowest, SEPARATOR));
+			System.out.println(formatDurations("Длительность по переходам:", durationsBy(events, TRANSITION_NAME)));
+			System.out.println(formatDurations("Длительность по типам документов:", durationsBy(events, DOC_TYPE)));
+
+			writeToCsv(events, options.logDir().resolve(DETAIL_LOG_CSV).toString());
+			writeToExcel(events, options.logDir().resolve(DETAIL_LOG_XLSX).toString());
+			return null;
+		}
+	}
+
+	private static String formatTransitionCounts(@NotNull EventStore events) {
+		long[] counts = events.countBy(TRANSITION_NAME);
+		return IntStream.range(0, counts.length)
+				.filter(id -> counts[id] > 0)
+				.mapToObj(id -> new TransitionCount(events.name(id), (int) counts[id]))
+				.sorted() // использует Comparable<TransitionCount>
+				.map(TransitionCount::toString)
+				.collect(Collectors.joining("\n\t", "Переходы:\n\t", ""));
+	}
+
+	/// Альтернативно, чтобы максимально избежать создания объектов TransitionCount, можно описать компаратор вручную:
+	private static String formatTransitionCounts1(@NotNull EventStore events) {
+		// Счетчики по номерам словаря, имена подставляются только для вывода
+		long[] counts = events.countBy(TRANSITION_NAME);
+		Map<String, Long> byName = new HashMap<>();
+		for (int id = 0; id < counts.length; id++) {
+			if (counts[id] > 0) {
+				byName.put(events.name(id), counts[id]);
+			}
+		}
+		return byName.entrySet()
+				.stream()
+				.sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+						.thenComparing(Map.Entry.comparingByKey()))
+				.map(e -> e.getKey() + ": " + e.getValue())
+				.collect(Collectors.joining("\n\t", "Переходы:\n\t", ""));
+	}
+
+	private static @NotNull String formatDurations(@NotNull String title, @NotNull Map<String, LatencyHistogram> durations) {
+		return sortedByCount(durations).stream()
+				.map(e -> String.format("%-30s %8d  %s", e.getKey() + ":", e.getValue().count(), e.getValue().summary()))
+				.collect(Collectors.joining(SEPARATOR, title + SEPARATOR, ""));
+	}
+
+	private static @NotNull Map<String, LatencyHistogram> durationsBy(@NotNull EventStore events, int column) {
+		LatencyHistogram[] histograms = events.durationsBy(column);
+		Map<String, LatencyHistogram> byName = new HashMap<>();
+		for (int id = 0; id < histograms.length; id++) {
+			if (histograms[id] != null) {
+				byName.put(events.name(id), histograms[id]);
+			}
+		}
+		return byName;
+	}
+
+	private static void writeToCsv(@NotNull EventStore events, String fileName) {
+		logDebug("Запись в файл: " + fileName);
+		try (CSVWriter writer = new CSVWriter(new BufferedWriter(new FileWriter(fileName), 1 << 16))) {
+			writer.writeNext(HEADERS);
+			// Один массив на все строки, значения берутся из колонок по мере записи
+			String[] values = new String[HEADERS.length];
+			for (EventStore.Chunk chunk : events.chunks()) {
+				for (int row = 0; row < chunk.rows(); row++) {
+					for (int column = 0; column < values.length; column++) {
+						values[column] = cell(events, chunk, row, column);
+					}
+					writer.writeNext(values);
+				}
+			}
+			logDebug("Данные успешно записаны в файл: " + DETAIL_LOG_CSV);
+		} catch (IOException e) {
+			logError("Ошибка при записи в файл: " + e.getMessage());
+		}
+	}
+
+	/// Потоковая выгрузка: в памяти только окно из EXCEL_WINDOW_ROWS строк, после предела строк XLSX начинается новый лист
+	private static void writeToExcel(@NotNull EventStore events, String fileName) {
+		logDebug("Запись в файл: " + fileName);
+		SXSSFWorkbook workbook = new SXSSFWorkbook(EXCEL_WINDOW_ROWS);
+		try (workbook) {
+			workbook.setCompressTempFiles(true);
+
+			// Стиль для заголовков
+			CellStyle headerStyle = workbook.createCellStyle();
+			Font headerFont = workbook.createFont();
+			headerFont.setBold(true);
+			headerStyle.setFont(headerFont);
+			int[] widths = columnWidths(events);
+
+			// Данные
+			Sheet sheet = createSheet(workbook, headerStyle, widths);
+			int rowNum = 1;
+			for (EventStore.Chunk chunk : events.chunks()) {
+				for (int event = 0; event < chunk.rows(); event++) {
+					if (rowNum > SpreadsheetVersion.EXCEL2007.getLastRowIndex()) {
+						sheet = createSheet(workbook, headerStyle, widths);
+						rowNum = 1;
+					}
+					Row row = sheet.createRow(rowNum++);
+					for (int column = 0; column < HEADERS.length; column++) {
+						if (column == TIME_COLUMN) {
+							row.createCell(column).setCellValue(chunk.duration(event));
+						} else {
+							row.createCell(column).setCellValue(cell(events, chunk, event, column));
+						}
+					}
+				}
+			}
+
+			// Сохранение
+			try (FileOutputStream fos = new FileOutputStream(fileName)) {
+				workbook.write(fos);
+			}
+			logDebug("Данные успешно записаны в файл: " + fileName);
+		} catch (IOException e) {
+			logError("Ошибка при записи в файл: " + e.getMessage());
+		}
+	}
+
+	private static @NotNull Sheet createSheet(@NotNull Workbook workbook, CellStyle headerStyle, int[] widths) {
+		int number = workbook.getNumberOfSheets() + 1;
+		Sheet sheet = workbook.createSheet(number == 1 ? SHEET_NAME : SHEET_NAME + " (" + number + ")");
+		Row headerRow = sheet.createRow(0);
+		for (int i = 0; i < HEADERS.length; i++) {
+			Cell cell = headerRow.createCell(i);
+			cell.setCellValue(HEADERS[i]);
+			cell.setCellStyle(headerStyle);
+			sheet.setColumnWidth(i, widths[i]);
+		}
+		return sheet;
+	}
+
+	/// Ширина колонок в 1/256 символа по заголовкам и первым WIDTH_SAMPLE_ROWS строкам, вместо autoSizeColumn по всем строкам
+	private static int @NotNull [] columnWidths(@NotNull EventStore events) {
+		int[] chars = new int[HEADERS.length];
+		for (int column = 0; column < HEADERS.length; column++) {
+			chars[column] = HEADERS[column].length();
+		}
+		int sampled = 0;
+		for (EventStore.Chunk chunk : events.chunks()) {
+			for (int row = 0; row < chunk.rows() && sampled < WIDTH_SAMPLE_ROWS; row++, sampled++) {
+				for (int column = 0; column < HEADERS.length; column++) {
+					chars[column] = Math.max(chars[column], StringUtils.length(cell(events, chunk, row, column)));
+				}
+			}
+			if (sampled == WIDTH_SAMPLE_ROWS) {
+				break;
+			}
+		}
+		int[] widths = new int[HEADERS.length];
+		for (int column = 0; column < HEADERS.length; column++) {
+			widths[column] = Math.min(chars[column] + 2, 255) * 256;
+		}
+		return widths;
+	}
+
+	/// Значение колонки выгрузки, порядок колонок как в HEADERS
+	private static String cell(@NotNull EventStore events, @NotNull EventStore.Chunk chunk, int row, int column) {
+		return switch (column) {
+			case 0 -> events.name(chunk.symbol(DOC_TYPE, row));
+			case 1 -> events.name(chunk.symbol(TRANSITION_NAME, row));
+			case TIME_COLUMN -> String.valueOf(chunk.duration(row));
+			case 3 -> events.guid(chunk, row).toString();
+			default -> events.name(chunk.symbol(THREAD_NAME, row));
+		};
+	}
+
+	private static @NotNull String describe(@NotNull EventStore events, @NotNull EventStore.Chunk chunk, int row) {
+		return String.format("%-25s %-30s %10s %-38s %s",
+				events.name(chunk.symbol(DOC_TYPE, row)) + ":",
+				events.name(chunk.symbol(TRANSITION_NAME, row)),
+				chunk.duration(row) + "ms",
+				"[" + events.guid(chunk, row) + "]",
+				"[" + events.name(chunk.symbol(THREAD_NAME, row)) + "]"
+		);
+	}
+
+	/// Переходы по колонкам: время заголовка, GUID, длительность и строки потока, типа документа и перехода номерами словаря
+	private static class AnalysisData implements Serializable {
+		@Serial
+		private static final long serialVersionUID = 1L;
+
+		EventStore events = new EventStore(3);
+
+		void merge(@NotNull AnalysisData other) {
+			events.addAll(other.events);
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package ru.sam47kon.log_analyzer;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static ru.sam47kon.log_analyzer.LogAnalyzer.logDebug;
+import static ru.sam47kon.log_analyzer.LogAnalyzer.logError;
+
+/// Кэш разобранных событий (--event-cache) в .&lt;имя&gt;.&lt;хэш URI&gt;.events рядом с логами, действителен при тех же размере и времени изменения файла
+final class EventCache {
+	private static final int MAGIC = 0x4C414543;
+	private static final int VERSION = 4;
+	private static final byte EVENTS = 0;
+	private static final byte SERIALIZED = 1;
+	private static final int HEADER_BUFFER = 512;
+
+	// null — кэш отключен
+	private final @Nullable Path dir;
+	// Фильтры строк запуска: кэш с другими фильтрами считается устаревшим
+	private final String filterKey;
+
+	private EventCache(@Nullable Path dir, @NotNull String filterKey) {
+		this.dir = dir;
+		this.filterKey = filterKey;
+	}
+
+	static @NotNull EventCache open(@NotNull Options options) {
+		return new EventCache(options.eventCache() ? options.logDir() : null, options.filterKey());
+	}
+
+	/// Частичные результаты анализаторов файла из кэша или null, если кэша нет или он устарел
+	@Nullable List<Serializable> read(@NotNull Path file, @NotNull List<LogPlugin<?>> plugins) {
+		if (dir == null) {
+			return null;
+		}
+		Path cacheFile = cacheFile(file);
+		try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+			// Заголовок проверяется до отображения: устаревший кэш перезаписывается, а отображенный файл Windows не заменит
+			DataInputStream header = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), HEADER_BUFFER));
+			byte[] key = key(plugins).getBytes(StandardCharsets.UTF_8);
+			if (header.readInt() != MAGIC || header.readInt() != VERSION || header.readLong() != Files.size(file)
+					|| header.readLong() != Files.getLastModifiedTime(file).toMillis() || !Arrays.equals(key, header.readNBytes(header.readInt()))) {
+				logDebug(String.format("Кэш событий файла [%s] устарел, файл читается заново", file.getFileName()));
+				return null;
+			}
+			long start = 2 * Integer.BYTES + 2 * Long.BYTES + Integer.BYTES + key.length;
+			// Отображение остается действительным и после закрытия канала
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, channel.size() - start);
+			List<Serializable> partials = new ArrayList<>();
+			for (LogPlugin<?> plugin : plugins) {
+				partials.add(buffer.get() == EVENTS ? fromEvents(plugin, EventStore.map(buffer)) : deserialize(buffer));
+			}
+			logDebug(String.format("Файл [%s] взят из кэша событий", file.getFileName()));
+			return partials;
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (Exception e) {
+			logError(String.format("Кэш событий файла [%s] не прочитан: %s", file.getFileName(), ExceptionUtils.getRootCauseMessage(e)));
+			return null;
+		}
+	}
+
+	/// Записывает частичные результаты файла, partials в порядке plugins
+	void write(@NotNull Path file, @NotNull List<LogPlugin<?>> plugins, @NotNull List<Serializable> partials) {
+		if (dir == null) {
+			return;
+		}
+		Path cacheFile = cacheFile(file);
+		Path tmp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+				 OutputStream stream = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+				 DataOutputStream out = new DataOutputStream(stream)) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeLong(Files.size(file));
+				out.writeLong(Files.getLastModifiedTime(file).toMillis());
+				writeString(out, key(plugins));
+				for (int i = 0; i < plugins.size(); i++) {
+					EventStore events = events(plugins.get(i), partials.get(i));
+					if (events != null) {
+						out.writeByte(EVENTS);
+						out.flush();
+						events.write(channel);
+					} else {
+						byte[] bytes = LogCheckpoints.serialize(partials.get(i));
+						out.writeByte(SERIALIZED);
+						out.writeInt(bytes.length);
+						out.write(bytes);
+					}
+				}
+			}
+			Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			logError(String.format("Кэш событий файла [%s] не записан: %s", file.getFileName(), ExceptionUtils.getRootCauseMessage(e)));
+		}
+	}
+
+	/// Файл кэша в папке логов: URI различает одноименные файлы разных папок и архивов
+	private @NotNull Path cacheFile(@NotNull Path file) {
+		return dir.resolve("." + file.getFileName() + "." + Integer.toHexString(file.toUri().toString().hashCode()) + ".events");
+	}
+
+	private @NotNull String key(@NotNull List<LogPlugin<?>> plugins) {
+		return plugins.stream().map(LogPlugin::prefix).collect(Collectors.joining("+")) + filterKey;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static @Nullable EventStore events(@NotNull LogPlugin<?> plugin, @NotNull Serializable partial) {
+		return plugin instanceof EventCodec<?> codec ? ((EventCodec<Serializable>) codec).events(partial) : null;
+	}
+
+	private static @NotNull Serializable fromEvents(@NotNull LogPlugin<?> plugin, @NotNull EventStore events) {
+		if (!(plugin instanceof EventCodec<?> codec)) {
+			throw new IllegalStateException("Анализатор " + plugin.prefix() + " не хранит события");
+		}
+		return codec.fromEvents(events);
+	}
+
+	private static @NotNull Serializable deserialize(@NotNull ByteBuffer buffer) throws IOException, ClassNotFoundException {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			in.setObjectInputFilter(LogCheckpoints.CLASS_FILTER);
+			return (Serializable) in.readObject();
+		}
+	}
+
+	private static void writeString(@NotNull DataOutputStream out, @NotNull String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+}
@@ -0,0 +1,14 @@
+package ru.sam47kon.log_analyzer;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Serializable;
+
+/// Анализатор, чей частичный результат {@link EventCache} хранит колонками {@link EventStore}
+interface EventCodec<T extends Serializable> {
+
+	@NotNull EventStore events(@NotNull T partial);
+
+	/// Частичный результат из событий кэша, обратное к {@link #events}
+	@NotNull T fromEvents(@NotNull EventStore events);
+}
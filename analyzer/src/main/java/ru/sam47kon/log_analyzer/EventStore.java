@@ -0,0 +1,543 @@
+package ru.sam47kon.log_analyzer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static ru.sam47kon.log_analyzer.LogAnalyzer.logDebug;
+
+/// События по колонкам в примитивных массивах блоками до CHUNK_ROWS строк, строки — номерами в {@link Symbols}
+final class EventStore implements Serializable {
+	@Serial
+	private static final long serialVersionUID = 1L;
+
+	static final int CHUNK_ROWS = 1 << 13;
+	private static final int FIRST_CHUNK_ROWS = 1 << 8;
+	// GUID не в каноническом виде: его строка в словаре, номер в guidLow
+	private static final byte GUID_TEXT = (byte) 0x80;
+
+	private final int symbolColumns;
+	private final Symbols symbols = new Symbols();
+	private transient List<Chunk> chunks = new ArrayList<>();
+	private transient long size;
+
+	/// @param symbolColumns количество строковых колонок
+	EventStore(int symbolColumns) {
+		this.symbolColumns = symbolColumns;
+	}
+
+	/// @param values значения строковых колонок по порядку
+	void add(long time, @NotNull Guid guid, int duration, @Nullable String @NotNull ... values) {
+		Chunk chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+		if (chunk == null || chunk.sealed || chunk.mapped != null || chunk.rows == CHUNK_ROWS) {
+			if (chunk != null) {
+				seal(chunk);
+			}
+			chunk = new Chunk(symbolColumns, FIRST_CHUNK_ROWS);
+			chunks.add(chunk);
+		}
+		int row = chunk.append();
+		chunk.time[row] = time;
+		if (guid.text() == null) {
+			chunk.guidHigh[row] = guid.high();
+			chunk.guidLow[row] = guid.low();
+		} else {
+			chunk.guidLow[row] = symbols.id(guid.text());
+			chunk.flags[row] = GUID_TEXT;
+		}
+		for (int column = 0; column < symbolColumns; column++) {
+			chunk.symbols[column][row] = symbols.id(values[column]);
+		}
+		chunk.duration[row] = duration;
+		size++;
+	}
+
+	/// Переносит события other в конец, other становится пустым. Номера словаря other переводятся в номера этого
+	void addAll(@NotNull EventStore other) {
+		int[] table = symbols.merge(other.symbols);
+		boolean identity = Symbols.isIdentity(table);
+		if (!chunks.isEmpty()) {
+			seal(chunks.get(chunks.size() - 1));
+		}
+		for (Chunk chunk : other.chunks) {
+			if (!identity) {
+				// Отображенный блок после перевода оказывается в памяти и учитывается в бюджете заново
+				chunk.remap(table);
+				if (chunk != other.chunks.get(other.chunks.size() - 1)) {
+					seal(chunk);
+				}
+			}
+			chunks.add(chunk);
+		}
+		size += other.size;
+		other.chunks = new ArrayList<>();
+		other.size = 0;
+	}
+
+	long size() {
+		return size;
+	}
+
+	/// Возвращает в {@link MemoryBudget} место блоков в памяти, события больше не нужны
+	void release() {
+		for (Chunk chunk : chunks) {
+			if (chunk.sealed && chunk.mapped == null) {
+				MemoryBudget.release(chunk.bytes());
+			}
+		}
+		chunks = new ArrayList<>();
+		size = 0;
+	}
+
+	@Nullable String name(int id) {
+		return symbols.name(id);
+	}
+
+	/// Количество номеров словаря: размер массивов, индексируемых номером
+	int symbolCount() {
+		return symbols.size();
+	}
+
+	@NotNull Guid guid(@NotNull Chunk chunk, int row) {
+		return (chunk.flags[row] & GUID_TEXT) != 0
+				? new Guid(0, 0, String.valueOf(symbols.name((int) chunk.guidLow[row])))
+				: new Guid(chunk.guidHigh[row], chunk.guidLow[row], null);
+	}
+
+	/// Блоки по порядку, выгруженные читаются с диска по одному
+	@NotNull Iterable<Chunk> chunks() {
+		return () -> new Iterator<>() {
+			private int next;
+
+			@Override
+			public boolean hasNext() {
+				return next < chunks.size();
+			}
+
+			@Override
+			public Chunk next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return chunks.get(next++).loaded(symbolColumns);
+			}
+		};
+	}
+
+	/// Наименьшее время или Long.MAX_VALUE без событий
+	long minTime() {
+		long min = Long.MAX_VALUE;
+		for (Chunk chunk : chunks()) {
+			long[] time = chunk.time;
+			for (int i = 0; i < chunk.rows; i++) {
+				min = Math.min(min, time[i]);
+			}
+		}
+		return min;
+	}
+
+	/// Наибольшее время или Long.MIN_VALUE без событий
+	long maxTime() {
+		long max = Long.MIN_VALUE;
+		for (Chunk chunk : chunks()) {
+			long[] time = chunk.time;
+			for (int i = 0; i < chunk.rows; i++) {
+				max = Math.max(max, time[i]);
+			}
+		}
+		return max;
+	}
+
+	/// Количество событий по номерам строковой колонки
+	long @NotNull [] countBy(int column) {
+		long[] counts = new long[symbols.size()];
+		for (Chunk chunk : chunks()) {
+			int[] ids = chunk.symbols[column];
+			for (int i = 0; i < chunk.rows; i++) {
+				counts[ids[i]]++;
+			}
+		}
+		return counts;
+	}
+
+	/// Гистограммы длительностей по номерам строковой колонки, null у номеров без событий
+	@Nullable LatencyHistogram @NotNull [] durationsBy(int column) {
+		LatencyHistogram[] histograms = new LatencyHistogram[symbols.size()];
+		for (Chunk chunk : chunks()) {
+			int[] ids = chunk.symbols[column];
+			int[] duration = chunk.duration;
+			for (int i = 0; i < chunk.rows; i++) {
+				LatencyHistogram histogram = histograms[ids[i]];
+				if (histogram == null) {
+					histogram = histograms[ids[i]] = new LatencyHistogram();
+				}
+				histogram.record(duration[i]);
+			}
+		}
+		return histograms;
+	}
+
+	long countDurationAbove(int threshold) {
+		long count = 0;
+		for (Chunk chunk : chunks()) {
+			int[] duration = chunk.duration;
+			for (int i = 0; i < chunk.rows; i++) {
+				count += duration[i] > threshold ? 1 : 0;
+			}
+		}
+		return count;
+	}
+
+	/// Порядковые номера не более limit событий длительнее threshold, от самых долгих, при равных — в порядке добавления
+	long @NotNull [] slowest(int threshold, int limit) {
+		// В куче не больше limit событий, остальные отбрасываются без сортировки всех
+		TopK<Long> top = new TopK<>(limit);
+		long ordinal = 0;
+		for (Chunk chunk : chunks()) {
+			int[] duration = chunk.duration;
+			for (int i = 0; i < chunk.rows; i++, ordinal++) {
+				if (duration[i] > threshold) {
+					top.add(duration[i], ordinal);
+				}
+			}
+		}
+		return top.sorted().stream().mapToLong(Long::longValue).toArray();
+	}
+
+	/// События с заданными порядковыми номерами в заданном порядке
+	void forEachOrdinal(long @NotNull [] ordinals, @NotNull RowConsumer consumer) {
+		long[] starts = new long[chunks.size() + 1];
+		for (int i = 0; i < chunks.size(); i++) {
+			starts[i + 1] = starts[i] + chunks.get(i).rows;
+		}
+		for (long ordinal : ordinals) {
+			int index = Arrays.binarySearch(starts, ordinal);
+			// Пустых блоков нет, поэтому совпадение с началом блока однозначно
+			int chunk = index >= 0 ? index : -index - 2;
+			int row = (int) (ordinal - starts[chunk]);
+			// У выгруженного блока читается только нужная строка, а не весь блок на каждое событие
+			Chunk loaded = chunks.get(chunk);
+			if (loaded.mapped != null) {
+				consumer.accept(loaded.loadedRow(symbolColumns, row), 0);
+			} else {
+				consumer.accept(loaded, row);
+			}
+		}
+	}
+
+	/// Заполненный блок остается в памяти, если помещается в бюджет, иначе выгружается
+	private void seal(@NotNull Chunk chunk) {
+		if (chunk.sealed || chunk.mapped != null) {
+			return;
+		}
+		chunk.trim();
+		chunk.sealed = true;
+		if (MemoryBudget.tryReserve(chunk.bytes())) {
+			return;
+		}
+		try {
+			Path spill = Files.createTempFile("log-analyzer-", ".chunk");
+			spill.toFile().deleteOnExit();
+			try (FileChannel channel = FileChannel.open(spill, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				chunk.write(channel);
+				// Первым записано количество строк, оно остается в блоке
+				chunk.map(channel.map(FileChannel.MapMode.READ_ONLY, Integer.BYTES, channel.size() - Integer.BYTES));
+			}
+			logDebug("Бюджет памяти исчерпан, блок событий выгружен в " + spill);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/// Двоичный вид: количество строковых колонок, словарь, блоки. Числа в порядке big-endian, как у {@link DataOutput}
+	void write(@NotNull WritableByteChannel channel) throws IOException {
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(header)) {
+			out.writeInt(symbolColumns);
+			out.writeInt(symbols.size());
+			for (int id = 0; id < symbols.size(); id++) {
+				String name = symbols.name(id);
+				byte[] bytes = name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes == null ? -1 : bytes.length);
+				if (bytes != null) {
+					out.write(bytes);
+				}
+			}
+			out.writeInt(chunks.size());
+		}
+		writeFully(channel, ByteBuffer.wrap(header.toByteArray()));
+		for (Chunk chunk : chunks()) {
+			chunk.write(channel);
+		}
+	}
+
+	/// События из двоичного вида {@link #write} без копирования колонок, позиция buffer сдвигается за них
+	static @NotNull EventStore map(@NotNull ByteBuffer buffer) {
+		EventStore store = new EventStore(buffer.getInt());
+		for (int i = buffer.getInt(); i > 0; i--) {
+			int length = buffer.getInt();
+			String name = null;
+			if (length >= 0) {
+				byte[] bytes = new byte[length];
+				buffer.get(bytes);
+				name = new String(bytes, StandardCharsets.UTF_8);
+			}
+			store.symbols.id(name);
+		}
+		for (int i = buffer.getInt(); i > 0; i--) {
+			int rows = buffer.getInt();
+			int bytes = Chunk.columnBytes(rows, store.symbolColumns);
+			Chunk chunk = new Chunk(store.symbolColumns, 0);
+			chunk.rows = rows;
+			chunk.map(buffer.slice(buffer.position(), bytes));
+			buffer.position(buffer.position() + bytes);
+			store.chunks.add(chunk);
+			store.size += rows;
+		}
+		return store;
+	}
+
+	private static void writeFully(@NotNull WritableByteChannel channel, @NotNull ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	@Serial
+	private void writeObject(@NotNull ObjectOutputStream stream) throws IOException {
+		stream.defaultWriteObject();
+		stream.writeInt(chunks.size());
+		for (Chunk chunk : chunks()) {
+			chunk.write(stream);
+		}
+	}
+
+	@Serial
+	private void readObject(@NotNull ObjectInputStream stream) throws IOException, ClassNotFoundException {
+		stream.defaultReadObject();
+		chunks = new ArrayList<>();
+		for (int i = stream.readInt(); i > 0; i--) {
+			if (!chunks.isEmpty()) {
+				seal(chunks.get(chunks.size() - 1));
+			}
+			Chunk chunk = Chunk.read(stream, symbolColumns);
+			chunks.add(chunk);
+			size += chunk.rows;
+		}
+	}
+
+	@FunctionalInterface
+	interface RowConsumer {
+		void accept(@NotNull Chunk chunk, int row);
+	}
+
+	/// Блок событий: колонки одной длины, заполнены первые rows строк
+	static final class Chunk {
+		private long[] time;
+		private long[] guidHigh;
+		private long[] guidLow;
+		private int[][] symbols;
+		private int[] duration;
+		private byte[] flags;
+		private int rows;
+		// Блок больше не дописывается: учтен в бюджете или выгружен
+		private boolean sealed;
+		// Колонки в двоичном виде в отображенном файле (выгрузки или кэша), массивов при этом нет
+		private @Nullable ByteBuffer mapped;
+
+		private Chunk(int symbolColumns, int capacity) {
+			time = new long[capacity];
+			guidHigh = new long[capacity];
+			guidLow = new long[capacity];
+			symbols = new int[symbolColumns][capacity];
+			duration = new int[capacity];
+			flags = new byte[capacity];
+		}
+
+		int rows() {
+			return rows;
+		}
+
+		long time(int row) {
+			return time[row];
+		}
+
+		int symbol(int column, int row) {
+			return symbols[column][row];
+		}
+
+		int duration(int row) {
+			return duration[row];
+		}
+
+		private int append() {
+			if (rows == time.length) {
+				resize(Math.min(2 * rows, CHUNK_ROWS));
+			}
+			return rows++;
+		}
+
+		private void trim() {
+			if (rows < time.length) {
+				resize(rows);
+			}
+		}
+
+		private void resize(int capacity) {
+			time = Arrays.copyOf(time, capacity);
+			guidHigh = Arrays.copyOf(guidHigh, capacity);
+			guidLow = Arrays.copyOf(guidLow, capacity);
+			for (int column = 0; column < symbols.length; column++) {
+				symbols[column] = Arrays.copyOf(symbols[column], capacity);
+			}
+			duration = Arrays.copyOf(duration, capacity);
+			flags = Arrays.copyOf(flags, capacity);
+		}
+
+		private long bytes() {
+			return columnBytes(time.length, symbols.length);
+		}
+
+		private static int columnBytes(int rows, int symbolColumns) {
+			return rows * (3 * Long.BYTES + (symbolColumns + 1) * Integer.BYTES + 1);
+		}
+
+		/// Переводит номера словаря таблицей {@link Symbols#merge}, отображенный блок при этом читается в память
+		private void remap(int @NotNull [] table) {
+			if (mapped != null) {
+				Chunk chunk = loaded(symbols.length);
+				time = chunk.time;
+				guidHigh = chunk.guidHigh;
+				guidLow = chunk.guidLow;
+				symbols = chunk.symbols;
+				duration = chunk.duration;
+				flags = chunk.flags;
+				mapped = null;
+				sealed = false;
+			}
+			for (int[] column : symbols) {
+				for (int i = 0; i < rows; i++) {
+					column[i] = table[column[i]];
+				}
+			}
+			for (int i = 0; i < rows; i++) {
+				if ((flags[i] & GUID_TEXT) != 0) {
+					guidLow[i] = table[(int) guidLow[i]];
+				}
+			}
+		}
+
+		private void map(@NotNull ByteBuffer columns) {
+			mapped = columns;
+			symbols = new int[symbols.length][];
+			time = guidHigh = guidLow = null;
+			duration = null;
+			flags = null;
+		}
+
+		/// Блок с колонками в памяти: этот же или разобранный из отображенного файла
+		private @NotNull Chunk loaded(int symbolColumns) {
+			if (mapped == null) {
+				return this;
+			}
+			ByteBuffer columns = mapped.duplicate();
+			Chunk chunk = new Chunk(symbolColumns, rows);
+			chunk.rows = rows;
+			columns.asLongBuffer().get(chunk.time);
+			columns.position(columns.position() + rows * Long.BYTES);
+			columns.asLongBuffer().get(chunk.guidHigh);
+			columns.position(columns.position() + rows * Long.BYTES);
+			columns.asLongBuffer().get(chunk.guidLow);
+			columns.position(columns.position() + rows * Long.BYTES);
+			for (int[] column : chunk.symbols) {
+				columns.asIntBuffer().get(column);
+				columns.position(columns.position() + rows * Integer.BYTES);
+			}
+			columns.asIntBuffer().get(chunk.duration);
+			columns.position(columns.position() + rows * Integer.BYTES);
+			columns.get(chunk.flags);
+			return chunk;
+		}
+
+		/// Одна строка выгруженного блока
+		private @NotNull Chunk loadedRow(int symbolColumns, int row) {
+			ByteBuffer columns = mapped.duplicate();
+			int offset = columns.position();
+			Chunk chunk = new Chunk(symbolColumns, 1);
+			chunk.rows = 1;
+			chunk.time[0] = columns.getLong(offset + row * Long.BYTES);
+			offset += rows * Long.BYTES;
+			chunk.guidHigh[0] = columns.getLong(offset + row * Long.BYTES);
+			offset += rows * Long.BYTES;
+			chunk.guidLow[0] = columns.getLong(offset + row * Long.BYTES);
+			offset += rows * Long.BYTES;
+			for (int[] column : chunk.symbols) {
+				column[0] = columns.getInt(offset + row * Integer.BYTES);
+				offset += rows * Integer.BYTES;
+			}
+			chunk.duration[0] = columns.getInt(offset + row * Integer.BYTES);
+			offset += rows * Integer.BYTES;
+			chunk.flags[0] = columns.get(offset + row);
+			return chunk;
+		}
+
+		/// Количество строк и колонки в двоичном виде
+		private void write(@NotNull WritableByteChannel channel) throws IOException {
+			ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + columnBytes(rows, symbols.length));
+			buffer.putInt(rows);
+			buffer.asLongBuffer().put(time, 0, rows);
+			buffer.position(buffer.position() + rows * Long.BYTES);
+			buffer.asLongBuffer().put(guidHigh, 0, rows);
+			buffer.position(buffer.position() + rows * Long.BYTES);
+			buffer.asLongBuffer().put(guidLow, 0, rows);
+			buffer.position(buffer.position() + rows * Long.BYTES);
+			for (int[] column : symbols) {
+				buffer.asIntBuffer().put(column, 0, rows);
+				buffer.position(buffer.position() + rows * Integer.BYTES);
+			}
+			buffer.asIntBuffer().put(duration, 0, rows);
+			buffer.position(buffer.position() + rows * Integer.BYTES);
+			buffer.put(flags, 0, rows);
+			writeFully(channel, buffer.flip());
+		}
+
+		private void write(@NotNull ObjectOutput out) throws IOException {
+			out.writeInt(rows);
+			out.writeObject(Arrays.copyOf(time, rows));
+			out.writeObject(Arrays.copyOf(guidHigh, rows));
+			out.writeObject(Arrays.copyOf(guidLow, rows));
+			for (int[] column : symbols) {
+				out.writeObject(Arrays.copyOf(column, rows));
+			}
+			out.writeObject(Arrays.copyOf(duration, rows));
+			out.writeObject(Arrays.copyOf(flags, rows));
+		}
+
+		private static @NotNull Chunk read(@NotNull ObjectInput in, int symbolColumns) throws IOException, ClassNotFoundException {
+			Chunk chunk = new Chunk(symbolColumns, 0);
+			chunk.rows = in.readInt();
+			chunk.time = (long[]) in.readObject();
+			chunk.guidHigh = (long[]) in.readObject();
+			chunk.guidLow = (long[]) in.readObject();
+			for (int column = 0; column < symbolColumns; column++) {
+				chunk.symbols[column] = (int[]) in.readObject();
+			}
+			chunk.duration = (int[]) in.readObject();
+			chunk.flags = (byte[]) in.readObject();
+			return chunk;
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package ru.sam47kon.log_analyzer;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Serializable;
+
+/// GUID документа двумя long, строка не в каноническом виде хранится как есть в text
+record Guid(long high, long low, @Nullable String text) implements Serializable {
+	private static final int LENGTH = 36;
+
+	static @NotNull Guid parse(@Nullable String guid) {
+		if (guid == null || guid.length() != LENGTH) {
+			return new Guid(0, 0, String.valueOf(guid));
+		}
+		long high = 0;
+		long low = 0;
+		for (int i = 0; i < LENGTH; i++) {
+			char c = guid.charAt(i);
+			if (i == 8 || i == 13 || i == 18 || i == 23) {
+				if (c != '-') {
+					return new Guid(0, 0, guid);
+				}
+				continue;
+			}
+			int digit = c >= '0' && c <= '9' ? c - '0' : c >= 'a' && c <= 'f' ? c - 'a' + 10 : -1;
+			if (digit < 0) {
+				return new Guid(0, 0, guid);
+			}
+			if (i < 19) {
+				high = high << 4 | digit;
+			} else {
+				low = low << 4 | digit;
+			}
+		}
+		return new Guid(high, low, null);
+	}
+
+	@Contract(pure = true)
+	@Override
+	public @NotNull String toString() {
+		if (text != null) {
+			return text;
+		}
+		String hex = hex(high) + hex(low);
+		return hex.substring(0, 8) + '-' + hex.substring(8, 12) + '-' + hex.substring(12, 16) + '-' + hex.substring(16, 20) + '-' + hex.substring(20);
+	}
+
+	private static @NotNull String hex(long value) {
+		String hex = Long.toHexString(value);
+		return "0".repeat(16 - hex.length()) + hex;
+	}
+}
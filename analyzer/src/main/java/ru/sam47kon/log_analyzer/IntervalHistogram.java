@@ -0,0 +1,108 @@
+package ru.sam47kon.log_analyzer;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/// Количество событий по интервалам времени, выровненным по эпохе: крупные интервалы складываются из соседних при выводе
+final class IntervalHistogram implements Serializable {
+	@Serial
+	private static final long serialVersionUID = 1L;
+
+	// Защита от строки с далекой датой: 1 << 24 минут — около 32 лет
+	private static final int MAX_BUCKETS = 1 << 24;
+
+	private final long intervalMillis;
+	// Начало интервала counts[0]
+	private long origin;
+	private long[] counts = new long[0];
+	private long total;
+
+	IntervalHistogram(long intervalMillis) {
+		if (intervalMillis <= 0) {
+			throw new IllegalArgumentException("Интервал должен быть положительным: " + intervalMillis);
+		}
+		this.intervalMillis = intervalMillis;
+	}
+
+	void add(long timeLog) {
+		add(timeLog, 1);
+	}
+
+	void merge(@NotNull IntervalHistogram other) {
+		if (other.intervalMillis != intervalMillis) {
+			throw new IllegalArgumentException("Разные интервалы гистограмм: " + intervalMillis + " и " + other.intervalMillis);
+		}
+		for (int i = 0; i < other.counts.length; i++) {
+			if (other.counts[i] != 0) {
+				add(other.origin + i * intervalMillis, other.counts[i]);
+			}
+		}
+	}
+
+	long total() {
+		return total;
+	}
+
+	/// Непустые интервалы длиной intervalMillis (кратной базовому) по возрастанию времени
+	void forEach(long intervalMillis, @NotNull BucketConsumer consumer) throws IOException {
+		if (intervalMillis % this.intervalMillis != 0) {
+			throw new IllegalArgumentException("Интервал " + intervalMillis + " не кратен базовому " + this.intervalMillis);
+		}
+		long start = Long.MIN_VALUE;
+		long count = 0;
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] == 0) {
+				continue;
+			}
+			long bucketStart = Math.floorDiv(origin + i * this.intervalMillis, intervalMillis) * intervalMillis;
+			if (bucketStart != start && count != 0) {
+				consumer.accept(start, start + intervalMillis, count);
+				count = 0;
+			}
+			start = bucketStart;
+			count += counts[i];
+		}
+		if (count != 0) {
+			consumer.accept(start, start + intervalMillis, count);
+		}
+	}
+
+	private void add(long timeLog, long count) {
+		long start = Math.floorDiv(timeLog, intervalMillis) * intervalMillis;
+		if (counts.length == 0) {
+			origin = start;
+			counts = new long[16];
+		} else if (start < origin) {
+			// Расширяем массив в начало с запасом
+			long shift = (origin - start) / intervalMillis;
+			int length = bucketCount(counts.length + Math.max(shift, Math.min(counts.length, MAX_BUCKETS - counts.length)));
+			int offset = length - counts.length;
+			long[] grown = new long[length];
+			System.arraycopy(counts, 0, grown, offset, counts.length);
+			counts = grown;
+			origin -= offset * intervalMillis;
+		}
+		long index = (start - origin) / intervalMillis;
+		if (index >= counts.length) {
+			counts = Arrays.copyOf(counts, bucketCount(Math.max(index + 1, Math.min(2L * counts.length, MAX_BUCKETS))));
+		}
+		counts[(int) index] += count;
+		total += count;
+	}
+
+	private int bucketCount(long buckets) {
+		if (buckets > MAX_BUCKETS) {
+			throw new IllegalArgumentException(String.format("Слишком большой разброс времени: более %d интервалов по %d ms", MAX_BUCKETS, intervalMillis));
+		}
+		return (int) buckets;
+	}
+
+	@FunctionalInterface
+	interface BucketConsumer {
+		void accept(long start, long end, long count) throws IOException;
+	}
+}
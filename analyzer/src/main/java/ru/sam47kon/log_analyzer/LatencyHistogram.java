@@ -0,0 +1,96 @@
+package ru.sam47kon.log_analyzer;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/// Гистограмма длительностей с логарифмическими интервалами, как у HdrHistogram, погрешность перцентилей не более 1/64
+final class LatencyHistogram implements Serializable {
+	@Serial
+	private static final long serialVersionUID = 1L;
+
+	private static final int PRECISION_BITS = 7;
+	private static final int SUB_BUCKETS = 1 << PRECISION_BITS;
+	private static final int HALF = SUB_BUCKETS >> 1;
+
+	private long[] counts = new long[0];
+	private long count;
+	private long max;
+
+	void record(long value) {
+		record(Math.max(value, 0), 1);
+	}
+
+	void merge(@NotNull LatencyHistogram other) {
+		if (counts.length < other.counts.length) {
+			counts = Arrays.copyOf(counts, other.counts.length);
+		}
+		for (int i = 0; i < other.counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+		count += other.count;
+		max = Math.max(max, other.max);
+	}
+
+	long count() {
+		return count;
+	}
+
+	long max() {
+		return max;
+	}
+
+	/// Значение, не больше которого percentile процентов длительностей (верхняя граница интервала, не больше максимума)
+	long percentile(double percentile) {
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(highestValue(i), max);
+			}
+		}
+		return max;
+	}
+
+	/// "p50 .. ms, p90 .. ms, p99 .. ms, p99.9 .. ms, max .. ms"
+	@NotNull String summary() {
+		return summary(" ms");
+	}
+
+	/// Перцентили с единицей измерения unit после каждого значения, "" — для количеств
+	@NotNull String summary(@NotNull String unit) {
+		return String.format("p50 %d%6$s, p90 %d%6$s, p99 %d%6$s, p99.9 %d%6$s, max %d%6$s",
+				percentile(50), percentile(90), percentile(99), percentile(99.9), max, unit);
+	}
+
+	private void record(long value, long times) {
+		int index = index(value);
+		if (index >= counts.length) {
+			counts = Arrays.copyOf(counts, Math.max(index + 1, Math.min(2 * counts.length, index(Long.MAX_VALUE) + 1)));
+		}
+		counts[index] += times;
+		count += times;
+		max = Math.max(max, value);
+	}
+
+	private static int index(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		// Старшие PRECISION_BITS бит значения: мантисса в [HALF, SUB_BUCKETS) и сдвиг — номер степени двойки
+		int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - PRECISION_BITS;
+		return SUB_BUCKETS + (shift - 1) * HALF + (int) (value >>> shift) - HALF;
+	}
+
+	private static long highestValue(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = (index - SUB_BUCKETS) / HALF + 1;
+		long mantissa = (index - SUB_BUCKETS) % HALF + HALF;
+		return ((mantissa + 1) << shift) - 1;
+	}
+}
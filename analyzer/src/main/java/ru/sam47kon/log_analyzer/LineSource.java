@@ -0,0 +1,497 @@
+package ru.sam47kon.log_analyzer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.function.LongPredicate;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPInputStream;
+
+/// Построчное чтение файла лога окнами через отображение в память, сжатых — потоком, с классификацией по маркерам {@link MarkerMatcher}
+final class LineSource implements Closeable {
+	private static final int WINDOW_SIZE = 256 << 20;
+	private static final int STREAM_WINDOW_SIZE = 1 << 20;
+	private static final byte LF = '\n';
+	private static final byte CR = '\r';
+	private static final int SPLIT_BLOCK_SIZE = 8192;
+	private static final int SEEK_BLOCK_SIZE = 64 << 10;
+
+	// Ровно одно из двух: файл отображается в память или читается поток
+	private final @Nullable FileChannel channel;
+	private final @Nullable InputStream stream;
+	// Размер потока неизвестен, пока он не дочитан до конца
+	private long size;
+	private final int windowLength;
+	private final MarkerMatcher matcher;
+	private final long filter;
+	// Маркеры, которые все должны быть в строке вместе с filter (фильтр по документу)
+	private long required;
+	// Незавершенная последняя строка (файл еще дописывается) не читается
+	private final boolean completeLinesOnly;
+
+	private ByteBuffer window;
+	private long windowStart;
+	private int windowSize;
+	private byte[] lineBytes = new byte[1024];
+
+	// Смещение начала следующей непрочитанной строки
+	private long position;
+	private long lineNumber;
+	private long lastLineStart = -1;
+	private long lastLineEnd = -1;
+	// Границы текущей строки внутри окна и найденные в ней маркеры
+	private int lineStart;
+	private int lineEnd;
+	private long matches;
+	// Состояние автомата в сканируемой строке: окно может смениться посреди строки
+	private int state;
+	private int stateBeforeCr;
+	private long found;
+
+	private LineSource(@NotNull Path file, MarkerMatcher matcher, long filter, long from, long to, boolean completeLinesOnly) throws IOException {
+		if (isCompressed(file)) {
+			this.channel = null;
+			this.stream = openStream(file);
+			this.size = Long.MAX_VALUE;
+			this.windowLength = STREAM_WINDOW_SIZE;
+			stream.skipNBytes(from);
+			this.windowStart = from;
+		} else {
+			this.channel = FileChannel.open(file, StandardOpenOption.READ);
+			this.stream = null;
+			// Кусок файла читается как файл, заканчивающийся на to
+			this.size = Math.min(channel.size(), to);
+			this.windowLength = WINDOW_SIZE;
+		}
+		this.matcher = matcher;
+		this.filter = filter;
+		this.position = from;
+		this.completeLinesOnly = completeLinesOnly;
+	}
+
+	/// @param filter маска маркеров, хотя бы один из которых должен быть в строке для {@link #nextMatching()}
+	static @NotNull LineSource open(@NotNull Path file, @NotNull MarkerMatcher matcher, long filter) throws IOException {
+		return open(file, matcher, filter, 0);
+	}
+
+	static @NotNull LineSource open(@NotNull Path file, @NotNull MarkerMatcher matcher, long filter, long from) throws IOException {
+		return new LineSource(file, matcher, filter, from, Long.MAX_VALUE, false);
+	}
+
+	/// Кусок [from, to) несжатого файла, границы — начала строк из {@link #split}
+	static @NotNull LineSource open(@NotNull Path file, @NotNull MarkerMatcher matcher, long filter, long from, long to) throws IOException {
+		return new LineSource(file, matcher, filter, from, to, false);
+	}
+
+	/// Чтение дописываемого файла с позиции from, недописанная последняя строка остается для следующего чтения
+	static @NotNull LineSource openAppended(@NotNull Path file, @NotNull MarkerMatcher matcher, long filter, long from) throws IOException {
+		return new LineSource(file, matcher, filter, from, Long.MAX_VALUE, true);
+	}
+
+	/// Границы кусков несжатого файла примерно по chunkBytes байт на началах строк, запись DLC не разрезается
+	static long @NotNull [] split(@NotNull Path file, long from, long chunkBytes, @NotNull MarkerMatcher matcher,
+								  @NotNull LongPredicate keepsFollowingLine) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			LongStream.Builder bounds = LongStream.builder();
+			bounds.add(from);
+			long previous = from;
+			for (long nominal = from + chunkBytes; chunkBytes > 0 && nominal < size; nominal += chunkBytes) {
+				long bound = lineStart(channel, Math.max(nominal, previous + 1), size);
+				if (bound < size && keepsFollowingLine.test(lineMatches(channel, previousLineStart(channel, bound), bound, matcher))) {
+					bound = lineStart(channel, bound + 1, size);
+				}
+				if (bound < size) {
+					bounds.add(bound);
+					previous = bound;
+				}
+			}
+			bounds.add(size);
+			return bounds.build().toArray();
+		}
+	}
+
+	/// Файл читается потоком с распаковкой: .gz или запись zip-архива. Позиции считаются в распакованных байтах
+	static boolean isCompressed(@NotNull Path file) {
+		return file.getFileSystem() != FileSystems.getDefault() || file.getFileName().toString().endsWith(".gz");
+	}
+
+	/// Следующая строка, прошедшая фильтр по маркерам, или null в конце файла
+	@Nullable String nextMatching() throws IOException {
+		while (advance()) {
+			if ((matches & filter) != 0 && (matches & required) == required) {
+				return decode(lineStart, lineEnd);
+			}
+		}
+		return null;
+	}
+
+	/// Маска маркеров, которые {@link #nextMatching()} требует все сразу в дополнение к фильтру
+	void require(long mask) {
+		required = mask;
+	}
+
+	/// Маска маркеров, найденных в последней прочитанной строке
+	long matches() {
+		return matches;
+	}
+
+	/// Следующая строка без фильтрации по маркерам, или null в конце файла
+	@Nullable String nextLine() throws IOException {
+		return advance() ? decode(lineStart, lineEnd) : null;
+	}
+
+	boolean hasNextLine() throws IOException {
+		if (stream != null && position < size && position >= windowStart + windowSize) {
+			// Есть ли еще байты, у потока узнаем только чтением
+			refill(position, windowLength);
+		}
+		return position < size;
+	}
+
+	/// Смещение начала первой непрочитанной строки
+	long position() {
+		return position;
+	}
+
+	/// Возвращает последнюю прочитанную строку в непрочитанные
+	void unreadLastLine() {
+		if (lastLineStart >= 0 && position > lastLineStart) {
+			position = lastLineStart;
+			lineNumber--;
+		}
+	}
+
+	/// Открыт через {@link #openAppended}: за последней полной строкой файл еще может дописываться
+	boolean completeLinesOnly() {
+		return completeLinesOnly;
+	}
+
+	/// Количество прочитанных (в том числе пропущенных по маркерам) строк
+	long lineNumber() {
+		return lineNumber;
+	}
+
+	/// Первая строка файла. Поток не перечитать, поэтому у сжатого файла она доступна только до чтения остальных строк
+	@Nullable String firstLine() throws IOException {
+		if (stream != null) {
+			return firstStreamLine();
+		}
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		ByteBuffer chunk = ByteBuffer.allocate(8192);
+		long pos = 0;
+		while (pos < size) {
+			chunk.clear();
+			int read = channel.read(chunk, pos);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (chunk.get(i) == LF) {
+					line.write(chunk.array(), 0, i);
+					return stripCr(line.toByteArray());
+				}
+			}
+			line.write(chunk.array(), 0, read);
+			pos += read;
+		}
+		return size == 0 ? null : stripCr(line.toByteArray());
+	}
+
+	/// Последняя прочитанная строка (после чтения до конца — последняя строка файла)
+	@Nullable String lastLine() throws IOException {
+		if (lastLineStart < 0) {
+			return null;
+		}
+		if (stream != null) {
+			// Окно потока всегда сохраняет последнюю прочитанную строку
+			return decode((int) (lastLineStart - windowStart), (int) (lastLineEnd - windowStart));
+		}
+		ByteBuffer line = ByteBuffer.allocate((int) (lastLineEnd - lastLineStart));
+		while (line.hasRemaining() && channel.read(line, lastLineStart + line.position()) > 0) {
+			// дочитываем строку целиком
+		}
+		return new String(line.array(), 0, line.position(), StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (channel != null) {
+			channel.close();
+		} else if (stream != null) {
+			stream.close();
+		}
+	}
+
+	/// Переходит к следующей строке: выставляет lineStart/lineEnd внутри окна без учета перевода строки и маску маркеров
+	private boolean advance() throws IOException {
+		if (position >= size) {
+			return false;
+		}
+		state = 0;
+		stateBeforeCr = 0;
+		found = 0;
+		int start = ensureMapped(position);
+		if (start >= windowSize) {
+			// Поток закончился ровно на границе окна
+			return false;
+		}
+		int end = scanLine(start);
+		while (end < 0 && windowStart + windowSize < size) {
+			// Строка не поместилась в окно: переотображаем с начала строки, при необходимости увеличивая окно
+			int lineLength = windowSize - start;
+			remap(position, lineLength >= windowLength ? (int) Math.min(Integer.MAX_VALUE, 2L * lineLength) : windowLength);
+			start = (int) (position - windowStart);
+			end = scanLine(start + lineLength);
+		}
+		int next;
+		if (end < 0 && completeLinesOnly) {
+			return false;
+		} else if (end < 0) {
+			end = windowSize;
+			next = windowSize;
+		} else {
+			next = end + 1;
+		}
+		int stateAtEnd = state;
+		if (end > start && window.get(end - 1) == CR) {
+			end--;
+			stateAtEnd = stateBeforeCr;
+		}
+		lineStart = start;
+		lineEnd = end;
+		matches = matcher.lineMatches(found, matcher.matches(stateAtEnd));
+		lastLineStart = windowStart + start;
+		lastLineEnd = windowStart + end;
+		position = windowStart + next;
+		lineNumber++;
+		return true;
+	}
+
+	/// Проход автомата до перевода строки: возвращает его индекс в окне или -1, если строка продолжается за окном
+	private int scanLine(int from) {
+		int current = state;
+		int previous = stateBeforeCr;
+		long lineFound = found;
+		int end = -1;
+		for (int i = from; i < windowSize; i++) {
+			byte b = window.get(i);
+			if (b == LF) {
+				end = i;
+				break;
+			}
+			previous = current;
+			current = matcher.next(current, b);
+			lineFound |= matcher.matches(current);
+		}
+		state = current;
+		stateBeforeCr = previous;
+		found = lineFound;
+		return end;
+	}
+
+	private int ensureMapped(long pos) throws IOException {
+		if (window == null || pos < windowStart || pos >= windowStart + windowSize) {
+			remap(pos, windowLength);
+		}
+		return (int) (pos - windowStart);
+	}
+
+	private void remap(long pos, int length) throws IOException {
+		if (channel == null) {
+			refill(pos, length);
+			return;
+		}
+		windowStart = pos;
+		windowSize = (int) Math.min(length, size - pos);
+		window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+	}
+
+	/// Сдвигает окно потока к pos и дочитывает в него до length байт после pos
+	private void refill(long pos, int length) throws IOException {
+		long keepFrom = lastLineStart >= windowStart ? Math.min(pos, lastLineStart) : pos;
+		int keep = (int) (windowStart + windowSize - keepFrom);
+		int capacity = (int) Math.min(Integer.MAX_VALUE, pos - keepFrom + length);
+		byte[] bytes = window != null && window.capacity() >= capacity ? window.array() : new byte[capacity];
+		if (keep > 0) {
+			System.arraycopy(window.array(), (int) (keepFrom - windowStart), bytes, 0, keep);
+		}
+		int read = stream.readNBytes(bytes, keep, bytes.length - keep);
+		windowStart = keepFrom;
+		windowSize = keep + read;
+		window = ByteBuffer.wrap(bytes);
+		if (windowSize < bytes.length) {
+			size = windowStart + windowSize;
+		}
+	}
+
+	private @Nullable String firstStreamLine() throws IOException {
+		if (lineNumber > 0 || windowStart > 0) {
+			throw new IllegalStateException("Первая строка сжатого файла читается до остальных строк");
+		}
+		int length = windowLength;
+		while (true) {
+			if (window == null || windowSize < length && windowSize < size) {
+				refill(0, length);
+			}
+			for (int i = 0; i < windowSize; i++) {
+				if (window.get(i) == LF) {
+					return decode(0, i > 0 && window.get(i - 1) == CR ? i - 1 : i);
+				}
+			}
+			if (windowSize >= size) {
+				return size == 0 ? null : decode(0, windowSize > 0 && window.get(windowSize - 1) == CR ? windowSize - 1 : windowSize);
+			}
+			length = (int) Math.min(Integer.MAX_VALUE, 2L * length);
+		}
+	}
+
+	/// Время первой и последней строк несжатого файла с меткой времени format или null
+	static long @Nullable [] timeBounds(@NotNull Path file, @NotNull TimestampFormat format) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			long first = timestampFrom(channel, 0, size, format);
+			// Последняя метка ищется от конца файла назад по строкам, не дальше одного блока
+			long last = Long.MIN_VALUE;
+			for (long end = size; end > 0 && last == Long.MIN_VALUE && size - end < SEEK_BLOCK_SIZE; ) {
+				long start = previousLineStart(channel, end);
+				last = timestamp(channel, start, format);
+				end = start;
+			}
+			return first == Long.MAX_VALUE || last == Long.MIN_VALUE ? null : new long[]{first, last};
+		}
+	}
+
+	/// Начало строки несжатого файла не позже первой строки со временем не раньше time, двоичным поиском по смещениям
+	static long seek(@NotNull Path file, @NotNull TimestampFormat format, long time) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			long low = 0;
+			long high = size;
+			while (high - low > SEEK_BLOCK_SIZE) {
+				long middle = low + (high - low) / 2;
+				if (timestampFrom(channel, lineStart(channel, middle, size), size, format) < time) {
+					low = middle;
+				} else {
+					high = middle;
+				}
+			}
+			return low == 0 ? 0 : lineStart(channel, low, size);
+		}
+	}
+
+	/// Время первой строки с меткой в блоке от начала строки pos или Long.MAX_VALUE
+	private static long timestampFrom(@NotNull FileChannel channel, long pos, long size, @NotNull TimestampFormat format) throws IOException {
+		for (long end = Math.min(size, pos + SEEK_BLOCK_SIZE); pos < end; pos = lineStart(channel, pos + 1, size)) {
+			long time = timestamp(channel, pos, format);
+			if (time != Long.MIN_VALUE) {
+				return time;
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	/// Время в начале строки pos или Long.MIN_VALUE, если строка начинается не с метки времени
+	private static long timestamp(@NotNull FileChannel channel, long pos, @NotNull TimestampFormat format) throws IOException {
+		ByteBuffer prefix = ByteBuffer.allocate(format.length());
+		while (prefix.hasRemaining() && channel.read(prefix, pos + prefix.position()) > 0) {
+			// дочитываем метку целиком
+		}
+		try {
+			return format.parse(new String(prefix.array(), 0, prefix.position(), StandardCharsets.ISO_8859_1));
+		} catch (ParseException e) {
+			return Long.MIN_VALUE;
+		}
+	}
+
+	/// Начало первой строки, начинающейся не раньше pos, или size
+	private static long lineStart(@NotNull FileChannel channel, long pos, long size) throws IOException {
+		ByteBuffer block = ByteBuffer.allocate(SPLIT_BLOCK_SIZE);
+		for (long blockStart = pos - 1; blockStart < size; blockStart += block.limit()) {
+			block.clear();
+			if (channel.read(block, blockStart) <= 0) {
+				break;
+			}
+			for (int i = 0; i < block.position(); i++) {
+				if (block.get(i) == LF) {
+					return blockStart + i + 1;
+				}
+			}
+			block.limit(block.position());
+		}
+		return size;
+	}
+
+	/// Начало строки, которая заканчивается переводом строки перед end
+	private static long previousLineStart(@NotNull FileChannel channel, long end) throws IOException {
+		ByteBuffer block = ByteBuffer.allocate(SPLIT_BLOCK_SIZE);
+		long blockEnd = end - 1;
+		while (blockEnd > 0) {
+			long blockStart = Math.max(0, blockEnd - SPLIT_BLOCK_SIZE);
+			block.clear().limit((int) (blockEnd - blockStart));
+			while (block.hasRemaining() && channel.read(block, blockStart + block.position()) > 0) {
+				// дочитываем блок целиком
+			}
+			for (int i = block.position() - 1; i >= 0; i--) {
+				if (block.get(i) == LF) {
+					return blockStart + i + 1;
+				}
+			}
+			blockEnd = blockStart;
+		}
+		return 0;
+	}
+
+	/// Маска маркеров строки [start, end), end — за ее переводом строки; так же, как в {@link #advance()}
+	private static long lineMatches(@NotNull FileChannel channel, long start, long end, @NotNull MarkerMatcher matcher) throws IOException {
+		ByteBuffer block = ByteBuffer.allocate(SPLIT_BLOCK_SIZE);
+		int state = 0;
+		int previous = 0;
+		long found = 0;
+		byte last = 0;
+		for (long pos = start; pos < end - 1; pos += block.position()) {
+			block.clear().limit((int) Math.min(SPLIT_BLOCK_SIZE, end - 1 - pos));
+			if (channel.read(block, pos) <= 0) {
+				break;
+			}
+			for (int i = 0; i < block.position(); i++) {
+				last = block.get(i);
+				previous = state;
+				state = matcher.next(state, last);
+				found |= matcher.matches(state);
+			}
+		}
+		return matcher.lineMatches(found, matcher.matches(last == CR ? previous : state));
+	}
+
+	private static @NotNull InputStream openStream(@NotNull Path file) throws IOException {
+		InputStream in = Files.newInputStream(file);
+		return file.getFileName().toString().endsWith(".gz") ? new GZIPInputStream(in, 1 << 16) : in;
+	}
+
+	private @NotNull String decode(int from, int to) {
+		int length = to - from;
+		if (lineBytes.length < length) {
+			lineBytes = new byte[Math.max(length, lineBytes.length * 2)];
+		}
+		window.get(from, lineBytes, 0, length);
+		return new String(lineBytes, 0, length, StandardCharsets.UTF_8);
+	}
+
+	private static @NotNull String stripCr(byte[] line) {
+		int length = line.length > 0 && line[line.length - 1] == CR ? line.length - 1 : line.length;
+		return new String(line, 0, length, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,572 @@
+package ru.sam47kon.log_analyzer;
+
+import com.opencsv.CSVWriter;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Serial;
+import java.io.Serializable;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public class LogAnalyzer {
+	// SimpleDateFormat не потокобезопасен, а файлы анализируются параллельно
+	public static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = ThreadLocal.withInitial(() -> new SimpleDateFormat("HH:mm:ss.SSS"));
+	public static final SimpleDateFormat TIME_LOG_FORMAT_FROM = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+	public static final SimpleDateFormat TIME_LOG_FORMAT_TO = new SimpleDateFormat("HH:mm");
+	// MONTH_DAY: MM-dd;HH:mm:ss.SSS, YEAR_MONTH_DAY: yyyy-MM-dd HH:mm:ss,SSS
+	public static final TimestampFormat TIME_LOG_FORMAT = TimestampFormat.MONTH_DAY;
+
+	private static final String PATH_TO_LOG_FILE = "C:\\Users\\bulavin.ilya\\Downloads\\01-SUP-1843316\\";
+	private static final String SERVER_PATTERN = "server";
+	private static final String PATTERN_IS_VERIFY = "Операция checkDocument";
+	private static final String PATTERN_IS_TRANSITION = "c.o.s.s.d.LifeCycleServiceImpl]";
+	private static final String PATTERN_IS_TRANSITION_2 = "Переход ";
+	private static final String PATTERN_VERIFY_END = "завершена";
+
+	private static final MarkerMatcher MARKERS = MarkerMatcher.builder()
+			.contains(PATTERN_IS_VERIFY)
+			.contains(PATTERN_VERIFY_END)
+			.contains(PATTERN_IS_TRANSITION)
+			.contains(PATTERN_IS_TRANSITION_2)
+			.build();
+	private static final long IS_VERIFY = MARKERS.mask(PATTERN_IS_VERIFY);
+	private static final long IS_VERIFY_END = MARKERS.mask(PATTERN_VERIFY_END);
+	private static final long IS_TRANSITION = MARKERS.mask(PATTERN_IS_TRANSITION, PATTERN_IS_TRANSITION_2);
+	private static final long LINE_FILTER = MARKERS.mask(PATTERN_IS_VERIFY, PATTERN_IS_TRANSITION);
+
+	private static final String SERVER_LOG_DETAILS = "serverLogDetails.log";
+	private static final String CONCURRENCY_CSV = "transitionConcurrency.csv";
+	private static final String[] CONCURRENCY_HEADERS = {"Начало интервала", "Пул потоков", "В среднем", "Пересекающих секунду не более"};
+	private static final String ALL_POOLS = "все";
+	// Сколько пиков одновременно выполняемых переходов выводить на пул
+	private static final int PEAK_LIMIT = 5;
+	private static final long LONG_TRANSITION_MILLIS = 6_000;
+	// Сколько самых долгих переходов выводить в отчет
+	static final int SLOWEST_LIMIT = 100;
+	// Завершенные переходы для --sobi-join: время запуска, длительность, поток и имя перехода
+	static final int COMPLETED_THREAD = 0;
+	static final int COMPLETED_TRANSITION = 1;
+	// Отложенные запуски и завершения куска: вид события в колонке длительности, поток и имя перехода в строковых колонках
+	private static final int PENDING_START = 1;
+	private static final int PENDING_END = 0;
+	private static final int PENDING_THREAD = 0;
+	private static final int PENDING_TRANSITION = 1;
+
+	public static void main(String[] args) {
+		Options options = Options.parse(args, PATH_TO_LOG_FILE);
+		if (options.follow()) {
+			follow(options);
+			return;
+		}
+		AnalysisDriver.run(options, List.of(new Plugin()));
+	}
+
+	/// Режим слежения: дочитывает растущие логи и периодически переписывает отчет, не перечитывая файлы с начала
+	private static void follow(@NotNull Options options) {
+		AnalysisData analysisData = new Plugin().newPartial();
+		String fileName = options.logDir().resolve(SERVER_LOG_DETAILS).toString();
+		logDebug(String.format("Слежение за файлами '%s' в %s, обновление отчета раз в %d с", SERVER_PATTERN, options.logDir(), options.refreshSeconds()));
+		try {
+			new LogFollower(options.logDir(), SERVER_PATTERN, SERVER_LOG_DETAILS, MARKERS, LINE_FILTER,
+					AnalysisDriver.lineConsumer(new Plugin(), analysisData),
+					() -> logAnalysis(analysisData, fileName, options),
+					TimeUnit.SECONDS.toMillis(options.refreshSeconds())).run();
+		} catch (IOException e) {
+			logError(String.format("Ошибка при слежении за директорией: %s", ExceptionUtils.getRootCauseMessage(e)));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public static void logDebug(String message) {
+		System.out.println(DATE_FORMAT.get().format(new Date()) + ": " + message);
+	}
+
+	public static void logError(String errMessage) {
+		System.err.println(DATE_FORMAT.get().format(new Date()) + ": " + errMessage);
+	}
+
+	/// Имя потока: первое значение в квадратных скобках
+	static @Nullable String threadName(@NotNull String line) {
+		return StringUtils.substringBetween(line, "[", "]");
+	}
+
+	/// Имя перехода и остаток строки с GUID документа и действием
+	static String @NotNull [] transition(@NotNull String line) {
+		return StringUtils.substringAfter(line, PATTERN_IS_TRANSITION_2).split(" для документа ");
+	}
+
+	static @Nullable String documentGuid(@NotNull String document) {
+		return StringUtils.substringBetween(document, "[", "]");
+	}
+
+	static boolean started(@NotNull String document) {
+		return "запущен.".equals(StringUtils.substringAfter(document, "] "));
+	}
+
+	/// Запуски и завершения переходов и проверок документов в логах сервера
+	static final class Plugin implements LogPlugin<AnalysisData> {
+		// Хранить завершенные переходы для {@link SobiJoin}
+		private final boolean joinEvents;
+
+		Plugin() {
+			this(false);
+		}
+
+		Plugin(boolean joinEvents) {
+			this.joinEvents = joinEvents;
+		}
+
+		@Override
+		public @NotNull String prefix() {
+			return SERVER_PATTERN;
+		}
+
+		@Override
+		public @NotNull String reportName() {
+			return SERVER_LOG_DETAILS;
+		}
+
+		@Override
+		public @NotNull MarkerMatcher markers() {
+			return MARKERS;
+		}
+
+		@Override
+		public long filter() {
+			return LINE_FILTER;
+		}
+
+		@Override
+		public @NotNull AnalysisData newPartial() {
+			return new AnalysisData(new TransitionCounters(), joinEvents);
+		}
+
+		/// Куски файла пишут счетчики и документы в общий {@link TransitionCounters}, переходы сопоставляются каждым куском
+		@Override
+		public @NotNull AnalysisData newChunkPartial(@NotNull AnalysisData first) {
+			return new AnalysisData(first.counters, joinEvents);
+		}
+
+		@Override
+		public @NotNull TimestampFormat timestampFormat() {
+			return TIME_LOG_FORMAT;
+		}
+
+		@Override
+		public @NotNull String guidMarker(@NotNull String guid) {
+			return "[" + guid + "]";
+		}
+
+		@Override
+		public void fileStarted(@NotNull AnalysisData analysisData, String firstLine) {
+			analysisData.fromFileStart = true;
+			if (firstLine != null) {
+				analysisData.logStart = "Начало лога: " + StringUtils.trim(StringUtils.substringBefore(firstLine, " ["));
+			}
+		}
+
+		@Override
+		public void line(@NotNull AnalysisData analysisData, @NotNull String line, long matches, String followingLine,
+						 @NotNull ParseMark mark) throws ParseException {
+			if ((matches & IS_VERIFY) != 0) {
+				mark.parsed();
+				if ((matches & IS_VERIFY_END) != 0) {
+					analysisData.counters.endVerify.increment();
+				} else {
+					analysisData.counters.startVerify.increment();
+				}
+				return;
+			}
+			if ((matches & IS_TRANSITION) != IS_TRANSITION) {
+				return;
+			}
+
+			long timeLog = TIME_LOG_FORMAT.parse(line);
+			analysisData.firstTimeLog = Math.min(analysisData.firstTimeLog, timeLog);
+			String rawThreadName = threadName(line);
+			String[] split = transition(line);
+			if (split.length != 2) {
+				System.err.println("Ошибка парсинга");
+				return;
+			}
+			boolean isStart = started(split[1]);
+			Guid documentGuid = Guid.parse(documentGuid(split[1]));
+			mark.parsed();
+
+			// Имена переходов и потоков повторяются, открытые переходы держат по одному экземпляру из словаря
+			TransitionCounters counters = analysisData.counters;
+			String threadName = analysisData.symbols.intern(rawThreadName);
+			int transition = counters.transition(split[0]);
+			String transitionName = counters.name(transition);
+			if (isStart) {
+				counters.started(transition);
+			} else {
+				counters.ended();
+			}
+			counters.document(documentGuid, transition, timeLog);
+			if (isStart) {
+				analysisData.startsByInterval.add(timeLog);
+			}
+			if (!analysisData.fromFileStart) {
+				// Запуски предыдущих кусков еще неизвестны: сопоставление откладывается до append
+				analysisData.pending().add(timeLog, documentGuid, isStart ? PENDING_START : PENDING_END, threadName, transitionName);
+			} else if (isStart) {
+				analysisData.tracker.start(documentGuid, transitionName, threadName, timeLog);
+			} else {
+				// Завершение сразу закрывает запуск, длительность уходит в AnalysisData.transitionCompleted
+				analysisData.tracker.end(documentGuid, transitionName, timeLog, analysisData::transitionCompleted);
+			}
+		}
+
+		@Override
+		public void fileFinished(@NotNull AnalysisData analysisData, String lastLine) {
+			// Файл, дочитываемый с контрольной точки, мог не получить новых строк
+			if (lastLine != null || analysisData.logEnd == null) {
+				analysisData.logEnd = "Конец лога: " + StringUtils.substringBefore(lastLine, " [");
+			}
+		}
+
+		/// Растут документы и незавершенные переходы, остальное ограничено именами переходов и минутами лога
+		@Override
+		public long estimatedBytes(@NotNull AnalysisData analysisData) {
+			// Счетчики общие для кусков файла и учитываются у первого из них
+			return analysisData.tracker.estimatedBytes() + (analysisData.fromFileStart ? analysisData.counters.estimatedBytes() : 0);
+		}
+
+		@Override
+		public void release(@NotNull AnalysisData analysisData) {
+			if (analysisData.pending != null) {
+				analysisData.pending.release();
+			}
+			if (analysisData.completed != null) {
+				analysisData.completed.release();
+			}
+		}
+
+		/// Отложенные запуски и завершения куска сопоставляются в порядке строк, как при чтении файла целиком
+		@Override
+		public void append(@NotNull AnalysisData analysisData, @NotNull AnalysisData next) {
+			analysisData.merge(next);
+			EventStore pending = next.pending;
+			if (pending != null) {
+				Symbols symbols = analysisData.symbols;
+				for (EventStore.Chunk chunk : pending.chunks()) {
+					for (int row = 0; row < chunk.rows(); row++) {
+						Guid guid = pending.guid(chunk, row);
+						String transitionName = symbols.intern(pending.name(chunk.symbol(PENDING_TRANSITION, row)));
+						if (chunk.duration(row) == PENDING_START) {
+							analysisData.tracker.start(guid, transitionName, symbols.intern(pending.name(chunk.symbol(PENDING_THREAD, row))), chunk.time(row));
+						} else {
+							analysisData.tracker.end(guid, transitionName, chunk.time(row), analysisData::transitionCompleted);
+						}
+					}
+				}
+				pending.release();
+				next.pending = null;
+			}
+			if (next.logEnd != null) {
+				analysisData.logEnd = next.logEnd;
+			}
+		}
+
+		/// Частичные результаты сливаются в хронологическом порядке, как при сквозном чтении
+		@Override
+		public @Nullable EventStore report(@NotNull List<AnalysisData> partials, @NotNull Options options) {
+			AnalysisData analysisData = newPartial();
+			// Сортируются номера, а не сами результаты: выгруженные из памяти читаются по одному
+			long[] firstTimeLogs = partials.stream().mapToLong(partial -> partial.firstTimeLog).toArray();
+			List<Integer> order = new ArrayList<>();
+			for (int i = 0; i < firstTimeLogs.length; i++) {
+				order.add(i);
+			}
+			order.sort(Comparator.comparingLong(i -> firstTimeLogs[i]));
+			for (int i : order) {
+				AnalysisData partial = partials.get(i);
+				partial.printLogBounds();
+				analysisData.merge(partial);
+			}
+			logAnalysis(analysisData, options.logDir().resolve(SERVER_LOG_DETAILS).toString(), options);
+			return analysisData.completed;
+		}
+	}
+
+	private static @NotNull String startNotEndTransitions(@NotNull TransitionTracker tracker) {
+		Map<Guid, List<TransitionTracker.OpenTransition>> startNotEndTransitions = tracker.openByGuid();
+		if (startNotEndTransitions.isEmpty()) {
+			return "0";
+		}
+		return startNotEndTransitions.size() + ":\n\t" + startNotEndTransitions.entrySet().stream()
+				.sorted(Comparator.comparingLong(e -> e.getValue().get(0).timeLog()))
+				.map(e -> e.getKey() + ": " + e.getValue().stream()
+						.map(transition -> new Info(transition.timeLog(), transition.transitionName(), transition.threadName()))
+						.toList())
+				.collect(Collectors.joining("\n\t"));
+	}
+
+	private static void logAnalysis(@NotNull AnalysisData analysisData, String fileName, @NotNull Options options) {
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
+			TransitionCounters counters = analysisData.counters;
+			SortedSet<TransitionCount> sortedTransitions = new TreeSet<>();
+			counters.startsByName().forEach((transitionName, count) -> {
+				if (count > 0) {
+					sortedTransitions.add(new TransitionCount(transitionName, count.intValue()));
+				}
+			});
+			writer.write("Запущено переходов: " + counters.startTransitions.sum());
+			writer.newLine();
+			writer.write("Завершено переходов: " + counters.endTransitions.sum());
+			writer.newLine();
+			writer.write("Запущенные и не завершенные переходы: " + startNotEndTransitions(analysisData.tracker));
+			writer.newLine();
+			writer.write("Запущено проверок: " + counters.startVerify.sum());
+			writer.newLine();
+			writer.write("Завершено проверок: " + counters.endVerify.sum());
+			writer.newLine();
+			writer.write("Переходы:\n\t" + sortedTransitions.stream().map(Record::toString).collect(Collectors.joining("\n\t")));
+			writer.newLine();
+
+			List<String> list = counters.documents(2 * 10).stream()
+					.map(entry -> entry.getKey() + ": [" + entry.getValue().lines / 2 + "] " +
+							entry.getValue().transitionNames(counters))
+					.toList();
+			writer.write("Более 10 переходов у документов: " + list.size() + System.lineSeparator() + StringUtils.join(list, System.lineSeparator()));
+			if (!list.isEmpty()) {
+				writer.newLine();
+			}
+
+			writeLongestTransitions(writer, analysisData.longTransitionsCount, analysisData.longestTransitions);
+			writeDurations(writer, "Длительность переходов:", analysisData.durations);
+
+			for (int minutes : options.intervalMinutes()) {
+				writeTransitionsByInterval(writer, analysisData.startsByInterval, minutes);
+			}
+			writeConcurrency(writer, analysisData, TimeUnit.SECONDS.toMillis(options.gaugeSeconds()));
+
+			logDebug("Данные успешно записаны в файл: " + fileName);
+		} catch (IOException e) {
+			logError("Ошибка при записи в файл: " + e.getMessage());
+		}
+		writeConcurrencySeries(analysisData, Paths.get(fileName).resolveSibling(CONCURRENCY_CSV).toString(), TimeUnit.SECONDS.toMillis(options.gaugeSeconds()));
+	}
+
+	/// Наибольшее среднее количество одновременно выполняемых переходов и пики, всего и по пулам потоков
+	private static void writeConcurrency(@NotNull BufferedWriter writer, @NotNull AnalysisData analysisData, long intervalMillis) throws IOException {
+		writer.newLine();
+		writer.write(String.format("Одновременно выполняемых переходов (интервалы %d с, в среднем за интервал, пересекающих секунду не более):",
+				TimeUnit.MILLISECONDS.toSeconds(intervalMillis)));
+		writer.newLine();
+		writeGauge(writer, ALL_POOLS, analysisData.inFlight, intervalMillis);
+		// Пулы от самых загруженных
+		Map<String, Double> maxAverages = new HashMap<>();
+		for (Map.Entry<String, ConcurrencyGauge> entry : analysisData.inFlightByPool.entrySet()) {
+			maxAverages.put(entry.getKey(), entry.getValue().maxAverage(intervalMillis));
+		}
+		List<String> pools = new ArrayList<>(maxAverages.keySet());
+		pools.sort(Comparator.<String, Double>comparing(maxAverages::get, Comparator.reverseOrder()).thenComparing(Comparator.naturalOrder()));
+		for (String pool : pools) {
+			writeGauge(writer, pool, analysisData.inFlightByPool.get(pool), intervalMillis);
+		}
+	}
+
+	private static void writeGauge(@NotNull BufferedWriter writer, @NotNull String pool, @NotNull ConcurrencyGauge gauge, long intervalMillis) throws IOException {
+		List<ConcurrencyGauge.Peak> peaks = gauge.peaks(intervalMillis, PEAK_LIMIT);
+		writer.write(String.format("\t%s: пики %d", pool, peaks.size()));
+		writer.newLine();
+		for (ConcurrencyGauge.Peak peak : peaks) {
+			writer.write(String.format("\t\t%s-%s: %.1f, до %d", TIME_LOG_FORMAT.format(peak.start()), DATE_FORMAT.get().format(peak.end()),
+					peak.average(), peak.maxOverlapping()));
+			writer.newLine();
+		}
+	}
+
+	/// Ряд по интервалам для графиков: время начала интервала, пул потоков, среднее и пересекающих секунду не более
+	private static void writeConcurrencySeries(@NotNull AnalysisData analysisData, String fileName, long intervalMillis) {
+		try (CSVWriter writer = new CSVWriter(new BufferedWriter(new FileWriter(fileName), 1 << 16))) {
+			writer.writeNext(CONCURRENCY_HEADERS);
+			writeSeries(writer, ALL_POOLS, analysisData.inFlight, intervalMillis);
+			for (Map.Entry<String, ConcurrencyGauge> entry : new TreeMap<>(analysisData.inFlightByPool).entrySet()) {
+				writeSeries(writer, entry.getKey(), entry.getValue(), intervalMillis);
+			}
+			logDebug("Данные успешно записаны в файл: " + fileName);
+		} catch (IOException e) {
+			logError("Ошибка при записи в файл: " + e.getMessage());
+		}
+	}
+
+	private static void writeSeries(@NotNull CSVWriter writer, @NotNull String pool, @NotNull ConcurrencyGauge gauge, long intervalMillis) throws IOException {
+		gauge.forEach(intervalMillis, (start, end, average, maxOverlapping) ->
+				writer.writeNext(new String[]{TIME_LOG_FORMAT.format(start), pool, String.format("%.2f", average), String.valueOf(maxOverlapping)}));
+	}
+
+	private static void writeLongestTransitions(@NotNull BufferedWriter writer, int longTransitionsCount,
+												@NotNull TopK<LongTransition> longestTransitions) throws IOException {
+		List<LongTransition> sorted = longestTransitions.sorted();
+		writer.write(String.format("Переходы более 6 секунд: %d", longTransitionsCount));
+		if (sorted.size() < longTransitionsCount) {
+			writer.write(String.format(", самые долгие %d:", sorted.size()));
+		}
+		for (LongTransition longTransition : sorted) {
+			writer.write(String.format("\n\t%s: %s %d ms", longTransition.guid, longTransition.start, longTransition.durationMillis));
+		}
+	}
+
+	/// Перцентили длительностей по именам, от самых частых
+	static void writeDurations(@NotNull BufferedWriter writer, @NotNull String title, @NotNull Map<String, LatencyHistogram> durations) throws IOException {
+		writeDistributions(writer, title, durations, " ms");
+	}
+
+	/// Перцентили значений по именам с единицей измерения unit, от самых частых
+	static void writeDistributions(@NotNull BufferedWriter writer, @NotNull String title, @NotNull Map<String, LatencyHistogram> values,
+								   @NotNull String unit) throws IOException {
+		writer.newLine();
+		writer.write(title);
+		for (Map.Entry<String, LatencyHistogram> entry : sortedByCount(values)) {
+			writer.write(String.format("\n\t%s: %d, %s", entry.getKey(), entry.getValue().count(), entry.getValue().summary(unit)));
+		}
+	}
+
+	static @NotNull List<Map.Entry<String, LatencyHistogram>> sortedByCount(@NotNull Map<String, LatencyHistogram> durations) {
+		return durations.entrySet().stream()
+				.sorted(Comparator.<Map.Entry<String, LatencyHistogram>>comparingLong(e -> e.getValue().count()).reversed()
+						.thenComparing(Map.Entry::getKey))
+				.toList();
+	}
+
+	private static void writeTransitionsByInterval(BufferedWriter writer, @NotNull IntervalHistogram startsByInterval, int intervalMinutes) throws IOException {
+		writer.newLine();
+		writer.write("Количество переходов по временным интервалам (" + intervalMinutes + " минут):");
+		writer.newLine();
+		startsByInterval.forEach(TimeUnit.MINUTES.toMillis(intervalMinutes), (start, end, count) -> {
+			writer.write(intervalLabel(start, end) + ": " + count);
+			writer.newLine();
+		});
+	}
+
+	/// Подпись интервала в отчетах, строится один раз на выводимый интервал
+	static @NotNull String intervalLabel(long start, long end) {
+		return TIME_LOG_FORMAT_FROM.format(new Date(start)) + "-" + TIME_LOG_FORMAT_TO.format(new Date(end));
+	}
+
+	private static class AnalysisData implements Serializable {
+		@Serial
+		private static final long serialVersionUID = 1L;
+
+		// Запуски ждут своего завершения, в памяти только незавершенные переходы
+		final TransitionTracker tracker = new TransitionTracker();
+		// Счетчики и документы, общие для кусков одного файла
+		final TransitionCounters counters;
+		// Имена потоков открытых переходов
+		Symbols symbols = new Symbols();
+		// Длительности завершенных переходов по именам, память не растет с количеством переходов
+		LinkedHashMap<String, LatencyHistogram> durations = new LinkedHashMap<>();
+		int longTransitionsCount = 0;
+		TopK<LongTransition> longestTransitions = new TopK<>(SLOWEST_LIMIT);
+		// Запуски переходов по минутам, более крупные интервалы складываются при выводе
+		IntervalHistogram startsByInterval = new IntervalHistogram(TimeUnit.MINUTES.toMillis(1));
+		long firstTimeLog = Long.MAX_VALUE;
+		String logStart;
+		String logEnd;
+		// Чтение началось с начала файла; иначе это кусок файла, и переходы копятся в pending
+		boolean fromFileStart;
+		EventStore pending;
+		// Завершенные переходы для --sobi-join, null — не хранятся
+		final EventStore completed;
+		// Одновременно выполняемые переходы, всего и по пулам потоков
+		ConcurrencyGauge inFlight = new ConcurrencyGauge();
+		HashMap<String, ConcurrencyGauge> inFlightByPool = new HashMap<>();
+
+		AnalysisData(@NotNull TransitionCounters counters, boolean joinEvents) {
+			this.counters = counters;
+			this.completed = joinEvents ? new EventStore(2) : null;
+		}
+
+		@NotNull EventStore pending() {
+			if (pending == null) {
+				pending = new EventStore(2);
+			}
+			return pending;
+		}
+
+		void merge(@NotNull AnalysisData other) {
+			// Куски одного файла уже писали в общие счетчики
+			if (other.counters != counters) {
+				counters.merge(other.counters);
+			}
+			other.durations.forEach((transitionName, histogram) -> durations.computeIfAbsent(transitionName, k -> new LatencyHistogram()).merge(histogram));
+			longTransitionsCount += other.longTransitionsCount;
+			longestTransitions.merge(other.longestTransitions);
+			// Переходы, начатые в предыдущих файлах и завершенные в этом, закрываются здесь
+			tracker.merge(other.tracker, this::transitionCompleted);
+			startsByInterval.merge(other.startsByInterval);
+			if (completed != null && other.completed != null) {
+				completed.addAll(other.completed);
+			}
+			inFlight.merge(other.inFlight);
+			other.inFlightByPool.forEach((pool, gauge) -> inFlightByPool.computeIfAbsent(pool, k -> new ConcurrencyGauge()).merge(gauge));
+			firstTimeLog = Math.min(firstTimeLog, other.firstTimeLog);
+		}
+
+		private void transitionCompleted(Guid guid, String transitionName, String threadName, long startTime, long endTime) {
+			// Вычисляем длительность перехода в миллисекундах
+			long durationMillis = endTime - startTime;
+			// Проверяем, превышает ли длительность 6 секунд (6 000 миллисекунд)
+			durations.computeIfAbsent(transitionName, k -> new LatencyHistogram()).record(durationMillis);
+			if (durationMillis > LONG_TRANSITION_MILLIS) {
+				longTransitionsCount++;
+				longestTransitions.add(durationMillis, new LongTransition(guid, new Info(startTime, transitionName, threadName), durationMillis));
+			}
+			inFlight.add(startTime, endTime);
+			inFlightByPool.computeIfAbsent(ConcurrencyGauge.pool(threadName), k -> new ConcurrencyGauge()).add(startTime, endTime);
+			if (completed != null) {
+				completed.add(startTime, guid, (int) Math.min(durationMillis, Integer.MAX_VALUE), threadName, transitionName);
+			}
+		}
+
+		void printLogBounds() {
+			if (logStart != null) {
+				System.out.println(logStart);
+			}
+			if (logEnd != null) {
+				System.out.println(logEnd);
+			}
+		}
+	}
+
+	private record LongTransition(Guid guid, Info start, long durationMillis) implements Serializable {
+	}
+
+	private record Info(long timeLog, String transitionName, String threadName) implements Serializable {
+		@Contract(pure = true)
+		@Override
+		public @NotNull String toString() {
+			return DATE_FORMAT.get().format(timeLog) + ": " + transitionName + ", " + threadName;
+		}
+	}
+
+	record TransitionCount(String transitionName, int count) implements Comparable<TransitionCount> {
+		@Override
+		public int compareTo(@NotNull TransitionCount data) {
+			int compareCount = Integer.compare(data.count, count);
+			int compareTransition = StringUtils.compare(data.transitionName, transitionName);
+			return compareCount != 0 ? compareCount : compareTransition;
+		}
+
+		@Contract(pure = true)
+		@Override
+		public @NotNull String toString() {
+			return transitionName + ": " + count;
+		}
+	}
+}
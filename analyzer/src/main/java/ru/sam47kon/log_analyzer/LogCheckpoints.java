@@ -0,0 +1,202 @@
+package ru.sam47kon.log_analyzer;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+
+import static ru.sam47kon.log_analyzer.LogAnalyzer.logDebug;
+import static ru.sam47kon.log_analyzer.LogAnalyzer.logError;
+
+/// Контрольные точки анализа (.&lt;prefix&gt;.checkpoints): частичный результат и смещение, до которого прочитан файл
+final class LogCheckpoints<T extends Serializable> {
+	private static final int VERSION = 6;
+	private static final int HASH_WINDOW = 64 << 10;
+	// Индекс читается из папки с логами, поэтому десериализуются только классы анализатора и JDK
+	static final ObjectInputFilter CLASS_FILTER = ObjectInputFilter.Config.createFilter("ru.sam47kon.log_analyzer.*;java.base/*;!*");
+
+	// null — контрольные точки отключены, файлы всегда читаются целиком
+	private final @Nullable Path indexFile;
+	private final Map<String, Checkpoint> loaded;
+	private final Map<String, Checkpoint> updated = new ConcurrentHashMap<>();
+
+	private LogCheckpoints(@Nullable Path indexFile, @NotNull Map<String, Checkpoint> loaded) {
+		this.indexFile = indexFile;
+		this.loaded = loaded;
+	}
+
+	static <T extends Serializable> @NotNull LogCheckpoints<T> load(@NotNull Options options, @NotNull String prefix) {
+		if (!options.checkpoints()) {
+			return new LogCheckpoints<>(null, Map.of());
+		}
+		Path indexFile = options.logDir().resolve("." + prefix + ".checkpoints");
+		try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+			in.setObjectInputFilter(CLASS_FILTER);
+			if (in.readInt() == VERSION) {
+				@SuppressWarnings("unchecked")
+				Map<String, Checkpoint> loaded = (Map<String, Checkpoint>) in.readObject();
+				return new LogCheckpoints<>(indexFile, loaded);
+			}
+		} catch (NoSuchFileException e) {
+			// первый запуск
+		} catch (Exception e) {
+			logError(String.format("Индекс [%s] не прочитан, файлы будут прочитаны заново: %s", indexFile.getFileName(), ExceptionUtils.getRootCauseMessage(e)));
+		}
+		return new LogCheckpoints<>(indexFile, Map.of());
+	}
+
+	/// Частичный результат файла из контрольной точки, дочитанный с ее смещения или прочитанный с начала
+	@NotNull T analyze(@NotNull Path file, @NotNull Supplier<T> newPartial, @NotNull MarkerMatcher matcher, long filter,
+					   @NotNull FileAnalyzer<T> analyzer) {
+		logDebug("Анализ файла: " + file.getFileName());
+		T partial = null;
+		try {
+			if (indexFile == null) {
+				partial = newPartial.get();
+				try (LineSource source = LineSource.open(file, matcher, filter)) {
+					analyzer.analyze(partial, source);
+				}
+				return partial;
+			}
+			// URI различает одноименные записи разных архивов
+			String key = file.toUri().toString();
+			long lastModified = Files.getLastModifiedTime(file).toMillis();
+			long size = Files.size(file);
+			long offset = 0;
+			Checkpoint checkpoint = loaded.get(key);
+			if (checkpoint != null) {
+				partial = restore(file, checkpoint, size, lastModified);
+				offset = partial != null ? checkpoint.offset : 0;
+			}
+			if (LineSource.isCompressed(file)) {
+				if (partial != null) {
+					updated.put(key, checkpoint);
+					return partial;
+				}
+				partial = newPartial.get();
+				try (LineSource source = LineSource.open(file, matcher, filter)) {
+					analyzer.analyze(partial, source);
+					updated.put(key, new Checkpoint(lastModified, size, source.position(), 0, serialize(partial)));
+				}
+				return partial;
+			}
+			if (partial == null) {
+				partial = newPartial.get();
+			}
+			try (LineSource source = LineSource.openAppended(file, matcher, filter, offset)) {
+				analyzer.analyze(partial, source);
+				offset = source.position();
+				try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+					updated.put(key, new Checkpoint(lastModified, size, offset, hash(channel, offset), serialize(partial)));
+				}
+				if (source.hasNextLine()) {
+					try (LineSource tail = LineSource.open(file, matcher, filter, offset)) {
+						analyzer.analyze(partial, tail);
+					}
+				}
+			}
+		} catch (Exception e) {
+			logError(String.format("Ошибка при обработке файла [%s]: %s", file.getFileName(), ExceptionUtils.getRootCauseMessage(e)));
+		}
+		return partial != null ? partial : newPartial.get();
+	}
+
+	/// Записывает контрольные точки проанализированных файлов, записи исчезнувших файлов отбрасываются
+	void save() {
+		if (indexFile == null) {
+			return;
+		}
+		Path tmp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+		try {
+			try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				out.writeInt(VERSION);
+				out.writeObject(new HashMap<>(updated));
+			}
+			Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			logError(String.format("Ошибка при записи индекса [%s]: %s", indexFile.getFileName(), ExceptionUtils.getRootCauseMessage(e)));
+		}
+	}
+
+	/// Частичный результат из контрольной точки или null, если прочитанная часть файла изменилась
+	private @Nullable T restore(@NotNull Path file, @NotNull Checkpoint checkpoint, long size, long lastModified) {
+		boolean unchanged = size == checkpoint.size && lastModified == checkpoint.lastModified;
+		try {
+			if (LineSource.isCompressed(file) ? !unchanged : !prefixUnchanged(file, checkpoint)) {
+				logDebug(String.format("Файл [%s] изменился, читается заново", file.getFileName()));
+				return null;
+			}
+			try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(checkpoint.state))) {
+				in.setObjectInputFilter(CLASS_FILTER);
+				@SuppressWarnings("unchecked")
+				T partial = (T) in.readObject();
+				if (unchanged) {
+					logDebug(String.format("Файл [%s] не изменился, результат взят из контрольной точки", file.getFileName()));
+				} else {
+					logDebug(String.format("Файл [%s] дочитывается с позиции %d", file.getFileName(), checkpoint.offset));
+				}
+				return partial;
+			}
+		} catch (Exception e) {
+			logError(String.format("Контрольная точка файла [%s] не прочитана: %s", file.getFileName(), ExceptionUtils.getRootCauseMessage(e)));
+			return null;
+		}
+	}
+
+	/// Прочитанная часть файла осталась прежней: файл не короче нее и совпадает CRC32C
+	private static boolean prefixUnchanged(@NotNull Path file, @NotNull Checkpoint checkpoint) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return channel.size() >= checkpoint.offset && hash(channel, checkpoint.offset) == checkpoint.hash;
+		}
+	}
+
+	static byte[] serialize(@NotNull Serializable partial) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(partial);
+		}
+		return bytes.toByteArray();
+	}
+
+	/// CRC32C первых и последних HASH_WINDOW байт части файла [0, length)
+	private static long hash(@NotNull FileChannel channel, long length) throws IOException {
+		CRC32C crc = new CRC32C();
+		update(crc, channel, 0, Math.min(length, HASH_WINDOW));
+		long tailStart = Math.max(HASH_WINDOW, length - HASH_WINDOW);
+		update(crc, channel, tailStart, length - tailStart);
+		return crc.getValue();
+	}
+
+	private static void update(@NotNull CRC32C crc, @NotNull FileChannel channel, long position, long length) throws IOException {
+		if (length <= 0) {
+			return;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate((int) length);
+		while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) {
+			// дочитываем окно целиком
+		}
+		buffer.flip();
+		crc.update(buffer);
+	}
+
+	@FunctionalInterface
+	interface FileAnalyzer<T> {
+		void analyze(T partial, LineSource source) throws Exception;
+	}
+
+	private record Checkpoint(long lastModified, long size, long offset, long hash, byte[] state) implements Serializable {
+	}
+}
@@ -0,0 +1,107 @@
+package ru.sam47kon.log_analyzer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static ru.sam47kon.log_analyzer.LogAnalyzer.logError;
+
+/// Поиск файлов логов и их анализ: последовательно или параллельно, по одному частичному результату на файл
+final class LogFiles {
+	private static final String ZIP = ".zip";
+
+	private LogFiles() {
+	}
+
+	/// Файлы с именем, начинающимся на prefix, в том числе .gz и записи zip-архивов (их пути принадлежат файловой системе архива)
+	/// @param archives куда открывать zip-архивы или null, чтобы не искать внутри них
+	static @NotNull List<Path> find(@NotNull Path logDir, @NotNull String prefix, @Nullable String excludeName, @Nullable Archives archives) throws IOException {
+		return find(logDir, name -> name.startsWith(prefix) && !name.equals(excludeName), archives);
+	}
+
+	/// Файлы, имя которых принимает names, за один обход папки
+	static @NotNull List<Path> find(@NotNull Path logDir, @NotNull Predicate<String> names, @Nullable Archives archives) throws IOException {
+		List<Path> matchingFiles = new ArrayList<>();
+		List<Path> zipFiles = new ArrayList<>();
+		try (Stream<Path> paths = Files.find(
+				logDir,
+				Integer.MAX_VALUE, // Максимальная глубина рекурсии (1 — только текущая папка, MAX_VALUE — рекурсивно)
+				(path, attrs) -> attrs.isRegularFile() && (matches(path, names) || isZip(path))
+		)) {
+			paths.forEach(path -> (isZip(path) ? zipFiles : matchingFiles).add(path));
+		}
+		if (archives == null) {
+			return matchingFiles;
+		}
+		for (Path zipFile : zipFiles) {
+			for (Path root : archives.open(zipFile).getRootDirectories()) {
+				try (Stream<Path> entries = Files.find(root, Integer.MAX_VALUE,
+						(path, attrs) -> attrs.isRegularFile() && matches(path, names))) {
+					entries.forEach(matchingFiles::add);
+				}
+			}
+		}
+		return matchingFiles;
+	}
+
+	private static boolean matches(@NotNull Path path, @NotNull Predicate<String> names) {
+		return names.test(path.getFileName().toString()) && !isZip(path);
+	}
+
+	private static boolean isZip(@NotNull Path path) {
+		return path.getFileName().toString().endsWith(ZIP);
+	}
+
+	/// Возвращает частичные результаты в порядке файлов, итог совпадает с последовательным запуском
+	static <T> @NotNull List<T> analyze(@NotNull List<Path> files, @NotNull Options options, @NotNull Function<Path, T> analyzer) {
+		if (!options.parallel() || files.isEmpty()) {
+			return files.stream().map(analyzer).toList();
+		}
+		ForkJoinPool pool = new ForkJoinPool(options.threads());
+		try {
+			return pool.submit(() -> files.parallelStream().map(analyzer).toList()).join();
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/// Zip-архивы, открытые при поиске: их записи читаются при анализе, поэтому архивы закрываются после него
+	static final class Archives implements Closeable {
+		private final Map<Path, FileSystem> fileSystems = new HashMap<>();
+
+		private synchronized @NotNull FileSystem open(@NotNull Path zipFile) throws IOException {
+			FileSystem archive = fileSystems.get(zipFile);
+			if (archive == null) {
+				archive = FileSystems.newFileSystem(zipFile);
+				fileSystems.put(zipFile, archive);
+			}
+			return archive;
+		}
+
+		@Override
+		public synchronized void close() {
+			fileSystems.forEach((zipFile, archive) -> {
+				try {
+					archive.close();
+				} catch (IOException e) {
+					logError(String.format("Ошибка при закрытии архива %s: %s", zipFile, e.getMessage()));
+				}
+			});
+			fileSystems.clear();
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package ru.sam47kon.log_analyzer;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static ru.sam47kon.log_analyzer.LogAnalyzer.logDebug;
+import static ru.sam47kon.log_analyzer.LogAnalyzer.logError;
+
+/// Слежение за дописываемыми логами (--follow): файлы узнаются по fileKey и дочитываются после ротации
+final class LogFollower {
+	private final Path logDir;
+	private final String prefix;
+	private final String excludeName;
+	private final MarkerMatcher matcher;
+	private final long filter;
+	private final LineConsumer consumer;
+	private final Runnable report;
+	private final long refreshMillis;
+	// Ключ — fileKey файла, а если ФС его не поддерживает, то путь
+	private final Map<Object, FollowedFile> files = new HashMap<>();
+
+	LogFollower(@NotNull Path logDir, @NotNull String prefix, @Nullable String excludeName,
+				@NotNull MarkerMatcher matcher, long filter, @NotNull LineConsumer consumer,
+				@NotNull Runnable report, long refreshMillis) {
+		this.logDir = logDir;
+		this.prefix = prefix;
+		this.excludeName = excludeName;
+		this.matcher = matcher;
+		this.filter = filter;
+		this.consumer = consumer;
+		this.report = report;
+		this.refreshMillis = refreshMillis;
+	}
+
+	/// Работает до прерывания потока
+	void run() throws IOException, InterruptedException {
+		try (WatchService watcher = logDir.getFileSystem().newWatchService()) {
+			try (Stream<Path> dirs = Files.walk(logDir)) {
+				for (Path dir : dirs.filter(Files::isDirectory).toList()) {
+					dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+				}
+			}
+			boolean changed = readAppended();
+			long nextReport = 0;
+			while (!Thread.currentThread().isInterrupted()) {
+				long now = System.currentTimeMillis();
+				if (changed && now >= nextReport) {
+					report.run();
+					changed = false;
+					nextReport = now + refreshMillis;
+				}
+				// Событий может и не быть (сетевые ФС), поэтому файлы проверяются и по таймауту
+				WatchKey key = watcher.poll(refreshMillis, TimeUnit.MILLISECONDS);
+				if (key != null) {
+					key.pollEvents();
+					key.reset();
+				}
+				changed |= readAppended();
+			}
+		}
+	}
+
+	/// Дочитывает новые строки всех файлов, от старых к новым по времени изменения
+	private boolean readAppended() throws IOException {
+		List<FollowedFile> current = new ArrayList<>();
+		for (Path path : LogFiles.find(logDir, prefix, excludeName, null)) {
+			if (LineSource.isCompressed(path)) {
+				continue;
+			}
+			BasicFileAttributes attrs;
+			try {
+				attrs = Files.readAttributes(path, BasicFileAttributes.class);
+			} catch (NoSuchFileException e) {
+				continue;
+			}
+			Object key = attrs.fileKey() != null ? attrs.fileKey() : path;
+			FollowedFile file = files.computeIfAbsent(key, k -> new FollowedFile());
+			file.path = path;
+			file.size = attrs.size();
+			file.lastModified = attrs.lastModifiedTime();
+			current.add(file);
+		}
+		files.values().retainAll(current);
+		current.sort(Comparator.comparing(file -> file.lastModified));
+
+		boolean changed = false;
+		for (FollowedFile file : current) {
+			if (file.size < file.offset) {
+				logDebug(String.format("Файл [%s] усечен, читается заново", file.path.getFileName()));
+				file.offset = 0;
+			}
+			if (file.size == file.offset) {
+				continue;
+			}
+			try (LineSource source = LineSource.openAppended(file.path, matcher, filter, file.offset)) {
+				try {
+					consumer.accept(source);
+				} finally {
+					// Прочитанное до ошибки уже учтено, повторно его не читаем
+					changed |= source.position() != file.offset;
+					file.offset = source.position();
+				}
+			} catch (Exception e) {
+				logError(String.format("Ошибка при обработке файла [%s]: %s", file.path.getFileName(), ExceptionUtils.getRootCauseMessage(e)));
+			}
+		}
+		return changed;
+	}
+
+	@FunctionalInterface
+	interface LineConsumer {
+		void accept(LineSource source) throws Exception;
+	}
+
+	private static class FollowedFile {
+		Path path;
+		long size;
+		FileTime lastModified;
+		long offset;
+	}
+}
@@ -0,0 +1,87 @@
+package ru.sam47kon.log_analyzer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Serializable;
+import java.util.List;
+
+/// Анализатор, подключаемый к общему проходу по логам {@link AnalysisDriver}
+interface LogPlugin<T extends Serializable> {
+
+	/// Префикс имени файлов логов анализатора, он же имя анализатора в параметрах
+	@NotNull String prefix();
+
+	/// Файл отчета в папке логов, который не нужно анализировать, или null
+	@Nullable String reportName();
+
+	@NotNull MarkerMatcher markers();
+
+	/// Маска маркеров из {@link #markers()}, хотя бы один из которых должен быть в строке
+	long filter();
+
+	@NotNull T newPartial();
+
+	/// Формат времени в начале строк для --from/--to или null, если строки анализатора по времени не фильтруются
+	default @Nullable TimestampFormat timestampFormat() {
+		return null;
+	}
+
+	/// Маркер строк документа для --guid или null, если анализатор документы не различает
+	default @Nullable String guidMarker(@NotNull String guid) {
+		return null;
+	}
+
+	/// Маркер строк типа документа для --docType или null, если анализатор типы документов не различает
+	default @Nullable String docTypeMarker(@NotNull String docType) {
+		return null;
+	}
+
+	/// Начало чтения файла, в том числе дочитывания с контрольной точки
+	default void fileStarted(@NotNull T partial, @Nullable String firstLine) {
+	}
+
+	/// Нужна ли вместе со строкой следующая за ней строка файла (без фильтра по маркерам)
+	default boolean needsFollowingLine(long matches) {
+		return false;
+	}
+
+	/// @param matches        маска маркеров из {@link #markers()}, найденных в строке
+	/// @param followingLine следующая строка, если она запрошена {@link #needsFollowingLine}; null в конце файла
+	/// @param mark           отмечается, когда поля строки разобраны и начинается агрегирование
+	void line(@NotNull T partial, @NotNull String line, long matches, @Nullable String followingLine, @NotNull ParseMark mark) throws Exception;
+
+	/// @param lastLine последняя прочитанная строка или null, если новых строк не было
+	default void fileFinished(@NotNull T partial, @Nullable String lastLine) {
+	}
+
+	/// Дописывает к partial результат следующего куска того же файла, см. {@link LineSource#split}
+	void append(@NotNull T partial, @NotNull T next);
+
+	/// Оценка памяти partial в байтах по размерам коллекций, без блоков {@link EventStore}: они учитываются в {@link MemoryBudget} сами
+	default long estimatedBytes(@NotNull T partial) {
+		return 0;
+	}
+
+	/// partial выгружен на диск: возвращает в {@link MemoryBudget} место его блоков событий
+	default void release(@NotNull T partial) {
+	}
+
+	/// Частичный результат следующего куска файла, анализатор с потокобезопасными агрегатами может разделить их с first
+	default @NotNull T newChunkPartial(@NotNull T first) {
+		return newPartial();
+	}
+
+	/// Сливает частичные результаты файлов (в порядке обнаружения файлов) и пишет отчет
+	/// @return слитые события для сопоставления с другими анализаторами ({@link SobiJoin}) или null
+	@Nullable EventStore report(@NotNull List<T> partials, @NotNull Options options);
+
+	/// Граница разбора строки и агрегирования для метрик {@link AnalysisMetrics}: без отметки вся обработка строки считается разбором
+	@FunctionalInterface
+	interface ParseMark {
+		ParseMark NONE = () -> {
+		};
+
+		void parsed();
+	}
+}
@@ -0,0 +1,170 @@
+package ru.sam47kon.log_analyzer;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/// Автомат Ахо — Корасик по UTF-8 байтам маркеров, результат — битовая маска найденных маркеров (не более 64)
+final class MarkerMatcher {
+	static final int MAX_MARKERS = Long.SIZE;
+
+	private final List<String> markers;
+	private final long suffixMask;
+	// Полная таблица переходов ДКА: transitions[state * 256 + byte]
+	private final int[] transitions;
+	// Маски маркеров, которые заканчиваются в данном состоянии
+	private final long[] outputs;
+
+	private MarkerMatcher(@NotNull List<String> markers, long suffixMask) {
+		this.markers = List.copyOf(markers);
+		this.suffixMask = suffixMask;
+
+		List<int[]> children = new ArrayList<>();
+		List<Long> terminal = new ArrayList<>();
+		children.add(newNode());
+		terminal.add(0L);
+		for (int id = 0; id < markers.size(); id++) {
+			int state = 0;
+			for (byte b : markers.get(id).getBytes(StandardCharsets.UTF_8)) {
+				int next = children.get(state)[b & 0xFF];
+				if (next < 0) {
+					next = children.size();
+					children.get(state)[b & 0xFF] = next;
+					children.add(newNode());
+					terminal.add(0L);
+				}
+				state = next;
+			}
+			terminal.set(state, terminal.get(state) | 1L << id);
+		}
+
+		int states = children.size();
+		transitions = new int[states * 256];
+		outputs = new long[states];
+		int[] fail = new int[states];
+		Queue<Integer> queue = new ArrayDeque<>();
+		outputs[0] = terminal.get(0);
+		for (int b = 0; b < 256; b++) {
+			int child = children.get(0)[b];
+			transitions[b] = Math.max(child, 0);
+			if (child > 0) {
+				queue.add(child);
+			}
+		}
+		// Обход в ширину: ссылки неудач и итоговые переходы для отсутствующих в боре байтов
+		while (!queue.isEmpty()) {
+			int state = queue.poll();
+			outputs[state] = terminal.get(state) | outputs[fail[state]];
+			for (int b = 0; b < 256; b++) {
+				int child = children.get(state)[b];
+				if (child < 0) {
+					transitions[state * 256 + b] = transitions[fail[state] * 256 + b];
+				} else {
+					fail[child] = transitions[fail[state] * 256 + b];
+					transitions[state * 256 + b] = child;
+					queue.add(child);
+				}
+			}
+		}
+	}
+
+	static @NotNull Builder builder() {
+		return new Builder();
+	}
+
+	/// Общий автомат нескольких наборов маркеров: маркеры i-го набора сдвинуты на сумму размеров предыдущих наборов
+	static @NotNull MarkerMatcher combine(@NotNull List<MarkerMatcher> matchers) {
+		List<String> markers = new ArrayList<>();
+		long suffixMask = 0;
+		for (MarkerMatcher matcher : matchers) {
+			if (markers.size() + matcher.size() > MAX_MARKERS) {
+				throw new IllegalArgumentException("Не более " + MAX_MARKERS + " маркеров");
+			}
+			suffixMask |= matcher.suffixMask << markers.size();
+			markers.addAll(matcher.markers);
+		}
+		return new MarkerMatcher(markers, suffixMask);
+	}
+
+	/// Количество маркеров
+	int size() {
+		return markers.size();
+	}
+
+	@NotNull String marker(int id) {
+		return markers.get(id);
+	}
+
+	@Contract(pure = true)
+	int next(int state, byte b) {
+		return transitions[state << 8 | b & 0xFF];
+	}
+
+	@Contract(pure = true)
+	long matches(int state) {
+		return outputs[state];
+	}
+
+	/// Итоговая маска строки: маркеры contains из найденных где угодно, маркеры endsWith — из найденных в конце
+	@Contract(pure = true)
+	long lineMatches(long found, long foundAtEnd) {
+		return found & ~suffixMask | foundAtEnd & suffixMask;
+	}
+
+	/// Маска перечисленных маркеров
+	long mask(String... markers) {
+		long mask = 0;
+		for (String marker : markers) {
+			int id = this.markers.indexOf(marker);
+			if (id < 0) {
+				throw new IllegalArgumentException("Маркер не зарегистрирован: " + marker);
+			}
+			mask |= 1L << id;
+		}
+		return mask;
+	}
+
+	private static int[] newNode() {
+		int[] node = new int[256];
+		Arrays.fill(node, -1);
+		return node;
+	}
+
+	static final class Builder {
+		private final List<String> markers = new ArrayList<>();
+		private long suffixMask;
+
+		/// Строка содержит маркер
+		@NotNull Builder contains(@NotNull String marker) {
+			add(marker);
+			return this;
+		}
+
+		/// Строка заканчивается маркером
+		@NotNull Builder endsWith(@NotNull String marker) {
+			suffixMask |= 1L << add(marker);
+			return this;
+		}
+
+		@NotNull MarkerMatcher build() {
+			return new MarkerMatcher(markers, suffixMask);
+		}
+
+		private int add(@NotNull String marker) {
+			if (marker.isEmpty() || markers.contains(marker)) {
+				throw new IllegalArgumentException("Пустой или повторный маркер: '" + marker + "'");
+			}
+			if (markers.size() == MAX_MARKERS) {
+				throw new IllegalArgumentException("Не более " + MAX_MARKERS + " маркеров");
+			}
+			markers.add(marker);
+			return markers.size() - 1;
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package ru.sam47kon.log_analyzer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/// Бюджет памяти под данные анализаторов (--heap-budget): место возвращается, когда данные уходят в отчет или выгружаются на диск
+final class MemoryBudget {
+	// 0 — без ограничения
+	private static volatile long limit;
+	private static final AtomicLong used = new AtomicLong();
+
+	private MemoryBudget() {
+	}
+
+	static void configure(long bytes) {
+		limit = bytes;
+		used.set(0);
+	}
+
+	static boolean enabled() {
+		return limit > 0;
+	}
+
+	/// Резервирует bytes, если они помещаются в бюджет
+	static boolean tryReserve(long bytes) {
+		if (limit <= 0) {
+			return true;
+		}
+		long current;
+		do {
+			current = used.get();
+			if (current + bytes > limit) {
+				return false;
+			}
+		} while (!used.compareAndSet(current, current + bytes));
+		return true;
+	}
+
+	static void release(long bytes) {
+		if (limit > 0) {
+			used.addAndGet(-bytes);
+		}
+	}
+}
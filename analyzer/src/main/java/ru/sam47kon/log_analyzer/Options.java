@@ -0,0 +1,130 @@
+package ru.sam47kon.log_analyzer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/// Параметры запуска анализаторов: [путь к логам] [--sequential] [--threads N] [--follow] [--refresh секунд] [--checkpoints]
+/// [--intervals минут,...] — ширины интервалов в отчетах по времени, по умолчанию 5 минут
+/// [--heap-budget размер] — бюджет памяти под накопленные данные (512m, 2g), см. {@link MemoryBudget}; 0 — без ограничения
+/// [--event-cache] — хранить разобранные события рядом с логами, см. {@link EventCache}
+/// [--chunk-size размер] — файл больше этого размера разбирается кусками параллельно, см. {@link LineSource#split}; 0 — целиком
+/// [--from время] [--to время] — только строки с временем в [from, to), время как 2025-03-27 09:30[:ss[.SSS]]
+/// [--guid GUID] [--docType тип] — только строки документа или типа документа у анализаторов, которые их различают
+/// [--sobi-join] — сопоставить запросы SOBI из логов POIB с переходами сервера, см. {@link SobiJoin}
+/// [--metrics] — строка прогресса и сводка скорости чтения, стадий, памяти и GC, см. {@link AnalysisMetrics}
+/// [--gauge-resolution секунд] — ширина интервалов ряда одновременно выполняемых переходов, по умолчанию 10 секунд, см. {@link ConcurrencyGauge}
+record Options(Path logDir, boolean parallel, int threads, boolean follow, int refreshSeconds, boolean checkpoints,
+			   List<Integer> intervalMinutes, long heapBudget, boolean eventCache, long chunkBytes,
+			   @Nullable LocalDateTime from, @Nullable LocalDateTime to, @Nullable String guid, @Nullable String docType, boolean sobiJoin,
+			   int gaugeSeconds, boolean metrics) {
+	private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm[:ss[.SSS]]");
+
+	static @NotNull Options parse(String[] args, String defaultLogDir) {
+		Path logDir = Paths.get(defaultLogDir);
+		boolean parallel = true;
+		int threads = Runtime.getRuntime().availableProcessors();
+		boolean follow = false;
+		int refreshSeconds = 30;
+		boolean checkpoints = false;
+		List<Integer> intervalMinutes = List.of(5);
+		long heapBudget = 0;
+		boolean eventCache = false;
+		long chunkBytes = 64 << 20;
+		LocalDateTime from = null;
+		LocalDateTime to = null;
+		String guid = null;
+		String docType = null;
+		boolean sobiJoin = false;
+		int gaugeSeconds = 10;
+		boolean metrics = false;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "--sequential" -> parallel = false;
+				case "--threads" -> threads = Integer.parseInt(value(args, ++i));
+				case "--follow" -> follow = true;
+				case "--refresh" -> refreshSeconds = Integer.parseInt(value(args, ++i));
+				case "--checkpoints" -> checkpoints = true;
+				case "--intervals" -> intervalMinutes = intervals(value(args, ++i));
+				case "--heap-budget" -> heapBudget = bytes(value(args, ++i));
+				case "--event-cache" -> eventCache = true;
+				case "--chunk-size" -> chunkBytes = bytes(value(args, ++i));
+				case "--from" -> from = time(value(args, ++i));
+				case "--to" -> to = time(value(args, ++i));
+				case "--guid" -> guid = value(args, ++i).trim();
+				case "--docType" -> docType = value(args, ++i).trim();
+				case "--sobi-join" -> sobiJoin = true;
+				case "--gauge-resolution" -> gaugeSeconds = Integer.parseInt(value(args, ++i));
+				case "--metrics" -> metrics = true;
+				default -> {
+					if (args[i].startsWith("--")) {
+						throw new IllegalArgumentException("Неизвестный параметр: " + args[i]);
+					}
+					logDir = Paths.get(args[i]);
+				}
+			}
+		}
+		return new Options(logDir, parallel && threads > 1, Math.max(threads, 1), follow, Math.max(refreshSeconds, 1), checkpoints,
+				intervalMinutes, heapBudget, eventCache, chunkBytes, from, to, guid, docType, sobiJoin,
+				Math.max(gaugeSeconds, 1), metrics);
+	}
+
+	boolean timeFiltered() {
+		return from != null || to != null;
+	}
+
+	/// Добавка к именам контрольных точек и ключу кэша событий, чтобы не смешивать результаты с разными фильтрами
+	@NotNull String filterKey() {
+		if (!timeFiltered() && guid == null && docType == null && !sobiJoin) {
+			return "";
+		}
+		return "@" + Integer.toHexString(Objects.hash(from, to, guid, docType, sobiJoin));
+	}
+
+	private static @NotNull LocalDateTime time(@NotNull String value) {
+		try {
+			return LocalDateTime.parse(value.trim().replace('T', ' '), TIME);
+		} catch (DateTimeParseException e) {
+			throw new IllegalArgumentException("Время задается как yyyy-MM-dd HH:mm[:ss[.SSS]]: " + value);
+		}
+	}
+
+	private static @NotNull List<Integer> intervals(@NotNull String value) {
+		List<Integer> intervals = Arrays.stream(value.split(",")).map(String::trim).map(Integer::valueOf).distinct().sorted().toList();
+		if (intervals.isEmpty() || intervals.get(0) < 1) {
+			throw new IllegalArgumentException("Интервалы задаются целым числом минут: " + value);
+		}
+		return intervals;
+	}
+
+	/// Размер в байтах с необязательным суффиксом k, m или g
+	private static long bytes(@NotNull String value) {
+		String number = value.trim().toLowerCase();
+		int shift = switch (number.isEmpty() ? ' ' : number.charAt(number.length() - 1)) {
+			case 'k' -> 10;
+			case 'm' -> 20;
+			case 'g' -> 30;
+			default -> 0;
+		};
+		long bytes = Long.parseLong(shift == 0 ? number : number.substring(0, number.length() - 1)) << shift;
+		if (bytes < 0) {
+			throw new IllegalArgumentException("Размер не может быть отрицательным: " + value);
+		}
+		return bytes;
+	}
+
+	private static String value(String[] args, int i) {
+		if (i >= args.length) {
+			throw new IllegalArgumentException("Не задано значение параметра " + args[i - 1]);
+		}
+		return args[i];
+	}
+}
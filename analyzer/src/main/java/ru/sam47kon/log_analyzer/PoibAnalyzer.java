@@ -0,0 +1,209 @@
+package ru.sam47kon.log_analyzer;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Serial;
+import java.io.Serializable;
+import java.text.ParseException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static ru.sam47kon.log_analyzer.LogAnalyzer.*;
+
+public class PoibAnalyzer {
+
+	private static final String PATH_TO_LOG_FILE = "C:\\Users\\bulavin.ilya\\Downloads\\fr07_logs\\";
+
+	private static final String POIB_PATTERN = "poib";
+	private static final String REQUEST_SOBI_PATTERN = "Сформирован запрос на ";
+	private static final MarkerMatcher MARKERS = MarkerMatcher.builder().contains(REQUEST_SOBI_PATTERN).build();
+	private static final TimestampFormat TIME_LOG_FORMAT = TimestampFormat.YEAR_MONTH_DAY;
+	private static final String POIB_LOG_DETAILS = "poibLogDetails.log";
+	private static final String RESOURCE_PATTERN = "SobiResourceActionPair";
+	// Запросы для --sobi-join: время, количество ресурсов в колонке длительности, поток и тип запроса
+	static final int REQUEST_THREAD = 0;
+	static final int REQUEST_TYPE = 1;
+	// У запросов нет документа
+	private static final Guid NO_GUID = new Guid(0, 0, null);
+
+	public static void main(String[] args) {
+		AnalysisDriver.run(Options.parse(args, PATH_TO_LOG_FILE), List.of(new Plugin()));
+	}
+
+	static @NotNull String requestType(@NotNull String line) {
+		return StringUtils.substringAfter(StringUtils.substringBetween(line, REQUEST_SOBI_PATTERN, "("), ": ");
+	}
+
+	/// Количество пар ресурс–действие в запросе
+	static int resources(@NotNull String line) {
+		return StringUtils.countMatches(line, RESOURCE_PATTERN);
+	}
+
+	/// Запросы к SOBI по типам в логах POIB
+	static final class Plugin implements LogPlugin<AnalysisData> {
+		// Хранить запросы для {@link SobiJoin}
+		private final boolean joinEvents;
+
+		Plugin() {
+			this(false);
+		}
+
+		Plugin(boolean joinEvents) {
+			this.joinEvents = joinEvents;
+		}
+
+		@Override
+		public @NotNull String prefix() {
+			return POIB_PATTERN;
+		}
+
+		@Override
+		public @NotNull String reportName() {
+			return POIB_LOG_DETAILS;
+		}
+
+		@Override
+		public @NotNull MarkerMatcher markers() {
+			return MARKERS;
+		}
+
+		@Override
+		public long filter() {
+			return MARKERS.mask(REQUEST_SOBI_PATTERN);
+		}
+
+		@Override
+		public @NotNull AnalysisData newPartial() {
+			return new AnalysisData(joinEvents);
+		}
+
+		@Override
+		public @NotNull TimestampFormat timestampFormat() {
+			return TIME_LOG_FORMAT;
+		}
+
+		@Override
+		public void fileStarted(@NotNull AnalysisData analysisData, String firstLine) {
+			if (firstLine != null) {
+				analysisData.logStart = "Начало лога: " + StringUtils.trim(StringUtils.substringBefore(firstLine, " ["));
+			}
+		}
+
+		@Override
+		public void line(@NotNull AnalysisData analysisData, @NotNull String line, long matches, String followingLine,
+						 @NotNull ParseMark mark) throws ParseException {
+			long timeLog = TIME_LOG_FORMAT.parse(line);
+			String typeRequest = requestType(line);
+			EventStore requestEvents = analysisData.requestEvents;
+			int resources = requestEvents != null ? resources(line) : 0;
+			String threadName = requestEvents != null ? LogAnalyzer.threadName(line) : null;
+			mark.parsed();
+			analysisData.requests.computeIfAbsent(typeRequest, k -> new IntervalHistogram(TimeUnit.MINUTES.toMillis(1))).add(timeLog);
+			if (requestEvents != null) {
+				requestEvents.add(timeLog, NO_GUID, resources, threadName, typeRequest);
+			}
+		}
+
+		@Override
+		public void fileFinished(@NotNull AnalysisData analysisData, String lastLine) {
+			// Файл, дочитываемый с контрольной точки, мог не получить новых строк
+			if (lastLine != null || analysisData.logEnd == null) {
+				analysisData.logEnd = "Конец лога: " + StringUtils.substringBefore(lastLine, " [");
+			}
+		}
+
+		@Override
+		public void release(@NotNull AnalysisData analysisData) {
+			if (analysisData.requestEvents != null) {
+				analysisData.requestEvents.release();
+			}
+		}
+
+		@Override
+		public void append(@NotNull AnalysisData analysisData, @NotNull AnalysisData next) {
+			analysisData.merge(next);
+			if (next.logEnd != null) {
+				analysisData.logEnd = next.logEnd;
+			}
+		}
+
+		@Override
+		public @Nullable EventStore report(@NotNull List<AnalysisData> partials, @NotNull Options options) {
+			AnalysisData analysisData = newPartial();
+			for (AnalysisData partial : partials) {
+				partial.printLogBounds();
+				analysisData.merge(partial);
+			}
+			writeAnalysis(analysisData.requests, options.logDir().resolve(POIB_LOG_DETAILS).toString(), options.intervalMinutes());
+			return analysisData.requestEvents;
+		}
+	}
+
+	private static void writeAnalysis(@NotNull Map<String, IntervalHistogram> analysisData, String fileName, @NotNull List<Integer> intervalMinutes) {
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
+			writer.write(String.format("Запросы SOBI: \n\t%s", analysisData.entrySet().stream().map(e -> e.getKey() + ": " + e.getValue().total()).collect(Collectors.joining("\n\t"))));
+			for (int minutes : intervalMinutes) {
+				writer.newLine();
+				writer.write("Количество запросов по временным интервалам (" + minutes + " минут):");
+				for (Map.Entry<String, IntervalHistogram> entry : analysisData.entrySet()) {
+					writeRequestsByInterval(entry.getKey(), writer, entry.getValue(), minutes);
+				}
+			}
+		} catch (IOException e) {
+			logError("Ошибка при записи в файл: " + e.getMessage());
+		}
+		logDebug("Данные успешно записаны в файл: " + fileName);
+	}
+
+	private static void writeRequestsByInterval(String typeRequest, @NotNull BufferedWriter writer, @NotNull IntervalHistogram requestsByInterval,
+												int intervalMinutes) throws IOException {
+		writer.newLine();
+		writer.write(String.format("%s:\n", typeRequest));
+		requestsByInterval.forEach(TimeUnit.MINUTES.toMillis(intervalMinutes), (start, end, count) -> {
+			writer.write(intervalLabel(start, end) + ": " + count);
+			writer.newLine();
+		});
+	}
+
+	private static class AnalysisData implements Serializable {
+		@Serial
+		private static final long serialVersionUID = 1L;
+
+		// LinkedHashMap: порядок ключей не зависит от того, сливались ли частичные результаты
+		// Запросы по типам и минутам, более крупные интервалы складываются при выводе
+		LinkedHashMap<String, IntervalHistogram> requests = new LinkedHashMap<>();
+		// Запросы для --sobi-join, null — не хранятся
+		final EventStore requestEvents;
+		String logStart;
+		String logEnd;
+
+		AnalysisData(boolean joinEvents) {
+			this.requestEvents = joinEvents ? new EventStore(2) : null;
+		}
+
+		void merge(@NotNull AnalysisData other) {
+			other.requests.forEach((typeRequest, histogram) -> requests.merge(typeRequest, histogram, (a, b) -> {
+				a.merge(b);
+				return a;
+			}));
+			if (requestEvents != null && other.requestEvents != null) {
+				requestEvents.addAll(other.requestEvents);
+			}
+		}
+
+		void printLogBounds() {
+			if (logStart != null) {
+				System.out.println(logStart);
+			}
+			if (logEnd != null) {
+				System.out.println(logEnd);
+			}
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package ru.sam47kon.log_analyzer;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+import static ru.sam47kon.log_analyzer.LogAnalyzer.*;
+
+/// Сопоставление запросов SOBI с переходами сервера (--sobi-join): запрос относится к самому позднему открытому переходу его потока
+final class SobiJoin {
+	static final String SOBI_TRANSITIONS = "sobiTransitions.log";
+
+	private SobiJoin() {
+	}
+
+	/// @param transitions завершенные переходы {@link LogAnalyzer.Plugin}
+	/// @param requests    запросы SOBI {@link PoibAnalyzer.Plugin}
+	static void report(@NotNull EventStore transitions, @NotNull EventStore requests, @NotNull Options options) {
+		Transition[] opened = transitions(transitions);
+		Request[] sent = requests(requests);
+		Map<String, Deque<Transition>> open = new HashMap<>();
+		long attributed = 0;
+		int next = 0;
+		for (Request request : sent) {
+			for (; next < opened.length && opened[next].start <= request.time; next++) {
+				open.computeIfAbsent(opened[next].thread, k -> new ArrayDeque<>()).push(opened[next]);
+			}
+			Deque<Transition> stack = open.get(request.thread);
+			if (stack == null) {
+				continue;
+			}
+			// Стек упорядочен по запуску: завершившиеся до запроса снимаются, пока на вершине не окажется открытый
+			while (!stack.isEmpty() && stack.peek().end < request.time) {
+				stack.pop();
+			}
+			Transition transition = stack.peek();
+			if (transition != null) {
+				transition.calls++;
+				transition.resources += request.resources;
+				transition.types.merge(request.type, 1, Integer::sum);
+				attributed++;
+			}
+		}
+		write(opened, sent.length, attributed, options.logDir().resolve(SOBI_TRANSITIONS).toString());
+	}
+
+	private static Transition @NotNull [] transitions(@NotNull EventStore events) {
+		Transition[] transitions = new Transition[(int) events.size()];
+		int i = 0;
+		for (EventStore.Chunk chunk : events.chunks()) {
+			for (int row = 0; row < chunk.rows(); row++) {
+				long start = chunk.time(row);
+				transitions[i++] = new Transition(start, start + chunk.duration(row),
+						events.name(chunk.symbol(COMPLETED_THREAD, row)), events.name(chunk.symbol(COMPLETED_TRANSITION, row)));
+			}
+		}
+		// Сортировка устойчива: переходы с одним временем запуска остаются в порядке логов
+		Arrays.sort(transitions, Comparator.comparingLong(transition -> transition.start));
+		return transitions;
+	}
+
+	private static Request @NotNull [] requests(@NotNull EventStore events) {
+		Request[] requests = new Request[(int) events.size()];
+		int i = 0;
+		for (EventStore.Chunk chunk : events.chunks()) {
+			for (int row = 0; row < chunk.rows(); row++) {
+				LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(chunk.time(row)), ZoneId.systemDefault());
+				requests[i++] = new Request(TIME_LOG_FORMAT.epochMillis(time), chunk.duration(row),
+						events.name(chunk.symbol(PoibAnalyzer.REQUEST_THREAD, row)), events.name(chunk.symbol(PoibAnalyzer.REQUEST_TYPE, row)));
+			}
+		}
+		Arrays.sort(requests, Comparator.comparingLong(Request::time));
+		return requests;
+	}
+
+	private static void write(Transition @NotNull [] transitions, long requests, long attributed, @NotNull String fileName) {
+		Map<String, LatencyHistogram> calls = new HashMap<>();
+		Map<String, LatencyHistogram> resources = new HashMap<>();
+		Map<String, Map<String, Integer>> types = new TreeMap<>();
+		for (Transition transition : transitions) {
+			// Переходы без запросов тоже учитываются: иначе перцентили завышены
+			calls.computeIfAbsent(transition.name, k -> new LatencyHistogram()).record(transition.calls);
+			resources.computeIfAbsent(transition.name, k -> new LatencyHistogram()).record(transition.resources);
+			transition.types.forEach((type, count) -> types.computeIfAbsent(transition.name, k -> new TreeMap<>()).merge(type, count, Integer::sum));
+		}
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
+			writer.write(String.format("Переходов: %d, запросов SOBI: %d, отнесено к переходам: %d, вне переходов: %d",
+					transitions.length, requests, attributed, requests - attributed));
+			writer.newLine();
+			writeDistributions(writer, "SOBI-запросов на переход:", calls, "");
+			writer.newLine();
+			writeDistributions(writer, "Ресурсов SobiResourceActionPair на переход:", resources, "");
+			writer.newLine();
+			writer.newLine();
+			writer.write("Типы запросов по переходам:");
+			for (Map.Entry<String, Map<String, Integer>> entry : types.entrySet()) {
+				writer.write(String.format("%n\t%s: %s", entry.getKey(), entry.getValue()));
+			}
+			writer.newLine();
+		} catch (IOException e) {
+			logError("Ошибка при записи в файл: " + ExceptionUtils.getRootCauseMessage(e));
+			return;
+		}
+		logDebug("Данные успешно записаны в файл: " + fileName);
+	}
+
+	private record Request(long time, int resources, String thread, String type) {
+	}
+
+	/// Переход с накопленными за время его выполнения запросами потока
+	private static final class Transition {
+		final long start;
+		final long end;
+		final String thread;
+		final String name;
+		long calls;
+		long resources;
+		final Map<String, Integer> types = new HashMap<>(2);
+
+		Transition(long start, long end, String thread, String name) {
+			this.start = start;
+			this.end = end;
+			this.thread = thread;
+			this.name = name;
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package ru.sam47kon.log_analyzer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/// Словарь повторяющихся строк: каждая хранится один раз, записи держат ее номер
+final class Symbols implements Serializable {
+	@Serial
+	private static final long serialVersionUID = 1L;
+
+	private final ArrayList<String> names = new ArrayList<>();
+	private transient Map<String, Integer> ids = new HashMap<>();
+
+	/// Номер строки, новые строки получают следующий номер. null тоже строка словаря
+	int id(@Nullable String name) {
+		Integer id = ids.get(name);
+		if (id == null) {
+			id = names.size();
+			names.add(name);
+			ids.put(name, id);
+		}
+		return id;
+	}
+
+	@Nullable String name(int id) {
+		return names.get(id);
+	}
+
+	/// Единственный экземпляр равной строки
+	@Nullable String intern(@Nullable String name) {
+		return names.get(id(name));
+	}
+
+	int size() {
+		return names.size();
+	}
+
+	/// Добавляет строки другого словаря и возвращает таблицу перевода его номеров в номера этого
+	int @NotNull [] merge(@NotNull Symbols other) {
+		int[] table = new int[other.names.size()];
+		for (int i = 0; i < table.length; i++) {
+			table[i] = id(other.names.get(i));
+		}
+		return table;
+	}
+
+	/// Номера не меняются: другой словарь совпадает с началом этого, записи можно переносить без перевода
+	static boolean isIdentity(int @NotNull [] table) {
+		for (int i = 0; i < table.length; i++) {
+			if (table[i] != i) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Serial
+	private void readObject(@NotNull ObjectInputStream stream) throws IOException, ClassNotFoundException {
+		stream.defaultReadObject();
+		ids = new HashMap<>();
+		for (int i = 0; i < names.size(); i++) {
+			ids.put(names.get(i), i);
+		}
+	}
+}
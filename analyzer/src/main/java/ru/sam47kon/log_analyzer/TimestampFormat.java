@@ -0,0 +1,159 @@
+package ru.sam47kon.log_analyzer;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/// Метка времени фиксированного формата в начале строки лога, разбор по позициям полей сразу в epoch millis
+public enum TimestampFormat {
+	/// Год в логе не пишется, как и SimpleDateFormat берем 1970
+	MONTH_DAY("MM-dd;HH:mm:ss.SSS"),
+	YEAR_MONTH_DAY("yyyy-MM-dd HH:mm:ss,SSS");
+
+	private static final String FIELDS = "yMdHmsS";
+	private static final int YEAR = 0, MONTH = 1, DAY = 2, HOUR = 3, MINUTE = 4, SECOND = 5, MILLIS = 6;
+	private static final ZoneRules ZONE_RULES = ZoneId.systemDefault().getRules();
+
+	// Смещение часового пояса, действующее на интервале локального времени [fromLocal, toLocal)
+	private static volatile OffsetRange offsetRange = new OffsetRange(0, 0, 0);
+
+	private final String pattern;
+	private final int length;
+	private final int[] fieldOffsets = new int[FIELDS.length()];
+	private final int[] fieldWidths = new int[FIELDS.length()];
+	private final DateTimeFormatter formatter;
+
+	TimestampFormat(@NotNull String pattern) {
+		this.pattern = pattern;
+		this.length = pattern.length();
+		this.formatter = DateTimeFormatter.ofPattern(pattern).withZone(ZoneId.systemDefault());
+		for (int i = 0; i < length; i++) {
+			int field = FIELDS.indexOf(pattern.charAt(i));
+			if (field >= 0 && fieldWidths[field]++ == 0) {
+				fieldOffsets[field] = i;
+			}
+		}
+	}
+
+	public @NotNull String pattern() {
+		return pattern;
+	}
+
+	/// Разбирает метку времени в начале строки, остаток строки игнорируется
+	public long parse(@NotNull CharSequence line) throws ParseException {
+		if (line.length() < length) {
+			throw unparseable(line, line.length());
+		}
+		for (int i = 0; i < length; i++) {
+			char expected = pattern.charAt(i);
+			if (FIELDS.indexOf(expected) < 0 && line.charAt(i) != expected) {
+				throw unparseable(line, i);
+			}
+		}
+		int year = fieldWidths[YEAR] == 0 ? 1970 : field(line, YEAR);
+		int month = field(line, MONTH);
+		int day = field(line, DAY);
+		int hour = field(line, HOUR);
+		int minute = field(line, MINUTE);
+		int second = field(line, SECOND);
+		int millis = field(line, MILLIS);
+		if (month < 1 || month > 12 || day < 1 || day > 31 || hour > 23 || minute > 59 || second > 59) {
+			throw unparseable(line, 0);
+		}
+		long localMillis = epochDay(year, month, day) * 86_400_000L
+				+ hour * 3_600_000L + minute * 60_000L + second * 1000L + millis;
+		return toEpochMillis(localMillis);
+	}
+
+	/// Длина метки времени в начале строки
+	public int length() {
+		return length;
+	}
+
+	/// Время в epoch millis так же, как его вернул бы {@link #parse} для строки с этим временем: без года в формате — 1970
+	public long epochMillis(@NotNull LocalDateTime time) {
+		int year = fieldWidths[YEAR] == 0 ? 1970 : time.getYear();
+		long localMillis = epochDay(year, time.getMonthValue(), time.getDayOfMonth()) * 86_400_000L
+				+ time.toLocalTime().toNanoOfDay() / 1_000_000L;
+		return toEpochMillis(localMillis);
+	}
+
+	public @NotNull String format(long epochMillis) {
+		return formatter.format(Instant.ofEpochMilli(epochMillis));
+	}
+
+	private int field(@NotNull CharSequence line, int field) throws ParseException {
+		int value = 0;
+		for (int i = fieldOffsets[field], end = i + fieldWidths[field]; i < end; i++) {
+			int digit = line.charAt(i) - '0';
+			if (digit < 0 || digit > 9) {
+				throw unparseable(line, i);
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	private @NotNull ParseException unparseable(@NotNull CharSequence line, int errorOffset) {
+		return new ParseException(String.format("Время \"%s\" не соответствует формату %s",
+				line.subSequence(0, Math.min(line.length(), length)), pattern), errorOffset);
+	}
+
+	/// Количество дней от 1970-01-01 по григорианскому календарю
+	private static long epochDay(int year, int month, int day) {
+		long y = month <= 2 ? year - 1 : year;
+		long era = Math.floorDiv(y, 400);
+		long yearOfEra = y - era * 400;
+		long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146_097 + dayOfEra - 719_468;
+	}
+
+	private static long toEpochMillis(long localMillis) {
+		OffsetRange range = offsetRange;
+		if (localMillis < range.fromLocal || localMillis >= range.toLocal) {
+			range = offsetRange(localMillis);
+			offsetRange = range;
+		}
+		return localMillis - range.offsetMillis;
+	}
+
+	private static @NotNull OffsetRange offsetRange(long localMillis) {
+		LocalDateTime local = LocalDateTime.ofEpochSecond(Math.floorDiv(localMillis, 1000), 0, ZoneOffset.UTC);
+		ZoneOffsetTransition transition = ZONE_RULES.getTransition(local);
+		if (transition != null) {
+			// Перевод часов: время попало в разрыв или перекрытие, такой интервал не кэшируем.
+			// Как и SimpleDateFormat, в перекрытии берем смещение после перевода, в разрыве — до него
+			ZoneOffset offset = transition.isOverlap() ? transition.getOffsetAfter() : transition.getOffsetBefore();
+			return new OffsetRange(localMillis, localMillis + 1, offset.getTotalSeconds() * 1000L);
+		}
+		ZoneOffset offset = ZONE_RULES.getOffset(local);
+		long offsetMillis = offset.getTotalSeconds() * 1000L;
+		Instant instant = local.toInstant(offset);
+		ZoneOffsetTransition previous = ZONE_RULES.previousTransition(instant.plusSeconds(1));
+		if (previous != null && previous.getInstant().isAfter(instant)) {
+			previous = ZONE_RULES.previousTransition(previous.getInstant());
+		}
+		ZoneOffsetTransition next = ZONE_RULES.nextTransition(instant);
+		long fromLocal = previous == null ? Long.MIN_VALUE : localMillis(previous, true);
+		long toLocal = next == null ? Long.MAX_VALUE : localMillis(next, false);
+		return new OffsetRange(fromLocal, toLocal, offsetMillis);
+	}
+
+	/// Граница однозначного локального времени у перехода: конец разрыва/перекрытия или его начало
+	private static long localMillis(@NotNull ZoneOffsetTransition transition, boolean end) {
+		long before = transition.getDateTimeBefore().toEpochSecond(ZoneOffset.UTC);
+		long after = transition.getDateTimeAfter().toEpochSecond(ZoneOffset.UTC);
+		return (end ? Math.max(before, after) : Math.min(before, after)) * 1000L;
+	}
+
+	private record OffsetRange(long fromLocal, long toLocal, long offsetMillis) {
+	}
+}
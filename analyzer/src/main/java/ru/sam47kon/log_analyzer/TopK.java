@@ -0,0 +1,57 @@
+package ru.sam47kon.log_analyzer;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/// Не более limit элементов с наибольшим ключом, при равных ключах остается добавленный раньше
+final class TopK<T> implements Serializable {
+	@Serial
+	private static final long serialVersionUID = 1L;
+
+	private final int limit;
+	private final PriorityQueue<Entry<T>> heap = new PriorityQueue<>();
+	private long added;
+
+	TopK(int limit) {
+		this.limit = limit;
+	}
+
+	void add(long key, T value) {
+		Entry<T> entry = new Entry<>(key, added++, value);
+		if (heap.size() < limit) {
+			heap.add(entry);
+		} else if (limit > 0 && entry.compareTo(heap.peek()) > 0) {
+			heap.poll();
+			heap.add(entry);
+		}
+	}
+
+	/// Элементы другой выборки считаются добавленными после элементов этой
+	void merge(@NotNull TopK<T> other) {
+		List<Entry<T>> entries = new ArrayList<>(other.heap);
+		entries.sort(Comparator.comparingLong(Entry::order));
+		entries.forEach(entry -> add(entry.key, entry.value));
+	}
+
+	/// По убыванию ключа
+	@NotNull List<T> sorted() {
+		List<Entry<T>> entries = new ArrayList<>(heap);
+		entries.sort(Comparator.reverseOrder());
+		return entries.stream().map(Entry::value).toList();
+	}
+
+	private record Entry<T>(long key, long order, T value) implements Comparable<Entry<T>>, Serializable {
+		/// Больше — лучше: больший ключ, при равных ключах — добавленный раньше
+		@Override
+		public int compareTo(@NotNull Entry<T> other) {
+			int compareKey = Long.compare(key, other.key);
+			return compareKey != 0 ? compareKey : Long.compare(other.order, order);
+		}
+	}
+}
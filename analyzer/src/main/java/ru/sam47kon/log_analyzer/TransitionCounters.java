@@ -0,0 +1,168 @@
+package ru.sam47kon.log_analyzer;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/// Счетчики переходов и статистика документов лога сервера, общие для параллельно разбираемых кусков файла
+final class TransitionCounters implements Serializable {
+	@Serial
+	private static final long serialVersionUID = 1L;
+
+	// Запись карты документов с GUID и статистикой документа на пару переходов
+	private static final int DOCUMENT_BYTES = 192;
+
+	final LongAdder startVerify = new LongAdder();
+	final LongAdder endVerify = new LongAdder();
+	final LongAdder startTransitions = new LongAdder();
+	final LongAdder endTransitions = new LongAdder();
+	// Имена переходов по номерам: новые имена редки и добавляются под блокировкой
+	private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+	private final CopyOnWriteArrayList<String> names = new CopyOnWriteArrayList<>();
+	// Запуски по номерам имен
+	private volatile LongAdder[] starts = new LongAdder[0];
+	private final ConcurrentHashMap<Guid, DocumentStats> documents = new ConcurrentHashMap<>();
+
+	/// Номер имени перехода, новые имена получают следующий номер
+	int transition(@NotNull String name) {
+		Integer id = ids.get(name);
+		return id != null ? id : addTransition(name);
+	}
+
+	@NotNull String name(int transition) {
+		return names.get(transition);
+	}
+
+	void started(int transition) {
+		startTransitions.increment();
+		starts[transition].increment();
+	}
+
+	void ended() {
+		endTransitions.increment();
+	}
+
+	/// Строка запуска или завершения перехода документа
+	void document(@NotNull Guid guid, int transition, long timeLog) {
+		documents.compute(guid, (key, stats) -> {
+			DocumentStats document = stats != null ? stats : new DocumentStats();
+			document.add(transition, timeLog);
+			return document;
+		});
+	}
+
+	/// Оценка памяти статистики документов, остальное ограничено количеством имен переходов
+	long estimatedBytes() {
+		return documents.mappingCount() * DOCUMENT_BYTES;
+	}
+
+	/// Добавляет счетчики другого экземпляра, номера его имен переводятся в свои
+	void merge(@NotNull TransitionCounters other) {
+		startVerify.add(other.startVerify.sum());
+		endVerify.add(other.endVerify.sum());
+		startTransitions.add(other.startTransitions.sum());
+		endTransitions.add(other.endTransitions.sum());
+		int[] table = new int[other.names.size()];
+		for (int id = 0; id < table.length; id++) {
+			table[id] = transition(other.names.get(id));
+			starts[table[id]].add(other.starts[id].sum());
+		}
+		other.documents.forEach((guid, stats) -> documents.compute(guid, (key, document) -> {
+			DocumentStats merged = document != null ? document : new DocumentStats();
+			merged.merge(stats, table);
+			return merged;
+		}));
+	}
+
+	/// Количество запусков по именам переходов
+	@NotNull Map<String, Long> startsByName() {
+		Map<String, Long> counts = new LinkedHashMap<>();
+		for (int id = 0; id < names.size(); id++) {
+			counts.put(names.get(id), starts[id].sum());
+		}
+		return counts;
+	}
+
+	/// Документы не менее чем с minLines строками по времени первой строки: GUID и имена переходов по времени их первой строки
+	@NotNull List<Map.Entry<Guid, DocumentStats>> documents(int minLines) {
+		return documents.entrySet().stream()
+				.filter(entry -> entry.getValue().lines >= minLines)
+				.sorted(Comparator.<Map.Entry<Guid, DocumentStats>>comparingLong(entry -> entry.getValue().firstTimeLog)
+						.thenComparing(entry -> entry.getKey().toString()))
+				.toList();
+	}
+
+	private synchronized int addTransition(@NotNull String name) {
+		Integer id = ids.get(name);
+		if (id == null) {
+			id = names.size();
+			names.add(name);
+			LongAdder[] grown = Arrays.copyOf(starts, id + 1);
+			grown[id] = new LongAdder();
+			starts = grown;
+			// Номер публикуется последним: поток, получивший его из ids, видит и счетчик
+			ids.put(name, id);
+		}
+		return id;
+	}
+
+	/// Статистика документа, изменяется только под блокировкой его записи в documents
+	static final class DocumentStats implements Serializable {
+		@Serial
+		private static final long serialVersionUID = 1L;
+
+		// Строк запуска и завершения переходов документа
+		int lines;
+		long firstTimeLog = Long.MAX_VALUE;
+		// Номера имен переходов без повторов и время их первой строки; у документа их единицы
+		private int[] transitions = new int[2];
+		private long[] firstTimeLogs = new long[2];
+		private int transitionCount;
+
+		private void add(int transition, long timeLog) {
+			lines++;
+			addTransition(transition, timeLog);
+		}
+
+		private void merge(@NotNull DocumentStats other, int @NotNull [] table) {
+			lines += other.lines;
+			for (int i = 0; i < other.transitionCount; i++) {
+				addTransition(table[other.transitions[i]], other.firstTimeLogs[i]);
+			}
+		}
+
+		@NotNull String transitionNames(@NotNull TransitionCounters counters) {
+			Integer[] order = new Integer[transitionCount];
+			for (int i = 0; i < transitionCount; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, Comparator.<Integer>comparingLong(i -> firstTimeLogs[i]).thenComparing(i -> counters.name(transitions[i])));
+			StringJoiner names = new StringJoiner(",");
+			for (int i : order) {
+				names.add(counters.name(transitions[i]));
+			}
+			return names.toString();
+		}
+
+		private void addTransition(int transition, long timeLog) {
+			firstTimeLog = Math.min(firstTimeLog, timeLog);
+			for (int i = 0; i < transitionCount; i++) {
+				if (transitions[i] == transition) {
+					firstTimeLogs[i] = Math.min(firstTimeLogs[i], timeLog);
+					return;
+				}
+			}
+			if (transitionCount == transitions.length) {
+				transitions = Arrays.copyOf(transitions, 2 * transitionCount);
+				firstTimeLogs = Arrays.copyOf(firstTimeLogs, 2 * transitionCount);
+			}
+			firstTimeLogs[transitionCount] = timeLog;
+			transitions[transitionCount++] = transition;
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package ru.sam47kon.log_analyzer;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.*;
+
+/// Сопоставление запусков и завершений переходов по ключу (guid, имя перехода) по мере чтения лога
+final class TransitionTracker implements Serializable {
+	@Serial
+	private static final long serialVersionUID = 1L;
+
+	// Запись карты с ключом, GUID, очередью и одним запуском или завершением
+	private static final int ENTRY_BYTES = 192;
+
+	private final LinkedHashMap<Key, ArrayDeque<Start>> open = new LinkedHashMap<>();
+	private final LinkedHashMap<Key, ArrayDeque<Long>> orphanEnds = new LinkedHashMap<>();
+
+	void start(Guid guid, String transitionName, String threadName, long timeLog) {
+		open.computeIfAbsent(new Key(guid, transitionName), k -> new ArrayDeque<>(1)).add(new Start(timeLog, threadName));
+	}
+
+	void end(Guid guid, String transitionName, long timeLog, @NotNull Completion completion) {
+		Key key = new Key(guid, transitionName);
+		if (!close(key, timeLog, completion)) {
+			orphanEnds.computeIfAbsent(key, k -> new ArrayDeque<>(1)).add(timeLog);
+		}
+	}
+
+	/// Сливает результат другого файла: завершения без запуска закрывают открытые переходы, порядок файлов не важен
+	void merge(@NotNull TransitionTracker other, @NotNull Completion completion) {
+		other.orphanEnds.forEach((key, ends) -> ends.forEach(timeLog -> end(key.guid, key.transitionName, timeLog, completion)));
+		other.open.forEach((key, starts) -> starts.forEach(start -> {
+			if (!closeByOrphanEnd(key, start, completion)) {
+				open.computeIfAbsent(key, k -> new ArrayDeque<>(1)).add(start);
+			}
+		}));
+	}
+
+	/// Оценка памяти незавершенных переходов и завершений без запуска
+	long estimatedBytes() {
+		return (long) (open.size() + orphanEnds.size()) * ENTRY_BYTES;
+	}
+
+	/// Незавершенные переходы по документам, каждый список упорядочен по времени запуска
+	@NotNull Map<Guid, List<OpenTransition>> openByGuid() {
+		Map<Guid, List<OpenTransition>> byGuid = new LinkedHashMap<>();
+		open.forEach((key, starts) -> starts.forEach(start -> byGuid.computeIfAbsent(key.guid, k -> new ArrayList<>())
+				.add(new OpenTransition(key.transitionName, start.threadName, start.timeLog))));
+		byGuid.values().forEach(transitions -> transitions.sort(Comparator.comparingLong(OpenTransition::timeLog)));
+		return byGuid;
+	}
+
+	private boolean close(Key key, long timeLog, @NotNull Completion completion) {
+		ArrayDeque<Start> starts = open.get(key);
+		if (starts == null) {
+			return false;
+		}
+		Iterator<Start> iterator = starts.iterator();
+		while (iterator.hasNext()) {
+			Start start = iterator.next();
+			if (start.timeLog <= timeLog) {
+				iterator.remove();
+				if (starts.isEmpty()) {
+					open.remove(key);
+				}
+				completion.completed(key.guid, key.transitionName, start.threadName, start.timeLog, timeLog);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/// Закрывает запуск самым ранним из завершений без запуска, случившихся не раньше него
+	private boolean closeByOrphanEnd(Key key, @NotNull Start start, @NotNull Completion completion) {
+		ArrayDeque<Long> ends = orphanEnds.get(key);
+		if (ends == null) {
+			return false;
+		}
+		Long closest = null;
+		for (Long timeLog : ends) {
+			if (timeLog >= start.timeLog && (closest == null || timeLog < closest)) {
+				closest = timeLog;
+			}
+		}
+		if (closest == null) {
+			return false;
+		}
+		ends.removeFirstOccurrence(closest);
+		if (ends.isEmpty()) {
+			orphanEnds.remove(key);
+		}
+		completion.completed(key.guid, key.transitionName, start.threadName, start.timeLog, closest);
+		return true;
+	}
+
+	@FunctionalInterface
+	interface Completion {
+		void completed(Guid guid, String transitionName, String threadName, long startTime, long endTime);
+	}
+
+	record OpenTransition(String transitionName, String threadName, long timeLog) {
+	}
+
+	private record Key(Guid guid, String transitionName) implements Serializable {
+	}
+
+	private record Start(long timeLog, String threadName) implements Serializable {
+	}
+}
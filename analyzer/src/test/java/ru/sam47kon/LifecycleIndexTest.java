@@ -0,0 +1,115 @@
+package ru.sam47kon;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LifecycleIndexTest {
+	private static final String SIGN = """
+			<lifecycle>
+			  <call-ref id="update">
+			    <parameter name="current" value="true"/>
+			    <call-ref id="nested">
+			      <parameter name="source" value="true"/>
+			    </call-ref>
+			  </call-ref>
+			  <call-ref id="update"><parameter name="source" value="true"/></call-ref> <call-ref id="update"/>
+			</lifecycle>
+			""";
+
+	@TempDir
+	Path root;
+
+	@Test
+	void indexesCallRefsAndTheirOwnParameters() throws IOException {
+		write("sign.lc", SIGN);
+		LifecycleIndex index = LifecycleIndex.open(root);
+		assertEquals(List.of("sign.lc:2", "sign.lc:8", "sign.lc:8"), results(index, index.callRefs("update")));
+		// Параметр вложенного call-ref не относится к внешнему, а в одной строке call-ref различаются
+		assertEquals(List.of("sign.lc:4", "sign.lc:8"), results(index, index.parameters("source", "true")));
+		assertEquals(List.of("sign.lc:8"), results(index, LifecycleIndex.intersect(index.callRefs("update"), index.parameters("source", "true"))));
+		assertEquals(List.of("sign.lc:2", "sign.lc:8"), results(index, LifecycleIndex.subtract(index.callRefs("update"), index.parameters("source", "true"))));
+		assertEquals(0, index.callRefs("missing").length);
+	}
+
+	@Test
+	void reopenedIndexFollowsChangedAddedAndDeletedFiles() throws IOException {
+		write("a.lc", SIGN);
+		write("sub/b.lc", "<lifecycle>\n<call-ref id=\"update\"/>\n</lifecycle>\n");
+		write("c.lc", "<lifecycle><call-ref id=\"update\"/></lifecycle>\n");
+		LifecycleIndex.open(root);
+		assertTrue(Files.exists(root.resolve(".lc.index")));
+
+		write("a.lc", "<lifecycle>\n\n<call-ref id=\"other\"/>\n</lifecycle>\n");
+		Files.delete(root.resolve("sub/b.lc"));
+		write("d.lc", "<lifecycle>\n<call-ref id=\"update\"><parameter name=\"source\" value=\"true\"/></call-ref>\n</lifecycle>\n");
+		LifecycleIndex updated = LifecycleIndex.open(root);
+		assertEquals(List.of("a.lc:3"), results(updated, updated.callRefs("other")));
+		assertEquals(List.of("c.lc:1", "d.lc:2"), sorted(results(updated, updated.callRefs("update"))));
+		assertEquals(List.of("d.lc:2"), results(updated, updated.parameters("source", "true")));
+		assertEquals(3, updated.files().size());
+
+		// Дополненный индекс совпадает с построенным заново
+		Files.delete(root.resolve(".lc.index"));
+		LifecycleIndex rebuilt = LifecycleIndex.open(root);
+		assertEquals(sorted(results(rebuilt, rebuilt.callRefs("update"))), sorted(results(updated, updated.callRefs("update"))));
+		assertEquals(sorted(rebuilt.files().stream().map(Path::toString).toList()), sorted(updated.files().stream().map(Path::toString).toList()));
+	}
+
+	@Test
+	void brokenFileIsRetriedOnNextOpen() throws IOException {
+		write("broken.lc", "<lifecycle><call-ref id=\"update\">");
+		assertEquals(0, LifecycleIndex.open(root).callRefs("update").length);
+		write("broken.lc", "<lifecycle><call-ref id=\"update\"/></lifecycle>");
+		LifecycleIndex index = LifecycleIndex.open(root);
+		assertEquals(List.of("broken.lc:1"), results(index, index.callRefs("update")));
+	}
+
+	@Test
+	void corruptIndexIsRebuilt() throws IOException {
+		write("sign.lc", SIGN);
+		LifecycleIndex.open(root);
+		Files.writeString(root.resolve(".lc.index"), "испорчен");
+		LifecycleIndex index = LifecycleIndex.open(root);
+		assertEquals(3, index.callRefs("update").length);
+	}
+
+	@Test
+	void sortedSetOperations() {
+		long[] left = {1, 3, 5, 7};
+		long[] right = {3, 4, 7, 9};
+		assertArrayEquals(new long[]{3, 7}, LifecycleIndex.intersect(left, right));
+		assertArrayEquals(new long[]{1, 5}, LifecycleIndex.subtract(left, right));
+		assertArrayEquals(new long[]{1, 3, 4, 5, 7, 9}, LifecycleIndex.union(left, right));
+		assertArrayEquals(new long[0], LifecycleIndex.intersect(left, new long[0]));
+	}
+
+	/// Файл с новым временем изменения: изменение того же размера в ту же миллисекунду индекс не заметил бы
+	private void write(String name, String text) throws IOException {
+		Path file = root.resolve(name);
+		Files.createDirectories(file.getParent());
+		FileTime previous = Files.exists(file) ? Files.getLastModifiedTime(file) : null;
+		Files.writeString(file, text);
+		if (previous != null) {
+			Files.setLastModifiedTime(file, FileTime.fromMillis(previous.toMillis() + 1000));
+		}
+	}
+
+	/// Результаты как "путь от корня:строка"
+	private List<String> results(LifecycleIndex index, long[] locations) {
+		return index.results(locations).stream()
+				.map(result -> root.toAbsolutePath().relativize(Path.of(result.getFile())).toString().replace('\\', '/') + ":" + result.getLineNumber())
+				.toList();
+	}
+
+	private static List<String> sorted(List<String> values) {
+		return values.stream().sorted().toList();
+	}
+}
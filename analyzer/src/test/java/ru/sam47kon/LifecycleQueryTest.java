@@ -0,0 +1,99 @@
+package ru.sam47kon;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LifecycleQueryTest {
+
+	@Test
+	void parsesElementWithAttributes() {
+		LifecycleQuery query = LifecycleQuery.parse("  call-ref[id=MSC_Sign, type = method]  ");
+		assertEquals("call-ref", query.element.name());
+		assertEquals(List.of("id", "type"), List.copyOf(query.element.attributes().keySet()));
+		assertEquals(Map.of("id", "MSC_Sign", "type", "method"), query.element.attributes());
+		assertTrue(query.patterns.isEmpty());
+		assertTrue(query.matches(new boolean[0]));
+	}
+
+	@Test
+	void parsesElementWithoutAttributes() {
+		LifecycleQuery query = LifecycleQuery.parse("transition");
+		assertEquals(new LifecycleQuery.Pattern("transition", Map.of()), query.element);
+	}
+
+	@Test
+	void quotedValuesKeepSpacesAndSymbols() {
+		LifecycleQuery query = LifecycleQuery.parse("call-ref[id=X] having parameter[name=\"a b\",value=\"[x=1, (y)] or not\"]");
+		assertEquals(List.of(new LifecycleQuery.Pattern("parameter", Map.of("name", "a b", "value", "[x=1, (y)] or not"))), query.patterns);
+	}
+
+	@Test
+	void andBindsTighterThanOr() {
+		LifecycleQuery query = LifecycleQuery.parse("call-ref[id=X] having parameter[name=A] or parameter[name=B] and parameter[name=C]");
+		assertEquals(3, query.patterns.size());
+		assertTruthTable(query, found -> found[0] || found[1] && found[2]);
+	}
+
+	@Test
+	void parenthesesOverridePrecedence() {
+		LifecycleQuery query = LifecycleQuery.parse("call-ref[id=X] having (parameter[name=A] or parameter[name=B]) and parameter[name=C]");
+		assertTruthTable(query, found -> (found[0] || found[1]) && found[2]);
+	}
+
+	@Test
+	void notAppliesToNearestOperand() {
+		LifecycleQuery query = LifecycleQuery.parse("call-ref[id=X] having parameter[name=A] and not parameter[name=B] or not not parameter[name=C]");
+		assertTruthTable(query, found -> found[0] && !found[1] || found[2]);
+	}
+
+	@Test
+	void repeatedPatternSharesIndex() {
+		LifecycleQuery query = LifecycleQuery.parse("call-ref[id=X] having parameter[name=A,value=true] and not (parameter[name=B] and parameter[name=A,value=true])");
+		assertEquals(2, query.patterns.size());
+		assertTruthTable(query, found -> found[0] && !found[1]);
+	}
+
+	@Test
+	void keywordsAreCaseInsensitive() {
+		LifecycleQuery query = LifecycleQuery.parse("call-ref[id=X] HAVING parameter[name=A] AND Not parameter[name=B] oR parameter[name=C]");
+		assertTruthTable(query, found -> found[0] && !found[1] || found[2]);
+	}
+
+	@Test
+	void keywordNeedsWordBoundary() {
+		LifecycleQuery query = LifecycleQuery.parse("call-ref[id=X] having notation and order");
+		assertEquals(List.of(new LifecycleQuery.Pattern("notation", Map.of()), new LifecycleQuery.Pattern("order", Map.of())), query.patterns);
+		assertTruthTable(query, found -> found[0] && found[1]);
+	}
+
+	@Test
+	void rejectsMalformedQueries() {
+		for (String text : List.of("", "   ", "call-ref[id=X", "call-ref[id]", "call-ref[=X]", "call-ref[id=X,]", "call-ref[id=X] having",
+				"call-ref[id=X] having parameter[name=A] and", "call-ref[id=X] having (parameter[name=A]", "call-ref[id=X] parameter[name=A]",
+				"call-ref[id=\"X]", "call-ref[id=X] having not")) {
+			IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> LifecycleQuery.parse(text), text);
+			assertTrue(exception.getMessage().startsWith("Ошибка в запросе [" + text.trim() + "]"), exception.getMessage());
+		}
+	}
+
+	/// Сверяет условие запроса с expected на всех сочетаниях найденных элементов условия
+	private static void assertTruthTable(LifecycleQuery query, Expected expected) {
+		int count = query.patterns.size();
+		for (int mask = 0; mask < 1 << count; mask++) {
+			boolean[] found = new boolean[count];
+			for (int i = 0; i < count; i++) {
+				found[i] = (mask & 1 << i) != 0;
+			}
+			assertEquals(expected.test(found), query.matches(found), query + " для " + Arrays.toString(found));
+		}
+	}
+
+	private interface Expected {
+		boolean test(boolean[] found);
+	}
+}
@@ -0,0 +1,184 @@
+package ru.sam47kon.log_analyzer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Фильтры --from/--to, --guid и --docType общего прохода {@link AnalysisDriver}
+class AnalysisFiltersTest {
+	private static final DateTimeFormatter YEAR_MONTH_DAY = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss,SSS");
+	private static final LocalDateTime START = LocalDateTime.of(2025, 3, 27, 9, 0);
+	private static final String[] GUIDS = {"6a1d2b9e-0c4f-4a8e-9f3b-2d5c7e8f9a01", "6a1d2b9e-0c4f-4a8e-9f3b-2d5c7e8f9a02"};
+	private static final String[] TYPES = {"Pay", "Refund", "PayOrder"};
+	// Событие в секунду с 09:00 до 10:30 в первом файле, второй файл целиком в 12:00
+	private static final int SECONDS = 90 * 60;
+
+	@TempDir
+	Path dir;
+	private final List<String> all = new ArrayList<>();
+
+	@BeforeEach
+	void writeLogs() throws IOException {
+		StringBuilder first = new StringBuilder();
+		for (int i = 0; i < SECONDS; i++) {
+			first.append(line(START.plusSeconds(i), i)).append('\n');
+			if (i % 100 == 0) {
+				// Строка без метки времени и маркера
+				first.append("\tat ru.sam47kon.Trace\n");
+			}
+		}
+		Files.writeString(dir.resolve("filtered1.log"), first);
+		StringBuilder second = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			second.append(line(START.plusHours(3).plusSeconds(i), SECONDS + i)).append('\n');
+		}
+		Files.writeString(dir.resolve("filtered2.log"), second);
+	}
+
+	@Test
+	void noFiltersReadEverything() {
+		Result result = run();
+		assertEquals(all, result.lines);
+		assertEquals(2, result.started);
+	}
+
+	@Test
+	void timeRangeSkipsLinesAndFiles() {
+		List<String> expected = all.subList(30 * 60, 60 * 60);
+		for (String chunkSize : new String[]{"0", "16k"}) {
+			Result result = run("--from", "2025-03-27 09:30", "--to", "2025-03-27 10:00", "--chunk-size", chunkSize);
+			assertEquals(expected, result.lines, "--chunk-size " + chunkSize);
+			// Второй файл вне интервала не читается вовсе
+			assertEquals(1, result.started, "--chunk-size " + chunkSize);
+		}
+		assertEquals(all.subList(SECONDS - 10, all.size()), run("--from", "2025-03-27 10:29:50").lines);
+		assertEquals(all.subList(0, 10), run("--to", "2025-03-27 09:00:10").lines);
+	}
+
+	@Test
+	void guidAndDocTypeKeepMatchingLines() {
+		assertEquals(all.stream().filter(line -> line.contains(GUIDS[1])).toList(), run("--guid", GUIDS[1]).lines);
+		// Тип сравнивается целиком: Pay не находит PayOrder
+		assertEquals(all.stream().filter(line -> line.contains("type=Pay]")).toList(), run("--docType", "Pay").lines);
+		List<String> both = run("--guid", GUIDS[0], "--docType", "Refund", "--from", "2025-03-27 10:00").lines;
+		assertEquals(all.subList(60 * 60, all.size()).stream().filter(line -> line.contains(GUIDS[0]) && line.contains("type=Refund]")).toList(), both);
+		assertFalse(both.isEmpty());
+	}
+
+	private String line(LocalDateTime time, int i) {
+		String line = YEAR_MONTH_DAY.format(time) + " INFO [doc=" + GUIDS[i % 2] + "] [type=" + TYPES[i % 3] + "] event " + i;
+		all.add(line);
+		return line;
+	}
+
+	private Result run(String... filters) {
+		Recorder plugin = new Recorder();
+		AnalysisDriver.run(Options.parse(Stream.concat(Stream.of(dir.toString()), Stream.of(filters)).toArray(String[]::new), "."), List.of(plugin));
+		assertNotNull(plugin.result);
+		return plugin.result;
+	}
+
+	private record Result(List<String> lines, int started) {
+	}
+
+	static final class Lines implements Serializable {
+		@Serial
+		private static final long serialVersionUID = 1L;
+
+		final ArrayList<String> lines = new ArrayList<>();
+		boolean started;
+	}
+
+	/// Запоминает строки, прошедшие фильтры, в порядке файлов
+	private static final class Recorder implements LogPlugin<Lines> {
+		private Result result;
+
+		@Override
+		public @NotNull String prefix() {
+			return "filtered";
+		}
+
+		@Override
+		public @Nullable String reportName() {
+			return null;
+		}
+
+		@Override
+		public @NotNull MarkerMatcher markers() {
+			return MarkerMatcher.builder().contains(" event ").build();
+		}
+
+		@Override
+		public long filter() {
+			return 1;
+		}
+
+		@Override
+		public @NotNull Lines newPartial() {
+			return new Lines();
+		}
+
+		@Override
+		public @NotNull TimestampFormat timestampFormat() {
+			return TimestampFormat.YEAR_MONTH_DAY;
+		}
+
+		@Override
+		public @NotNull String guidMarker(@NotNull String guid) {
+			return "doc=" + guid;
+		}
+
+		@Override
+		public @NotNull String docTypeMarker(@NotNull String docType) {
+			return "type=" + docType + "]";
+		}
+
+		@Override
+		public void fileStarted(@NotNull Lines partial, @Nullable String firstLine) {
+			partial.started = true;
+		}
+
+		@Override
+		public void line(@NotNull Lines partial, @NotNull String line, long matches, @Nullable String followingLine, @NotNull ParseMark mark) {
+			partial.lines.add(line);
+		}
+
+		@Override
+		public void append(@NotNull Lines partial, @NotNull Lines next) {
+			partial.lines.addAll(next.lines);
+		}
+
+		@Override
+		public @Nullable EventStore report(@NotNull List<Lines> partials, @NotNull Options options) {
+			List<String> lines = new ArrayList<>();
+			int started = 0;
+			// Файлы находятся в порядке обхода папки, строки сравниваются в порядке номеров событий
+			for (Lines partial : partials) {
+				lines.addAll(partial.lines);
+				started += partial.started ? 1 : 0;
+			}
+			lines.sort((a, b) -> Integer.compare(number(a), number(b)));
+			result = new Result(lines, started);
+			return null;
+		}
+
+		private static int number(String line) {
+			return Integer.parseInt(line.substring(line.lastIndexOf(' ') + 1));
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package ru.sam47kon.log_analyzer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyGaugeTest {
+	private static final double DELTA = 1e-9;
+
+	@Test
+	void splitsTransitionAcrossSeconds() throws IOException {
+		ConcurrencyGauge gauge = new ConcurrencyGauge();
+		gauge.add(500, 2500);
+		assertEquals(List.of(new ConcurrencyGauge.Peak(0, 1000, 0.5, 1), new ConcurrencyGauge.Peak(1000, 2000, 1, 1),
+				new ConcurrencyGauge.Peak(2000, 3000, 0.5, 1)), buckets(gauge, 1000));
+		assertEquals(List.of(new ConcurrencyGauge.Peak(0, 10_000, 0.2, 1)), buckets(gauge, 10_000));
+		assertThrows(IllegalArgumentException.class, () -> gauge.forEach(1500, (start, end, average, maxOverlapping) -> {
+		}));
+	}
+
+	@Test
+	void endOnSecondBoundaryDoesNotTouchNextSecond() throws IOException {
+		ConcurrencyGauge gauge = new ConcurrencyGauge();
+		gauge.add(1000, 3000);
+		gauge.add(3000, 3000);
+		// Переход нулевой длительности пересекает секунду, но не занимает ее
+		assertEquals(List.of(new ConcurrencyGauge.Peak(1000, 2000, 1, 1), new ConcurrencyGauge.Peak(2000, 3000, 1, 1),
+				new ConcurrencyGauge.Peak(3000, 4000, 0, 1)), buckets(gauge, 1000));
+	}
+
+	@Test
+	void matchesBruteForceAcrossHours() throws IOException {
+		Random random = new Random(47);
+		ConcurrencyGauge gauge = new ConcurrencyGauge();
+		ConcurrencyGauge first = new ConcurrencyGauge();
+		ConcurrencyGauge second = new ConcurrencyGauge();
+		List<long[]> transitions = new ArrayList<>();
+		long origin = 1_700_000_000_000L;
+		for (int i = 0; i < 300; i++) {
+			// Короткие переходы и длинные, пересекающие часы без других событий
+			long start = origin + random.nextInt(5 * 3600) * 1000L + random.nextInt(1000);
+			long end = start + (i % 50 == 0 ? 3 * 3600_000L : random.nextInt(30_000));
+			transitions.add(new long[]{start, end});
+			gauge.add(start, end);
+			(i % 2 == 0 ? first : second).add(start, end);
+		}
+		first.merge(second);
+		for (long interval : new long[]{1000, 10_000, 300_000}) {
+			List<ConcurrencyGauge.Peak> expected = bruteForce(transitions, interval);
+			assertBuckets(expected, buckets(gauge, interval));
+			assertBuckets(expected, buckets(first, interval));
+			assertEquals(expected.stream().mapToDouble(ConcurrencyGauge.Peak::average).max().orElse(0), gauge.maxAverage(interval), DELTA);
+		}
+	}
+
+	@Test
+	void peaksJoinAdjacentIntervalsAboveThreshold() throws IOException {
+		ConcurrencyGauge gauge = new ConcurrencyGauge();
+		// Фон в половину секунды, 90-й перцентиль приходится на всплески в 5-7 и 12 секунд
+		for (int second = 0; second < 20; second++) {
+			gauge.add(second * 1000L, second * 1000L + 500);
+		}
+		for (int i = 0; i < 3; i++) {
+			gauge.add(5000, 8000);
+			gauge.add(12_000, 13_000);
+		}
+		gauge.add(12_000, 13_000);
+		List<ConcurrencyGauge.Peak> peaks = gauge.peaks(1000, 5);
+		assertEquals(List.of(new ConcurrencyGauge.Peak(12_000, 13_000, 4.5, 5), new ConcurrencyGauge.Peak(5000, 8000, 3.5, 4)), peaks);
+		assertEquals(1, gauge.peaks(1000, 1).size());
+		assertTrue(new ConcurrencyGauge().peaks(1000, 5).isEmpty());
+	}
+
+	@Test
+	void poolDropsNumbersAndGuids() {
+		assertEquals("default task", ConcurrencyGauge.pool("default task-29"));
+		assertEquals("EJB default", ConcurrencyGauge.pool("EJB default - 7"));
+		assertEquals("worker", ConcurrencyGauge.pool("worker-6a1d2b9e-0c4f-4a8e-9f3b-2d5c7e8f9a01"));
+		assertEquals("main", ConcurrencyGauge.pool("main"));
+		assertEquals("42", ConcurrencyGauge.pool("42"));
+	}
+
+	/// Интервалы, в которых есть секунда с переходом: занятость по миллисекундам и наибольшее число пересекающих секунду
+	private static List<ConcurrencyGauge.Peak> bruteForce(List<long[]> transitions, long interval) {
+		TreeMap<Long, long[]> buckets = new TreeMap<>();
+		for (long[] transition : transitions) {
+			long first = Math.floorDiv(transition[0], 1000);
+			long last = Math.floorDiv(Math.max(transition[0], transition[1] - 1), 1000);
+			for (long second = first; second <= last; second++) {
+				long busy = Math.min(transition[1], (second + 1) * 1000) - Math.max(transition[0], second * 1000);
+				long[] bucket = buckets.computeIfAbsent(Math.floorDiv(second * 1000, interval) * interval, k -> new long[1 + (int) (interval / 1000)]);
+				bucket[0] += Math.max(busy, 0);
+				bucket[1 + (int) (second * 1000 - Math.floorDiv(second * 1000, interval) * interval) / 1000]++;
+			}
+		}
+		List<ConcurrencyGauge.Peak> peaks = new ArrayList<>();
+		buckets.forEach((start, bucket) -> {
+			long max = 0;
+			for (int i = 1; i < bucket.length; i++) {
+				max = Math.max(max, bucket[i]);
+			}
+			peaks.add(new ConcurrencyGauge.Peak(start, start + interval, (double) bucket[0] / interval, (int) max));
+		});
+		return peaks;
+	}
+
+	private static void assertBuckets(List<ConcurrencyGauge.Peak> expected, List<ConcurrencyGauge.Peak> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			ConcurrencyGauge.Peak e = expected.get(i);
+			ConcurrencyGauge.Peak a = actual.get(i);
+			assertEquals(e.start(), a.start(), String.valueOf(i));
+			assertEquals(e.end(), a.end(), String.valueOf(i));
+			assertEquals(e.average(), a.average(), DELTA, String.valueOf(e.start()));
+			assertEquals(e.maxOverlapping(), a.maxOverlapping(), String.valueOf(e.start()));
+		}
+	}
+
+	private static List<ConcurrencyGauge.Peak> buckets(ConcurrencyGauge gauge, long interval) throws IOException {
+		List<ConcurrencyGauge.Peak> buckets = new ArrayList<>();
+		gauge.forEach(interval, (start, end, average, maxOverlapping) -> buckets.add(new ConcurrencyGauge.Peak(start, end, average, maxOverlapping)));
+		return buckets;
+	}
+}
@@ -0,0 +1,205 @@
+package ru.sam47kon.log_analyzer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventCacheTest {
+	private static final Guid GUID = Guid.parse("6a1d2b9e-0c4f-4a8e-9f3b-2d5c7e8f9a01");
+
+	@TempDir
+	Path dir;
+	private Path log;
+
+	@BeforeEach
+	void writeLog() throws IOException {
+		log = dir.resolve("dlc.log");
+		Files.writeString(log, "line 1\nline 2\n");
+	}
+
+	@Test
+	void roundTripsEventsAndSerializedPartials() throws IOException {
+		List<LogPlugin<?>> plugins = List.of(new EventsPlugin(), new CountPlugin());
+		Events events = new Events();
+		events.store.add(10, GUID, 100, "Sign");
+		events.store.add(20, Guid.parse("не GUID"), 200, (String) null);
+		Count count = new Count();
+		count.lines = 2;
+		EventCache cache = cache();
+		cache.write(log, plugins, List.of(events, count));
+		List<Serializable> read = cache.read(log, plugins);
+		assertNotNull(read);
+		assertEquals(List.of("10 " + GUID + " 100 Sign", "20 не GUID 200 null"), rows(((Events) read.get(0)).store));
+		assertEquals(2, ((Count) read.get(1)).lines);
+	}
+
+	@Test
+	void changedLogInvalidatesCache() throws IOException {
+		List<LogPlugin<?>> plugins = List.of(new EventsPlugin());
+		EventCache cache = cache();
+		cache.write(log, plugins, List.of(new Events()));
+		assertNotNull(cache.read(log, plugins));
+		Files.setLastModifiedTime(log, FileTime.fromMillis(Files.getLastModifiedTime(log).toMillis() + 1000));
+		assertNull(cache.read(log, plugins));
+		cache.write(log, plugins, List.of(new Events()));
+		Files.writeString(log, "line 3\n", StandardOpenOption.APPEND);
+		assertNull(cache.read(log, plugins));
+	}
+
+	@Test
+	void otherPluginsOrFiltersInvalidateCache() throws IOException {
+		EventCache cache = cache();
+		cache.write(log, List.of(new EventsPlugin()), List.of(new Events()));
+		assertNull(cache.read(log, List.of(new EventsPlugin(), new CountPlugin())));
+		// Кэш, записанный без фильтров, не подходит для запуска с --guid
+		EventCache filtered = EventCache.open(Options.parse(new String[]{dir.toString(), "--event-cache", "--guid", GUID.toString()}, "."));
+		assertNull(filtered.read(log, List.of(new EventsPlugin())));
+		assertNotNull(cache.read(log, List.of(new EventsPlugin())));
+	}
+
+	@Test
+	void corruptCacheIsIgnored() throws IOException {
+		List<LogPlugin<?>> plugins = List.of(new CountPlugin());
+		EventCache cache = cache();
+		assertNull(cache.read(log, plugins));
+		cache.write(log, plugins, List.of(new Count()));
+		Path cacheFile;
+		try (Stream<Path> files = Files.list(dir)) {
+			cacheFile = files.filter(file -> file.getFileName().toString().endsWith(".events")).findFirst().orElseThrow();
+		}
+		byte[] bytes = Files.readAllBytes(cacheFile);
+		Files.write(cacheFile, Arrays.copyOf(bytes, bytes.length - 10));
+		assertNull(cache.read(log, plugins));
+	}
+
+	@Test
+	void disabledCacheWritesNothing() throws IOException {
+		EventCache cache = EventCache.open(Options.parse(new String[]{dir.toString()}, "."));
+		cache.write(log, List.of(new CountPlugin()), List.of(new Count()));
+		assertNull(cache.read(log, List.of(new CountPlugin())));
+		try (Stream<Path> files = Files.list(dir)) {
+			assertEquals(List.of(log), files.toList());
+		}
+	}
+
+	private EventCache cache() {
+		return EventCache.open(Options.parse(new String[]{dir.toString(), "--event-cache"}, "."));
+	}
+
+	private static List<String> rows(EventStore store) {
+		List<String> rows = new ArrayList<>();
+		for (EventStore.Chunk chunk : store.chunks()) {
+			for (int row = 0; row < chunk.rows(); row++) {
+				rows.add(chunk.time(row) + " " + store.guid(chunk, row) + " " + chunk.duration(row) + " " + store.name(chunk.symbol(0, row)));
+			}
+		}
+		return rows;
+	}
+
+	static final class Events implements Serializable {
+		@Serial
+		private static final long serialVersionUID = 1L;
+
+		EventStore store = new EventStore(1);
+	}
+
+	static final class Count implements Serializable {
+		@Serial
+		private static final long serialVersionUID = 1L;
+
+		int lines;
+	}
+
+	/// Анализатор, чей результат кэшируется колонками
+	private static final class EventsPlugin extends TestPlugin<Events> implements EventCodec<Events> {
+		EventsPlugin() {
+			super("events");
+		}
+
+		@Override
+		public @NotNull Events newPartial() {
+			return new Events();
+		}
+
+		@Override
+		public @NotNull EventStore events(@NotNull Events partial) {
+			return partial.store;
+		}
+
+		@Override
+		public @NotNull Events fromEvents(@NotNull EventStore events) {
+			Events partial = new Events();
+			partial.store = events;
+			return partial;
+		}
+	}
+
+	/// Анализатор, чей результат кэшируется сериализацией
+	private static final class CountPlugin extends TestPlugin<Count> {
+		CountPlugin() {
+			super("count");
+		}
+
+		@Override
+		public @NotNull Count newPartial() {
+			return new Count();
+		}
+	}
+
+	private abstract static class TestPlugin<T extends Serializable> implements LogPlugin<T> {
+		private final String prefix;
+
+		TestPlugin(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public @NotNull String prefix() {
+			return prefix;
+		}
+
+		@Override
+		public @Nullable String reportName() {
+			return null;
+		}
+
+		@Override
+		public @NotNull MarkerMatcher markers() {
+			return MarkerMatcher.builder().contains("line").build();
+		}
+
+		@Override
+		public long filter() {
+			return 1;
+		}
+
+		@Override
+		public void line(@NotNull T partial, @NotNull String line, long matches, @Nullable String followingLine, @NotNull ParseMark mark) {
+		}
+
+		@Override
+		public void append(@NotNull T partial, @NotNull T next) {
+		}
+
+		@Override
+		public @Nullable EventStore report(@NotNull List<T> partials, @NotNull Options options) {
+			return null;
+		}
+	}
+}
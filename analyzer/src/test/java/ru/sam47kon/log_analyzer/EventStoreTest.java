@@ -0,0 +1,161 @@
+package ru.sam47kon.log_analyzer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventStoreTest {
+	private static final Guid GUID = Guid.parse("6a1d2b9e-0c4f-4a8e-9f3b-2d5c7e8f9a01");
+	// Три полных блока и неполный
+	private static final int ROWS = 3 * EventStore.CHUNK_ROWS + 100;
+
+	@TempDir
+	Path dir;
+
+	@AfterEach
+	void resetBudget() {
+		MemoryBudget.configure(0);
+	}
+
+	@Test
+	void keepsRowsInOrder() {
+		EventStore store = filled();
+		assertEquals(ROWS, store.size());
+		assertEquals(expectedRows(), rows(store));
+		assertAggregates(store);
+	}
+
+	@Test
+	void spilledChunksReadBack() {
+		// Бюджет меньше одного блока: все заполненные блоки выгружаются на диск
+		MemoryBudget.configure(1);
+		EventStore store = filled();
+		assertEquals(expectedRows(), rows(store));
+		assertAggregates(store);
+	}
+
+	@Test
+	void binaryFormatRoundTrip() throws IOException {
+		EventStore store = filled();
+		Path file = dir.resolve("events");
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[]{47}));
+			store.write(channel);
+		}
+		ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		assertEquals(47, buffer.get());
+		EventStore mapped = EventStore.map(buffer);
+		assertFalse(buffer.hasRemaining());
+		assertEquals(ROWS, mapped.size());
+		assertEquals(expectedRows(), rows(mapped));
+		assertAggregates(mapped);
+		// Отображенные блоки переводятся в память при слиянии с другим словарем
+		EventStore merged = new EventStore(2);
+		merged.add(1, GUID, 1, "other", "first");
+		merged.addAll(mapped);
+		assertEquals(ROWS + 1, merged.size());
+		assertEquals(expectedRows(), rows(merged).subList(1, ROWS + 1));
+	}
+
+	@Test
+	void serializationRoundTrip() throws IOException, ClassNotFoundException {
+		MemoryBudget.configure(1);
+		EventStore store = filled();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(store);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			EventStore read = (EventStore) in.readObject();
+			assertEquals(ROWS, read.size());
+			assertEquals(expectedRows(), rows(read));
+		}
+	}
+
+	@Test
+	void addAllTranslatesSymbolsAndEmptiesOther() {
+		EventStore first = new EventStore(2);
+		first.add(1, GUID, 10, "b", "x");
+		EventStore second = new EventStore(2);
+		second.add(2, Guid.parse("текст"), 20, "a", null);
+		second.add(3, GUID, 30, "b", "y");
+		first.addAll(second);
+		assertEquals(0, second.size());
+		assertEquals(List.of("1 " + GUID + " 10 b x", "2 текст 20 a null", "3 " + GUID + " 30 b y"), rows(first));
+	}
+
+	@Test
+	void releaseReturnsBudget() {
+		MemoryBudget.configure(64L << 20);
+		EventStore store = filled();
+		assertFalse(MemoryBudget.tryReserve(64L << 20));
+		store.release();
+		assertEquals(0, store.size());
+		assertTrue(MemoryBudget.tryReserve(64L << 20));
+	}
+
+	/// Длительность i % 1000, поток и тип чередуются, каждое 7-е событие с GUID не в каноническом виде
+	private static EventStore filled() {
+		EventStore store = new EventStore(2);
+		for (int i = 0; i < ROWS; i++) {
+			store.add(1_000_000L + i, i % 7 == 0 ? Guid.parse("guid-" + i % 5) : GUID, i % 1000, "thread-" + i % 3, i % 2 == 0 ? "Sign" : null);
+		}
+		return store;
+	}
+
+	private static List<String> expectedRows() {
+		List<String> rows = new ArrayList<>();
+		for (int i = 0; i < ROWS; i++) {
+			rows.add((1_000_000L + i) + " " + (i % 7 == 0 ? "guid-" + i % 5 : GUID) + " " + i % 1000 + " thread-" + i % 3 + " " + (i % 2 == 0 ? "Sign" : null));
+		}
+		return rows;
+	}
+
+	private static void assertAggregates(EventStore store) {
+		assertEquals(1_000_000L, store.minTime());
+		assertEquals(1_000_000L + ROWS - 1, store.maxTime());
+		long[] threads = store.countBy(0);
+		long total = 0;
+		for (long count : threads) {
+			total += count;
+		}
+		assertEquals(ROWS, total);
+		assertEquals(IntStream.range(0, ROWS).filter(i -> i % 1000 > 990).count(), store.countDurationAbove(990));
+		// Самые долгие события, при равной длительности — в порядке добавления
+		long[] slowest = store.slowest(990, 4);
+		assertArrayEquals(new long[]{999, 1999, 2999, 3999}, slowest);
+		List<String> rows = new ArrayList<>();
+		store.forEachOrdinal(new long[]{ROWS - 1, 0, EventStore.CHUNK_ROWS}, (chunk, row) -> rows.add(row(store, chunk, row)));
+		List<String> expected = expectedRows();
+		assertEquals(List.of(expected.get(ROWS - 1), expected.get(0), expected.get(EventStore.CHUNK_ROWS)), rows);
+	}
+
+	private static List<String> rows(EventStore store) {
+		List<String> rows = new ArrayList<>();
+		for (EventStore.Chunk chunk : store.chunks()) {
+			for (int row = 0; row < chunk.rows(); row++) {
+				rows.add(row(store, chunk, row));
+			}
+		}
+		return rows;
+	}
+
+	private static String row(EventStore store, EventStore.Chunk chunk, int row) {
+		return chunk.time(row) + " " + store.guid(chunk, row) + " " + chunk.duration(row) + " "
+				+ store.name(chunk.symbol(0, row)) + " " + store.name(chunk.symbol(1, row));
+	}
+}
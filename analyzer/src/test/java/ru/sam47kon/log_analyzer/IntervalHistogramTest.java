@@ -0,0 +1,80 @@
+package ru.sam47kon.log_analyzer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntervalHistogramTest {
+	private static final long MINUTE = 60_000;
+
+	@Test
+	void countsByIntervalInTimeOrder() throws IOException {
+		IntervalHistogram histogram = new IntervalHistogram(MINUTE);
+		// Вне порядка, в том числе раньше первого интервала
+		for (long time : new long[]{10 * MINUTE + 5, 12 * MINUTE, 10 * MINUTE + 59_999, 3 * MINUTE, 12 * MINUTE + 1}) {
+			histogram.add(time);
+		}
+		assertEquals(List.of("3-4:1", "10-11:2", "12-13:2"), buckets(histogram, MINUTE));
+		assertEquals(5, histogram.total());
+	}
+
+	@Test
+	void widerIntervalsAreAlignedToEpoch() throws IOException {
+		IntervalHistogram histogram = new IntervalHistogram(MINUTE);
+		for (long minute : new long[]{4, 5, 9, 10, 14, 23}) {
+			histogram.add(minute * MINUTE + 1);
+		}
+		assertEquals(List.of("0-5:1", "5-10:2", "10-15:2", "20-25:1"), buckets(histogram, 5 * MINUTE));
+		assertThrows(IllegalArgumentException.class, () -> histogram.forEach(90_000, (start, end, count) -> {
+		}));
+	}
+
+	@Test
+	void negativeTimesUseFloor() throws IOException {
+		IntervalHistogram histogram = new IntervalHistogram(MINUTE);
+		histogram.add(-1);
+		histogram.add(0);
+		assertEquals(List.of("-1-0:1", "0-1:1"), buckets(histogram, MINUTE));
+	}
+
+	@Test
+	void mergeMatchesSingleHistogram() throws IOException {
+		Random random = new Random(47);
+		IntervalHistogram all = new IntervalHistogram(MINUTE);
+		IntervalHistogram first = new IntervalHistogram(MINUTE);
+		IntervalHistogram second = new IntervalHistogram(MINUTE);
+		TreeMap<Long, Long> expected = new TreeMap<>();
+		for (int i = 0; i < 10_000; i++) {
+			long time = 1_700_000_000_000L + random.nextInt(1_000) * MINUTE + random.nextInt(60_000);
+			all.add(time);
+			(i % 3 == 0 ? first : second).add(time);
+			expected.merge(time / MINUTE, 1L, Long::sum);
+		}
+		first.merge(second);
+		assertEquals(buckets(all, MINUTE), buckets(first, MINUTE));
+		assertEquals(expected.size(), buckets(first, MINUTE).size());
+		assertEquals(10_000, first.total());
+		assertThrows(IllegalArgumentException.class, () -> first.merge(new IntervalHistogram(2 * MINUTE)));
+	}
+
+	@Test
+	void rejectsTooWideTimeRange() {
+		IntervalHistogram histogram = new IntervalHistogram(1);
+		histogram.add(0);
+		assertThrows(IllegalArgumentException.class, () -> histogram.add(1L << 30));
+		assertThrows(IllegalArgumentException.class, () -> new IntervalHistogram(0));
+	}
+
+	/// Непустые интервалы длиной interval как "начало-конец:количество" в минутах
+	private static List<String> buckets(IntervalHistogram histogram, long interval) throws IOException {
+		List<String> buckets = new ArrayList<>();
+		histogram.forEach(interval, (start, end, count) -> buckets.add(start / MINUTE + "-" + end / MINUTE + ":" + count));
+		return buckets;
+	}
+}
@@ -0,0 +1,73 @@
+package ru.sam47kon.log_analyzer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+	@Test
+	void smallValuesAreExact() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int value = 1; value <= 100; value++) {
+			histogram.record(value);
+		}
+		assertEquals(50, histogram.percentile(50));
+		assertEquals(90, histogram.percentile(90));
+		assertEquals(100, histogram.percentile(100));
+		assertEquals(1, histogram.percentile(0));
+		assertEquals("p50 50 ms, p90 90 ms, p99 99 ms, p99.9 100 ms, max 100 ms", histogram.summary());
+		assertEquals("p50 50, p90 90, p99 99, p99.9 100, max 100", histogram.summary(""));
+	}
+
+	@Test
+	void percentilesAreWithinPrecision() {
+		Random random = new Random(47);
+		LatencyHistogram histogram = new LatencyHistogram();
+		long[] values = new long[100_000];
+		for (int i = 0; i < values.length; i++) {
+			// Длинный хвост от миллисекунд до часов
+			values[i] = (long) Math.exp(random.nextDouble() * 22);
+			histogram.record(values[i]);
+		}
+		Arrays.sort(values);
+		for (double percentile : new double[]{1, 50, 90, 99, 99.9, 100}) {
+			long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+			long estimate = histogram.percentile(percentile);
+			assertTrue(estimate >= exact && estimate <= exact + exact / 64, percentile + ": " + estimate + " для " + exact);
+		}
+		assertEquals(values[values.length - 1], histogram.max());
+		assertEquals(values.length, histogram.count());
+	}
+
+	@Test
+	void mergeMatchesSingleHistogram() {
+		Random random = new Random(47);
+		LatencyHistogram all = new LatencyHistogram();
+		LatencyHistogram first = new LatencyHistogram();
+		LatencyHistogram second = new LatencyHistogram();
+		for (int i = 0; i < 10_000; i++) {
+			long value = random.nextInt(i % 2 == 0 ? 100 : 1_000_000);
+			all.record(value);
+			(i % 2 == 0 ? first : second).record(value);
+		}
+		// Короткая гистограмма сливает в себя длинную
+		first.merge(second);
+		assertEquals(all.summary(), first.summary());
+		assertEquals(all.count(), first.count());
+	}
+
+	@Test
+	void emptyAndNegativeValues() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.percentile(99));
+		histogram.record(-5);
+		assertEquals(1, histogram.count());
+		assertEquals(0, histogram.max());
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, histogram.percentile(100));
+	}
+}
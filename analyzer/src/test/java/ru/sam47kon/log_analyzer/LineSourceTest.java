@@ -0,0 +1,238 @@
+package ru.sam47kon.log_analyzer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LineSourceTest {
+	private static final DateTimeFormatter YEAR_MONTH_DAY = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss,SSS");
+	private static final MarkerMatcher MATCHER = MarkerMatcher.builder().contains("Переход").endsWith("done").build();
+	private static final long TRANSITION = MATCHER.mask("Переход");
+	private static final long DONE = MATCHER.mask("done");
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void readsLinesWithoutLineBreaks() throws IOException {
+		Path file = write("plain.log", "первая\r\nвторая\n\nчетвертая без перевода");
+		try (LineSource source = LineSource.open(file, MATCHER, -1)) {
+			assertEquals("первая", source.firstLine());
+			assertEquals(List.of("первая", "вторая", "", "четвертая без перевода"), lines(source));
+			assertEquals(4, source.lineNumber());
+			assertEquals(Files.size(file), source.position());
+			assertEquals("четвертая без перевода", source.lastLine());
+			assertFalse(source.hasNextLine());
+		}
+	}
+
+	@Test
+	void nextMatchingFiltersByMarkers() throws IOException {
+		Path file = write("markers.log", "Переход A\nпрочее\nПереход B done\r\nnot done yet\nесть done\n");
+		try (LineSource source = LineSource.open(file, MATCHER, TRANSITION | DONE)) {
+			assertEquals("Переход A", source.nextMatching());
+			assertEquals(TRANSITION, source.matches());
+			// Маркер endsWith находится и перед \r\n
+			assertEquals("Переход B done", source.nextMatching());
+			assertEquals(TRANSITION | DONE, source.matches());
+			// "done" не в конце строки не считается
+			assertEquals("есть done", source.nextMatching());
+			assertEquals(DONE, source.matches());
+			assertNull(source.nextMatching());
+			assertEquals(5, source.lineNumber());
+		}
+		try (LineSource source = LineSource.open(file, MATCHER, TRANSITION)) {
+			source.require(DONE);
+			assertEquals("Переход B done", source.nextMatching());
+			assertNull(source.nextMatching());
+		}
+	}
+
+	@Test
+	void unreadLastLineReturnsItToUnread() throws IOException {
+		Path file = write("unread.log", "a\nb\nc\n");
+		try (LineSource source = LineSource.open(file, MATCHER, -1)) {
+			assertEquals("a", source.nextLine());
+			assertEquals("b", source.nextLine());
+			source.unreadLastLine();
+			assertEquals(2, source.position());
+			assertEquals(1, source.lineNumber());
+			assertEquals("b", source.nextLine());
+			assertEquals("c", source.nextLine());
+		}
+	}
+
+	@Test
+	void openFromOffsetAndChunk() throws IOException {
+		Path file = write("offset.log", "aa\nbb\ncc\ndd\n");
+		try (LineSource source = LineSource.open(file, MATCHER, -1, 3)) {
+			assertEquals(List.of("bb", "cc", "dd"), lines(source));
+		}
+		try (LineSource source = LineSource.open(file, MATCHER, -1, 3, 9)) {
+			assertEquals(List.of("bb", "cc"), lines(source));
+			assertEquals(9, source.position());
+		}
+	}
+
+	@Test
+	void appendedSkipsIncompleteLastLine() throws IOException {
+		Path file = write("appended.log", "a\nb\nнедопис");
+		try (LineSource source = LineSource.openAppended(file, MATCHER, -1, 0)) {
+			assertTrue(source.completeLinesOnly());
+			assertEquals(List.of("a", "b"), lines(source));
+			assertEquals(4, source.position());
+		}
+		Files.writeString(file, "анная\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+		try (LineSource source = LineSource.openAppended(file, MATCHER, -1, 4)) {
+			assertEquals(List.of("недописанная"), lines(source));
+		}
+	}
+
+	@Test
+	void gzipIsReadAsStreamAcrossWindows() throws IOException {
+		// Строки длиннее окна потока в 1 МБ и маркер на стыке окон
+		List<String> expected = new ArrayList<>();
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 5; i++) {
+			String line = "x".repeat((1 << 20) - 4 + i * 300_000) + "Переход " + i;
+			expected.add(line);
+			text.append(line).append("\r\n");
+		}
+		Path file = dir.resolve("big.log.gz");
+		try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+			out.write(text.toString().getBytes(StandardCharsets.UTF_8));
+		}
+		assertTrue(LineSource.isCompressed(file));
+		try (LineSource source = LineSource.open(file, MATCHER, TRANSITION)) {
+			assertEquals(expected.get(0), source.firstLine());
+			List<String> actual = new ArrayList<>();
+			for (String line = source.nextMatching(); line != null; line = source.nextMatching()) {
+				actual.add(line);
+			}
+			assertEquals(expected, actual);
+			assertEquals(expected.get(4), source.lastLine());
+			assertEquals(text.toString().getBytes(StandardCharsets.UTF_8).length, source.position());
+		}
+	}
+
+	@Test
+	void seekFindsLineStartBeforeFirstLaterTime() throws IOException, ParseException {
+		LocalDateTime start = LocalDateTime.of(2025, 3, 27, 9, 0);
+		List<Long> offsets = new ArrayList<>();
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 30_000; i++) {
+			offsets.add((long) text.length());
+			text.append(YEAR_MONTH_DAY.format(start.plusSeconds(i))).append(" INFO [thread-").append(i % 7).append("] line\n");
+			if (i % 1000 == 0) {
+				// Строки без метки времени (продолжения стектрейса) пропускаются
+				text.append("\tat ru.sam47kon.Trace\n");
+			}
+		}
+		Path file = dir.resolve("seek.log");
+		Files.write(file, text.toString().getBytes(StandardCharsets.ISO_8859_1));
+		TimestampFormat format = TimestampFormat.YEAR_MONTH_DAY;
+		for (int second : new int[]{0, 1, 12_345, 29_999}) {
+			long time = format.epochMillis(start.plusSeconds(second));
+			long position = LineSource.seek(file, format, time);
+			long first = offsets.get(second);
+			assertTrue(position <= first, second + ": " + position + " > " + first);
+			// Поиск останавливается на блоке в 64 КБ
+			assertTrue(first - position <= 2 * 65536, second + ": " + position);
+			assertTrue(position == 0 || text.charAt((int) position - 1) == '\n', second + ": " + position);
+		}
+		assertEquals(0, LineSource.seek(file, format, format.epochMillis(start.minusDays(1))));
+		long[] bounds = LineSource.timeBounds(file, format);
+		assertNotNull(bounds);
+		assertArrayEquals(new long[]{format.epochMillis(start), format.epochMillis(start.plusSeconds(29_999))}, bounds);
+	}
+
+	@Test
+	void timeBoundsWithoutTimestamps() throws IOException {
+		assertNull(LineSource.timeBounds(write("notime.log", "нет\nметок\n"), TimestampFormat.YEAR_MONTH_DAY));
+	}
+
+	@Test
+	void splitBoundsAreLineStarts() throws IOException {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			// Строки разной длины, одна длиннее куска
+			text.append("line ").append(i).append(" ").append("x".repeat(i == 2500 ? 5000 : i % 37)).append(i % 2 == 0 ? "\n" : "\r\n");
+		}
+		Path file = write("split.log", text.toString());
+		long[] bounds = LineSource.split(file, 0, 1000, MATCHER, matches -> false);
+		assertEquals(0, bounds[0]);
+		assertEquals(Files.size(file), bounds[bounds.length - 1]);
+		assertTrue(bounds.length > 50);
+		for (int i = 1; i < bounds.length; i++) {
+			assertTrue(bounds[i] > bounds[i - 1], i + ": " + bounds[i]);
+			assertTrue(i == bounds.length - 1 || text.charAt((int) bounds[i] - 1) == '\n', i + ": " + bounds[i]);
+		}
+		assertEquals(text.toString().lines().toList(), chunkLines(file, bounds));
+		assertArrayEquals(new long[]{0, Files.size(file)}, LineSource.split(file, 0, 0, MATCHER, matches -> false));
+	}
+
+	@Test
+	void splitKeepsFollowingLineWithItsLine() throws IOException {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 3000; i++) {
+			// Заголовок записи и строка деталей, которую анализатор читает вместе с ним
+			text.append("Переход ").append(i).append('\n').append("детали ").append(i).append("\r\n");
+		}
+		Path file = write("dlc.log", text.toString());
+		long[] bounds = LineSource.split(file, 0, 777, MATCHER, matches -> (matches & TRANSITION) != 0);
+		assertTrue(bounds.length > 10);
+		byte[] bytes = Files.readAllBytes(file);
+		for (int i = 1; i < bounds.length - 1; i++) {
+			// Границы — смещения в байтах, а не в символах
+			String next = new String(bytes, (int) bounds[i], 20, StandardCharsets.UTF_8);
+			assertTrue(next.startsWith("Переход"), i + ": " + next);
+		}
+		assertEquals(text.toString().lines().toList(), chunkLines(file, bounds));
+	}
+
+	@Test
+	void splitFromOffset() throws IOException {
+		Path file = write("offset.log", "aa\nbb\ncc\ndd\nee\n");
+		assertArrayEquals(new long[]{3, 6, 9, 12, 15}, LineSource.split(file, 3, 2, MATCHER, matches -> false));
+		assertArrayEquals(new long[]{15, 15}, LineSource.split(file, 15, 2, MATCHER, matches -> false));
+	}
+
+	private Path write(String name, String text) throws IOException {
+		Path file = dir.resolve(name);
+		Files.writeString(file, text, StandardCharsets.UTF_8);
+		return file;
+	}
+
+	private static List<String> lines(LineSource source) throws IOException {
+		List<String> lines = new ArrayList<>();
+		for (String line = source.nextLine(); line != null; line = source.nextLine()) {
+			lines.add(line);
+		}
+		return lines;
+	}
+
+	/// Строки всех кусков подряд
+	private static List<String> chunkLines(Path file, long[] bounds) throws IOException {
+		List<String> lines = new ArrayList<>();
+		for (int i = 0; i < bounds.length - 1; i++) {
+			try (LineSource source = LineSource.open(file, MATCHER, -1, bounds[i], bounds[i + 1])) {
+				lines.addAll(lines(source));
+			}
+		}
+		return lines;
+	}
+}
@@ -0,0 +1,146 @@
+package ru.sam47kon.log_analyzer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogCheckpointsTest {
+	private static final MarkerMatcher MATCHER = MarkerMatcher.builder().contains("line").build();
+
+	@TempDir
+	Path dir;
+
+	// Строки, прочитанные из файла при последнем запуске
+	private final List<String> read = new ArrayList<>();
+
+	@Test
+	void unchangedFileIsNotReadAgain() throws IOException {
+		Path file = write("server.log", "line 1\nline 2\n");
+		assertEquals(List.of("line 1", "line 2"), run(file));
+		assertEquals(List.of("line 1", "line 2"), read);
+		assertEquals(List.of("line 1", "line 2"), run(file));
+		assertTrue(read.isEmpty());
+	}
+
+	@Test
+	void appendedFileIsReadFromCheckpoint() throws IOException {
+		Path file = write("server.log", "line 1\nline 2\n");
+		run(file);
+		Files.writeString(file, "line 3\n", StandardOpenOption.APPEND);
+		assertEquals(List.of("line 1", "line 2", "line 3"), run(file));
+		assertEquals(List.of("line 3"), read);
+	}
+
+	@Test
+	void incompleteLastLineIsReadButNotCheckpointed() throws IOException {
+		Path file = write("server.log", "line 1\nline 2 недопис");
+		assertEquals(List.of("line 1", "line 2 недопис"), run(file));
+		Files.writeString(file, "анная\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+		// Недописанная строка не попала в контрольную точку и читается еще раз целиком
+		assertEquals(List.of("line 1", "line 2 недописанная"), run(file));
+		assertEquals(List.of("line 2 недописанная"), read);
+	}
+
+	@Test
+	void changedPrefixInvalidatesCheckpoint() throws IOException {
+		Path file = write("server.log", "line 1\nline 2\n");
+		run(file);
+		// Тот же размер, другое содержимое прочитанной части
+		write("server.log", "line 7\nline 8\n");
+		assertEquals(List.of("line 7", "line 8"), run(file));
+		assertEquals(List.of("line 7", "line 8"), read);
+	}
+
+	@Test
+	void truncatedFileIsReadFromStart() throws IOException {
+		Path file = write("server.log", "line 1\nline 2\nline 3\n");
+		run(file);
+		write("server.log", "line 4\n");
+		assertEquals(List.of("line 4"), run(file));
+	}
+
+	@Test
+	void compressedFileIsReusedOnlyWhenUnchanged() throws IOException {
+		Path file = dir.resolve("server.log.gz");
+		gzip(file, "line 1\nline 2\n");
+		assertEquals(List.of("line 1", "line 2"), run(file));
+		assertEquals(List.of("line 1", "line 2"), run(file));
+		assertTrue(read.isEmpty());
+		// Сжатый файл не дочитывается: любое изменение — чтение с начала
+		gzip(file, "line 1\nline 2\nline 3\n");
+		assertEquals(List.of("line 1", "line 2", "line 3"), run(file));
+		assertEquals(3, read.size());
+	}
+
+	@Test
+	void unreadableIndexIsIgnored() throws IOException {
+		Path file = write("server.log", "line 1\n");
+		run(file);
+		Files.writeString(dir.resolve(".test.checkpoints"), "испорчен");
+		assertEquals(List.of("line 1"), run(file));
+		assertEquals(List.of("line 1"), read);
+		// Индекс перезаписан и снова используется
+		assertEquals(List.of("line 1"), run(file));
+		assertTrue(read.isEmpty());
+	}
+
+	@Test
+	void disabledCheckpointsAlwaysReadWholeFile() throws IOException {
+		Path file = write("server.log", "line 1\n");
+		Options options = Options.parse(new String[]{dir.toString()}, ".");
+		for (int i = 0; i < 2; i++) {
+			LogCheckpoints<Lines> checkpoints = LogCheckpoints.load(options, "test");
+			checkpoints.analyze(file, Lines::new, MATCHER, -1, this::analyze);
+			checkpoints.save();
+		}
+		assertFalse(Files.exists(dir.resolve(".test.checkpoints")));
+	}
+
+	/// Один запуск анализа с контрольными точками: загрузка индекса, анализ файла, запись индекса
+	private List<String> run(Path file) {
+		read.clear();
+		LogCheckpoints<Lines> checkpoints = LogCheckpoints.load(Options.parse(new String[]{dir.toString(), "--checkpoints"}, "."), "test");
+		Lines lines = checkpoints.analyze(file, Lines::new, MATCHER, -1, this::analyze);
+		checkpoints.save();
+		return lines.lines;
+	}
+
+	private void analyze(Lines partial, LineSource source) throws IOException {
+		for (String line = source.nextLine(); line != null; line = source.nextLine()) {
+			partial.lines.add(line);
+			read.add(line);
+		}
+	}
+
+	private Path write(String name, String text) throws IOException {
+		Path file = dir.resolve(name);
+		Files.writeString(file, text, StandardCharsets.UTF_8);
+		return file;
+	}
+
+	private static void gzip(Path file, String text) throws IOException {
+		try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+			out.write(text.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	static final class Lines implements Serializable {
+		@Serial
+		private static final long serialVersionUID = 1L;
+
+		final ArrayList<String> lines = new ArrayList<>();
+	}
+}
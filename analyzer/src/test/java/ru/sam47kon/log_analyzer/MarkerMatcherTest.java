@@ -0,0 +1,99 @@
+package ru.sam47kon.log_analyzer;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarkerMatcherTest {
+
+	@Test
+	void findsOverlappingMarkers() {
+		MarkerMatcher matcher = MarkerMatcher.builder().contains("he").contains("she").contains("his").contains("hers").build();
+		assertEquals(matcher.mask("he", "she", "hers"), lineMatches(matcher, "ushers"));
+		assertEquals(matcher.mask("his"), lineMatches(matcher, "this"));
+		assertEquals(0, lineMatches(matcher, "hs"));
+	}
+
+	@Test
+	void matchesUtf8Markers() {
+		MarkerMatcher matcher = MarkerMatcher.builder().contains("Переход").contains("начат").build();
+		assertEquals(matcher.mask("Переход", "начат"), lineMatches(matcher, "[c.o.s] Переход MSC_Sign начат"));
+		// Общие первые байты кириллицы не дают ложных совпадений
+		assertEquals(0, lineMatches(matcher, "Перевод начал"));
+	}
+
+	@Test
+	void endsWithCountsOnlyAtLineEnd() {
+		MarkerMatcher matcher = MarkerMatcher.builder().contains("SOBI").endsWith("verify").build();
+		long verify = matcher.mask("verify");
+		assertEquals(verify, lineMatches(matcher, "call verify"));
+		assertEquals(0, lineMatches(matcher, "verify call"));
+		assertEquals(matcher.mask("SOBI"), lineMatches(matcher, "SOBI verify call"));
+		assertEquals(matcher.mask("SOBI", "verify"), lineMatches(matcher, "SOBI verify call verify"));
+	}
+
+	@Test
+	void agreesWithStringContains() {
+		List<String> markers = List.of("ab", "abc", "bca", "c", "cab", "aaa");
+		MarkerMatcher.Builder builder = MarkerMatcher.builder();
+		markers.forEach(builder::contains);
+		MarkerMatcher matcher = builder.build();
+		Random random = new Random(47);
+		for (int n = 0; n < 2000; n++) {
+			StringBuilder line = new StringBuilder();
+			for (int i = random.nextInt(12); i > 0; i--) {
+				line.append((char) ('a' + random.nextInt(3)));
+			}
+			long expected = 0;
+			for (int id = 0; id < markers.size(); id++) {
+				if (line.toString().contains(markers.get(id))) {
+					expected |= 1L << id;
+				}
+			}
+			assertEquals(expected, lineMatches(matcher, line.toString()), line.toString());
+		}
+	}
+
+	@Test
+	void combineShiftsMarkerIds() {
+		MarkerMatcher first = MarkerMatcher.builder().contains("a").endsWith("z").build();
+		MarkerMatcher second = MarkerMatcher.builder().endsWith("b").contains("y").build();
+		MarkerMatcher combined = MarkerMatcher.combine(List.of(first, second));
+		assertEquals(4, combined.size());
+		assertEquals(List.of("a", "z", "b", "y"), List.of(combined.marker(0), combined.marker(1), combined.marker(2), combined.marker(3)));
+		assertEquals(combined.mask("a", "y"), lineMatches(combined, "a b y"));
+		// Маркеры endsWith второго набора сохраняют свой смысл после сдвига
+		assertEquals(combined.mask("a", "b"), lineMatches(combined, "a b"));
+		assertEquals(combined.mask("z", "y"), lineMatches(combined, "y z"));
+	}
+
+	@Test
+	void rejectsInvalidMarkers() {
+		assertThrows(IllegalArgumentException.class, () -> MarkerMatcher.builder().contains(""));
+		assertThrows(IllegalArgumentException.class, () -> MarkerMatcher.builder().contains("a").endsWith("a"));
+		MarkerMatcher.Builder full = MarkerMatcher.builder();
+		for (int i = 0; i < MarkerMatcher.MAX_MARKERS; i++) {
+			full.contains("m" + i);
+		}
+		assertThrows(IllegalArgumentException.class, () -> full.contains("лишний"));
+		MarkerMatcher matcher = full.build();
+		assertEquals(1L << 63, matcher.mask("m63"));
+		assertThrows(IllegalArgumentException.class, () -> matcher.mask("нет"));
+		assertThrows(IllegalArgumentException.class, () -> MarkerMatcher.combine(List.of(matcher, MarkerMatcher.builder().contains("x").build())));
+	}
+
+	/// Итоговая маска строки, как в {@link LineSource}
+	private static long lineMatches(MarkerMatcher matcher, String line) {
+		int state = 0;
+		long found = 0;
+		for (byte b : line.getBytes(StandardCharsets.UTF_8)) {
+			state = matcher.next(state, b);
+			found |= matcher.matches(state);
+		}
+		return matcher.lineMatches(found, matcher.matches(state));
+	}
+}
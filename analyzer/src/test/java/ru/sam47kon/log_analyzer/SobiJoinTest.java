@@ -0,0 +1,71 @@
+package ru.sam47kon.log_analyzer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SobiJoinTest {
+	private static final LocalDateTime START = LocalDateTime.of(2025, 3, 27, 9, 0);
+	private static final Guid GUID = Guid.parse("6a1d2b9e-0c4f-4a8e-9f3b-2d5c7e8f9a01");
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void requestsGoToLatestOpenTransitionOfTheirThread() throws IOException {
+		EventStore transitions = new EventStore(2);
+		transition(transitions, 0, 10, "t1", "Outer");
+		// Вложенный переход того же потока запущен позже и забирает запросы, пока открыт
+		transition(transitions, 2, 3, "t1", "Inner");
+		transition(transitions, 0, 20, "t2", "Idle");
+		EventStore requests = new EventStore(2);
+		request(requests, 1, 1, "t1", "get");
+		request(requests, 3, 2, "t1", "put");
+		request(requests, 5, 4, "t1", "put");
+		request(requests, 6, 8, "t1", "get");
+		// Вне переходов: после завершения и в потоке без переходов
+		request(requests, 11, 16, "t1", "get");
+		request(requests, 3, 32, "t3", "get");
+
+		List<String> report = report(transitions, requests);
+		assertEquals("Переходов: 3, запросов SOBI: 6, отнесено к переходам: 4, вне переходов: 2", report.get(0));
+		assertTrue(report.contains("\tOuter: 1, p50 2, p90 2, p99 2, p99.9 2, max 2"), String.join("\n", report));
+		assertTrue(report.contains("\tInner: 1, p50 2, p90 2, p99 2, p99.9 2, max 2"), String.join("\n", report));
+		// Переход без запросов учитывается с нулем
+		assertTrue(report.contains("\tIdle: 1, p50 0, p90 0, p99 0, p99.9 0, max 0"), String.join("\n", report));
+		assertTrue(report.contains("\tOuter: 1, p50 9, p90 9, p99 9, p99.9 9, max 9"), String.join("\n", report));
+		assertTrue(report.contains("\tInner: 1, p50 6, p90 6, p99 6, p99.9 6, max 6"), String.join("\n", report));
+		assertEquals(List.of("\tInner: {put=2}", "\tOuter: {get=2}"), report.subList(report.size() - 2, report.size()));
+	}
+
+	@Test
+	void endOfTransitionIsInclusive() throws IOException {
+		EventStore transitions = new EventStore(2);
+		transition(transitions, 0, 5, "t1", "Sign");
+		EventStore requests = new EventStore(2);
+		request(requests, 5, 1, "t1", "get");
+		assertEquals("Переходов: 1, запросов SOBI: 1, отнесено к переходам: 1, вне переходов: 0", report(transitions, requests).get(0));
+	}
+
+	private List<String> report(EventStore transitions, EventStore requests) throws IOException {
+		SobiJoin.report(transitions, requests, Options.parse(new String[]{dir.toString(), "--sobi-join"}, "."));
+		return Files.readAllLines(dir.resolve(SobiJoin.SOBI_TRANSITIONS));
+	}
+
+	/// Переход сервера: время в формате логов сервера без года
+	private static void transition(EventStore transitions, int startSecond, int seconds, String thread, String name) {
+		transitions.add(TimestampFormat.MONTH_DAY.epochMillis(START.plusSeconds(startSecond)), GUID, seconds * 1000, thread, name);
+	}
+
+	/// Запрос POIB: время с годом, количество ресурсов в длительности
+	private static void request(EventStore requests, int second, int resources, String thread, String type) {
+		requests.add(TimestampFormat.YEAR_MONTH_DAY.epochMillis(START.plusSeconds(second)), GUID, resources, thread, type);
+	}
+}
@@ -0,0 +1,126 @@
+package ru.sam47kon.log_analyzer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Разбор меток времени сверяется с SimpleDateFormat и java.time, часовой пояс Europe/Berlin задан в surefire
+class TimestampFormatTest {
+	private static final ZoneId ZONE = ZoneId.systemDefault();
+	private static final DateTimeFormatter YEAR_MONTH_DAY = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss,SSS");
+	private static final DateTimeFormatter MONTH_DAY = DateTimeFormatter.ofPattern("MM-dd;HH:mm:ss.SSS");
+	private static final String REST = " INFO  [default task-29] [c.o.s.s.d.LifeCycleServiceImpl] Переход MSC_Sign";
+
+	@BeforeAll
+	static void zoneWithDst() {
+		assertTrue(ZONE.getRules().isDaylightSavings(LocalDateTime.of(2024, 7, 1, 12, 0).atZone(ZONE).toInstant()),
+				"Тесты рассчитаны на часовой пояс с летним временем, сейчас " + ZONE);
+	}
+
+	@Test
+	void parseMatchesSimpleDateFormat() throws ParseException {
+		SimpleDateFormat reference = simpleDateFormat(TimestampFormat.YEAR_MONTH_DAY);
+		// Шаг не кратен минуте, поэтому попадаются все поля, разрыв и перекрытие при переводе часов
+		for (LocalDateTime time = LocalDateTime.of(2023, 12, 31, 0, 0); time.getYear() < 2025; time = time.plusNanos(433_457_000_000L)) {
+			String text = YEAR_MONTH_DAY.format(time);
+			assertEquals(reference.parse(text).getTime(), TimestampFormat.YEAR_MONTH_DAY.parse(text + REST), text);
+		}
+	}
+
+	@Test
+	void yearlessParseMatchesSimpleDateFormat() throws ParseException {
+		SimpleDateFormat reference = simpleDateFormat(TimestampFormat.MONTH_DAY);
+		for (LocalDateTime time = LocalDateTime.of(2024, 1, 1, 0, 0); time.getYear() < 2025; time = time.plusNanos(433_457_000_000L)) {
+			if (time.getMonthValue() == 2 && time.getDayOfMonth() == 29) {
+				// В 1970 году 29 февраля нет, SimpleDateFormat переносит его на 1 марта
+				continue;
+			}
+			String text = MONTH_DAY.format(time);
+			assertEquals(reference.parse(text).getTime(), TimestampFormat.MONTH_DAY.parse(text + REST), text);
+		}
+	}
+
+	@Test
+	void yearlessTimesAreIn1970() throws ParseException {
+		long newYearsEve = TimestampFormat.MONTH_DAY.parse("12-31;23:59:59.999");
+		assertEquals(LocalDateTime.of(1970, 12, 31, 23, 59, 59, 999_000_000).atZone(ZONE).toInstant().toEpochMilli(), newYearsEve);
+		// Логи без года на стыке лет: 1 января оказывается раньше 31 декабря
+		assertTrue(TimestampFormat.MONTH_DAY.parse("01-01;00:00:00.000") < newYearsEve);
+	}
+
+	@Test
+	void dstGapUsesOffsetBeforeTransition() throws ParseException {
+		for (String text : List.of("2024-03-31 01:59:59,999", "2024-03-31 02:00:00,000", "2024-03-31 02:30:00,000",
+				"2024-03-31 02:59:59,999", "2024-03-31 03:00:00,000")) {
+			long parsed = TimestampFormat.YEAR_MONTH_DAY.parse(text);
+			assertEquals(simpleDateFormat(TimestampFormat.YEAR_MONTH_DAY).parse(text).getTime(), parsed, text);
+			// java.time сдвигает время из разрыва вперед на длину разрыва, это тот же момент
+			assertEquals(LocalDateTime.parse(text, YEAR_MONTH_DAY).atZone(ZONE).toInstant().toEpochMilli(), parsed, text);
+		}
+	}
+
+	@Test
+	void dstOverlapUsesOffsetAfterTransition() throws ParseException {
+		for (String text : List.of("2024-10-27 01:59:59,999", "2024-10-27 02:00:00,000", "2024-10-27 02:30:00,000",
+				"2024-10-27 02:59:59,999", "2024-10-27 03:00:00,000")) {
+			long parsed = TimestampFormat.YEAR_MONTH_DAY.parse(text);
+			assertEquals(simpleDateFormat(TimestampFormat.YEAR_MONTH_DAY).parse(text).getTime(), parsed, text);
+			assertEquals(LocalDateTime.parse(text, YEAR_MONTH_DAY).atZone(ZONE).withLaterOffsetAtOverlap().toInstant().toEpochMilli(), parsed, text);
+		}
+	}
+
+	@Test
+	void offsetCacheFollowsOutOfOrderTimes() throws ParseException {
+		SimpleDateFormat reference = simpleDateFormat(TimestampFormat.YEAR_MONTH_DAY);
+		// Кэшированный интервал смещения меняется при каждом переходе между зимним, летним временем и переводом часов
+		List<String> times = List.of("2024-07-01 12:00:00,000", "2024-01-15 12:00:00,000", "2024-10-27 02:15:00,000",
+				"2024-07-01 12:00:00,001", "2024-03-31 02:15:00,000", "2024-03-31 03:15:00,000", "2024-10-27 02:15:00,000",
+				"2024-10-27 01:15:00,000", "2024-12-31 23:59:59,999", "1999-06-01 00:00:00,000", "2024-07-01 12:00:00,000");
+		for (String text : times) {
+			assertEquals(reference.parse(text).getTime(), TimestampFormat.YEAR_MONTH_DAY.parse(text), text);
+		}
+	}
+
+	@Test
+	void epochMillisMatchesParse() throws ParseException {
+		for (LocalDateTime time : List.of(LocalDateTime.of(2025, 3, 27, 9, 0, 0, 94_000_000), LocalDateTime.of(2024, 3, 31, 2, 30),
+				LocalDateTime.of(2024, 10, 27, 2, 30), LocalDateTime.of(2024, 12, 31, 23, 59, 59, 999_000_000))) {
+			assertEquals(TimestampFormat.YEAR_MONTH_DAY.parse(YEAR_MONTH_DAY.format(time)), TimestampFormat.YEAR_MONTH_DAY.epochMillis(time), time.toString());
+			// Без года в формате год времени отбрасывается, как при разборе строки
+			assertEquals(TimestampFormat.MONTH_DAY.parse(MONTH_DAY.format(time)), TimestampFormat.MONTH_DAY.epochMillis(time), time.toString());
+		}
+	}
+
+	@Test
+	void formatIsInverseOfParse() throws ParseException {
+		for (String text : List.of("2025-03-27 09:00:00,094", "2024-10-27 02:30:00,000", "2024-01-01 00:00:00,000")) {
+			assertEquals(text, TimestampFormat.YEAR_MONTH_DAY.format(TimestampFormat.YEAR_MONTH_DAY.parse(text)));
+		}
+		assertEquals("03-27;09:00:00.021", TimestampFormat.MONTH_DAY.format(TimestampFormat.MONTH_DAY.parse("03-27;09:00:00.021")));
+	}
+
+	@Test
+	void rejectsMalformedTimestamps() {
+		for (String text : List.of("", "2025-03-27 09:00", "2025-03-27T09:00:00,094", "2025-13-27 09:00:00,094", "2025-03-32 09:00:00,094",
+				"2025-03-27 24:00:00,094", "2025-03-27 09:60:00,094", "2025-03-27 0a:00:00,094", "03-27;09:00:00.021")) {
+			assertThrows(ParseException.class, () -> TimestampFormat.YEAR_MONTH_DAY.parse(text), text);
+		}
+		assertThrows(ParseException.class, () -> TimestampFormat.MONTH_DAY.parse("03-27 09:00:00.021"));
+		assertThrows(ParseException.class, () -> TimestampFormat.MONTH_DAY.parse("2025-03-27 09:00:00,094"));
+	}
+
+	private static SimpleDateFormat simpleDateFormat(TimestampFormat format) {
+		SimpleDateFormat simpleDateFormat = new SimpleDateFormat(format.pattern());
+		simpleDateFormat.setTimeZone(TimeZone.getDefault());
+		return simpleDateFormat;
+	}
+}
@@ -0,0 +1,46 @@
+package ru.sam47kon.log_analyzer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopKTest {
+
+	@Test
+	void keepsLargestKeysEarliestFirst() {
+		TopK<String> top = new TopK<>(3);
+		top.add(5, "a");
+		top.add(9, "b");
+		top.add(5, "c");
+		top.add(1, "d");
+		top.add(7, "e");
+		// При равных ключах остается добавленный раньше
+		top.add(5, "f");
+		assertEquals(List.of("b", "e", "a"), top.sorted());
+		top.add(9, "g");
+		assertEquals(List.of("b", "g", "e"), top.sorted());
+	}
+
+	@Test
+	void mergeTreatsOtherAsAddedLater() {
+		TopK<String> first = new TopK<>(2);
+		first.add(3, "a");
+		first.add(1, "b");
+		TopK<String> second = new TopK<>(2);
+		second.add(3, "c");
+		second.add(3, "d");
+		first.merge(second);
+		assertEquals(List.of("a", "c"), first.sorted());
+		second.merge(first);
+		assertEquals(List.of("c", "d"), second.sorted());
+	}
+
+	@Test
+	void zeroLimitKeepsNothing() {
+		TopK<String> top = new TopK<>(0);
+		top.add(1, "a");
+		assertTrue(top.sorted().isEmpty());
+	}
+}
@@ -0,0 +1,108 @@
+package ru.sam47kon.log_analyzer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransitionCountersTest {
+	private static final Guid FIRST = Guid.parse("6a1d2b9e-0c4f-4a8e-9f3b-2d5c7e8f9a01");
+	private static final Guid SECOND = Guid.parse("6a1d2b9e-0c4f-4a8e-9f3b-2d5c7e8f9a02");
+
+	@Test
+	void countsStartsByName() {
+		TransitionCounters counters = new TransitionCounters();
+		int sign = counters.transition("Sign");
+		int send = counters.transition("Send");
+		assertEquals(sign, counters.transition("Sign"));
+		assertEquals("Send", counters.name(send));
+		counters.started(sign);
+		counters.started(sign);
+		counters.started(send);
+		counters.ended();
+		assertEquals(Map.of("Sign", 2L, "Send", 1L), counters.startsByName());
+		assertEquals(List.of("Sign", "Send"), List.copyOf(counters.startsByName().keySet()));
+		assertEquals(3, counters.startTransitions.sum());
+		assertEquals(1, counters.endTransitions.sum());
+	}
+
+	@Test
+	void documentsAreOrderedByFirstLine() {
+		TransitionCounters counters = new TransitionCounters();
+		int sign = counters.transition("Sign");
+		int send = counters.transition("Send");
+		counters.document(FIRST, send, 40);
+		counters.document(FIRST, sign, 30);
+		counters.document(FIRST, send, 50);
+		counters.document(SECOND, sign, 20);
+		List<Map.Entry<Guid, TransitionCounters.DocumentStats>> documents = counters.documents(1);
+		assertEquals(List.of(SECOND, FIRST), documents.stream().map(Map.Entry::getKey).toList());
+		TransitionCounters.DocumentStats first = documents.get(1).getValue();
+		assertEquals(3, first.lines);
+		assertEquals(30, first.firstTimeLog);
+		assertEquals("Sign,Send", first.transitionNames(counters));
+		assertEquals(List.of(FIRST), counters.documents(2).stream().map(Map.Entry::getKey).toList());
+		assertTrue(counters.estimatedBytes() > 0);
+	}
+
+	@Test
+	void mergeTranslatesTransitionIds() {
+		TransitionCounters first = new TransitionCounters();
+		first.started(first.transition("Sign"));
+		first.document(FIRST, first.transition("Sign"), 10);
+		TransitionCounters second = new TransitionCounters();
+		// Во втором экземпляре номера имен другие
+		int send = second.transition("Send");
+		int sign = second.transition("Sign");
+		second.started(send);
+		second.started(sign);
+		second.startVerify.increment();
+		second.document(FIRST, send, 5);
+		second.document(SECOND, sign, 7);
+		first.merge(second);
+		assertEquals(Map.of("Sign", 2L, "Send", 1L), first.startsByName());
+		assertEquals(1, first.startVerify.sum());
+		List<Map.Entry<Guid, TransitionCounters.DocumentStats>> documents = first.documents(1);
+		assertEquals(List.of(FIRST, SECOND), documents.stream().map(Map.Entry::getKey).toList());
+		assertEquals(2, documents.get(0).getValue().lines);
+		assertEquals("Send,Sign", documents.get(0).getValue().transitionNames(first));
+		assertEquals("Sign", documents.get(1).getValue().transitionNames(first));
+	}
+
+	@Test
+	void concurrentUpdatesAreNotLost() throws Exception {
+		TransitionCounters counters = new TransitionCounters();
+		int threads = 8;
+		int lines = 20_000;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				int thread = t;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < lines; i++) {
+						// Новые имена появляются одновременно в разных потоках
+						int transition = counters.transition("T" + (i + thread) % 50);
+						counters.started(transition);
+						counters.document(i % 2 == 0 ? FIRST : SECOND, transition, i);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(50, counters.startsByName().size());
+		assertEquals((long) threads * lines, counters.startsByName().values().stream().mapToLong(Long::longValue).sum());
+		assertEquals((long) threads * lines, counters.startTransitions.sum());
+		assertEquals((long) threads * lines, counters.documents(1).stream().mapToLong(entry -> entry.getValue().lines).sum());
+	}
+}
@@ -0,0 +1,95 @@
+package ru.sam47kon.log_analyzer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransitionTrackerTest {
+	private static final Guid FIRST = Guid.parse("6a1d2b9e-0c4f-4a8e-9f3b-2d5c7e8f9a01");
+	private static final Guid SECOND = Guid.parse("6a1d2b9e-0c4f-4a8e-9f3b-2d5c7e8f9a02");
+
+	private final List<String> completed = new ArrayList<>();
+	private final TransitionTracker.Completion completion = (guid, transitionName, threadName, startTime, endTime) ->
+			completed.add(guid.toString().substring(35) + " " + transitionName + " " + threadName + " " + startTime + "-" + endTime);
+
+	@Test
+	void pairsStartsWithEndsByGuidAndName() {
+		TransitionTracker tracker = new TransitionTracker();
+		tracker.start(FIRST, "Sign", "t1", 10);
+		tracker.start(SECOND, "Sign", "t2", 11);
+		tracker.start(FIRST, "Send", "t3", 12);
+		tracker.end(SECOND, "Sign", 20, completion);
+		tracker.end(FIRST, "Sign", 21, completion);
+		assertEquals(List.of("2 Sign t2 11-20", "1 Sign t1 10-21"), completed);
+		assertEquals(Map.of(FIRST, List.of(new TransitionTracker.OpenTransition("Send", "t3", 12))), tracker.openByGuid());
+	}
+
+	@Test
+	void repeatedStartsCloseInOrder() {
+		TransitionTracker tracker = new TransitionTracker();
+		tracker.start(FIRST, "Sign", "t1", 10);
+		tracker.start(FIRST, "Sign", "t2", 15);
+		tracker.end(FIRST, "Sign", 16, completion);
+		tracker.end(FIRST, "Sign", 17, completion);
+		assertEquals(List.of("1 Sign t1 10-16", "1 Sign t2 15-17"), completed);
+		assertTrue(tracker.openByGuid().isEmpty());
+		assertEquals(0, tracker.estimatedBytes());
+	}
+
+	@Test
+	void endBeforeAnyStartIsKeptAsOrphan() {
+		TransitionTracker tracker = new TransitionTracker();
+		tracker.start(FIRST, "Sign", "t1", 30);
+		// Завершение раньше запуска его не закрывает
+		tracker.end(FIRST, "Sign", 20, completion);
+		assertTrue(completed.isEmpty());
+		assertEquals(1, tracker.openByGuid().get(FIRST).size());
+		assertTrue(tracker.estimatedBytes() > 0);
+	}
+
+	@Test
+	void mergeClosesAcrossFilesInAnyOrder() {
+		for (boolean startsFirst : new boolean[]{true, false}) {
+			completed.clear();
+			// Запуск в одном файле, завершение в другом
+			TransitionTracker starts = new TransitionTracker();
+			starts.start(FIRST, "Sign", "t1", 10);
+			starts.start(SECOND, "Sign", "t2", 50);
+			TransitionTracker ends = new TransitionTracker();
+			ends.end(FIRST, "Sign", 20, completion);
+			ends.end(SECOND, "Sign", 40, completion);
+			assertTrue(completed.isEmpty());
+			TransitionTracker merged = startsFirst ? starts : ends;
+			merged.merge(startsFirst ? ends : starts, completion);
+			assertEquals(List.of("1 Sign t1 10-20"), completed, "startsFirst=" + startsFirst);
+			// Завершение раньше запуска остается без пары
+			assertEquals(List.of(new TransitionTracker.OpenTransition("Sign", "t2", 50)), merged.openByGuid().get(SECOND));
+		}
+	}
+
+	@Test
+	void mergePicksEarliestOrphanEndNotBeforeStart() {
+		TransitionTracker ends = new TransitionTracker();
+		ends.end(FIRST, "Sign", 30, completion);
+		ends.end(FIRST, "Sign", 5, completion);
+		ends.end(FIRST, "Sign", 25, completion);
+		TransitionTracker starts = new TransitionTracker();
+		starts.start(FIRST, "Sign", "t1", 20);
+		ends.merge(starts, completion);
+		assertEquals(List.of("1 Sign t1 20-25"), completed);
+	}
+
+	@Test
+	void openByGuidIsSortedByStart() {
+		TransitionTracker tracker = new TransitionTracker();
+		tracker.start(FIRST, "Send", "t1", 30);
+		tracker.start(FIRST, "Sign", "t2", 10);
+		tracker.start(FIRST, "Send", "t3", 20);
+		assertEquals(List.of(new TransitionTracker.OpenTransition("Sign", "t2", 10), new TransitionTracker.OpenTransition("Send", "t3", 20),
+				new TransitionTracker.OpenTransition("Send", "t1", 30)), tracker.openByGuid().get(FIRST));
+	}
+}
@@ -0,0 +1,103 @@
+package ru.sam47kon.log_analyzer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/// Агрегация разобранных переходов: сопоставление запусков и завершений {@link TransitionTracker},
+/// счетчики по минутам {@link IntervalHistogram} и длительности {@link LatencyHistogram}
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AggregationBenchmark {
+	@Param("200000")
+	public int lines;
+
+	private Guid[] guids;
+	private String[] transitionNames;
+	private String[] threadNames;
+	private long[] times;
+	private boolean[] starts;
+	private long[] durations;
+
+	@Setup
+	public void setup() throws ParseException {
+		List<String> transitions = SyntheticLogs.lines("server", lines, 1).stream()
+				.filter(line -> line.contains("LifeCycleServiceImpl]")).toList();
+		int count = transitions.size();
+		guids = new Guid[count];
+		transitionNames = new String[count];
+		threadNames = new String[count];
+		times = new long[count];
+		starts = new boolean[count];
+		for (int i = 0; i < count; i++) {
+			String line = transitions.get(i);
+			String[] split = LogAnalyzer.transition(line);
+			guids[i] = Guid.parse(LogAnalyzer.documentGuid(split[1]));
+			transitionNames[i] = split[0];
+			threadNames[i] = LogAnalyzer.threadName(line);
+			times[i] = TimestampFormat.MONTH_DAY.parse(line);
+			starts[i] = LogAnalyzer.started(split[1]);
+		}
+		List<Long> completed = new ArrayList<>();
+		pair((guid, transitionName, threadName, startTime, endTime) -> completed.add(endTime - startTime));
+		durations = completed.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	@Benchmark
+	public TransitionTracker transitionPairing() {
+		return pair((guid, transitionName, threadName, startTime, endTime) -> {
+		});
+	}
+
+	@Benchmark
+	public IntervalHistogram intervalHistogram() {
+		IntervalHistogram histogram = new IntervalHistogram(TimeUnit.MINUTES.toMillis(1));
+		for (int i = 0; i < times.length; i++) {
+			if (starts[i]) {
+				histogram.add(times[i]);
+			}
+		}
+		return histogram;
+	}
+
+	/// Прежний способ: счетчики в TreeMap по началу минуты
+	@Benchmark
+	public TreeMap<Long, Long> treeMapByMinute() {
+		TreeMap<Long, Long> counts = new TreeMap<>();
+		for (int i = 0; i < times.length; i++) {
+			if (starts[i]) {
+				counts.merge(Math.floorDiv(times[i], 60_000L) * 60_000L, 1L, Long::sum);
+			}
+		}
+		return counts;
+	}
+
+	@Benchmark
+	public LatencyHistogram latencyHistogram() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long duration : durations) {
+			histogram.record(duration);
+		}
+		return histogram;
+	}
+
+	private TransitionTracker pair(TransitionTracker.Completion completion) {
+		TransitionTracker tracker = new TransitionTracker();
+		for (int i = 0; i < times.length; i++) {
+			if (starts[i]) {
+				tracker.start(guids[i], transitionNames[i], threadNames[i], times[i]);
+			} else {
+				tracker.end(guids[i], transitionNames[i], times[i], completion);
+			}
+		}
+		return tracker;
+	}
+}
@@ -0,0 +1,19 @@
+package ru.sam47kon.log_analyzer;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/// Запуск бенчмарков с параметрами командной строки JMH (например, "Scan -p log=server").
+/// Профилировщик gc включен всегда: gc.alloc.rate.norm — байт на операцию, по нему видны регрессии по аллокациям
+public class BenchmarkRunner {
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+		new Runner(new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+}
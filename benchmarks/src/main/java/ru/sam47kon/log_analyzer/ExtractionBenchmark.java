@@ -0,0 +1,74 @@
+package ru.sam47kon.log_analyzer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/// Выделение полей из строки, прошедшей фильтр по маркерам, методами анализаторов, без метки времени и агрегации
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(ExtractionBenchmark.LINES)
+public class ExtractionBenchmark {
+	static final int LINES = 10_000;
+
+	private String[] transitions;
+	private String[] requests;
+	private String[] headers;
+	private String[] details;
+
+	@Setup
+	public void setup() {
+		transitions = SyntheticLogs.lines("server", 10 * LINES, 1).stream()
+				.filter(line -> line.contains("LifeCycleServiceImpl]")).limit(LINES).toArray(String[]::new);
+		requests = SyntheticLogs.lines("poib", 10 * LINES, 1).stream()
+				.filter(line -> line.contains("Сформирован запрос на ")).limit(LINES).toArray(String[]::new);
+		List<String> dlcPerf = SyntheticLogs.lines("dlcperf", 3 * LINES, 1);
+		headers = new String[LINES];
+		details = new String[LINES];
+		for (int i = 0, record = 0; record < LINES; i++) {
+			if (dlcPerf.get(i).endsWith(": ")) {
+				headers[record] = dlcPerf.get(i);
+				details[record++] = dlcPerf.get(i + 1);
+			}
+		}
+	}
+
+	@Benchmark
+	public void serverTransition(Blackhole blackhole) {
+		for (String line : transitions) {
+			String[] split = LogAnalyzer.transition(line);
+			blackhole.consume(LogAnalyzer.threadName(line));
+			blackhole.consume(split[0]);
+			blackhole.consume(LogAnalyzer.documentGuid(split[1]));
+			blackhole.consume(LogAnalyzer.started(split[1]));
+		}
+	}
+
+	@Benchmark
+	public void poibRequest(Blackhole blackhole) {
+		for (String line : requests) {
+			blackhole.consume(PoibAnalyzer.requestType(line));
+			blackhole.consume(PoibAnalyzer.resources(line));
+		}
+	}
+
+	@Benchmark
+	public void dlcPerfRecord(Blackhole blackhole) {
+		for (int i = 0; i < LINES; i++) {
+			String line = headers[i];
+			blackhole.consume(DLCPerfAnalyzer.guid(line));
+			blackhole.consume(DLCPerfAnalyzer.docType(line));
+			blackhole.consume(LogAnalyzer.threadName(line));
+			String detail = DLCPerfAnalyzer.details(details[i]);
+			String transitionName = DLCPerfAnalyzer.transitionName(detail);
+			blackhole.consume(transitionName);
+			blackhole.consume(DLCPerfAnalyzer.duration(detail, transitionName));
+		}
+	}
+}
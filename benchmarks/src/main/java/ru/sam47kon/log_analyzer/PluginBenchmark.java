@@ -0,0 +1,65 @@
+package ru.sam47kon.log_analyzer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/// Обработка отфильтрованных строк анализатором целиком ({@link LogPlugin#line}): разбор, парные переходы и счетчики
+/// в новый частичный результат, без чтения файла
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PluginBenchmark {
+	@Param({"server", "poib", "dlcperf"})
+	public String log;
+
+	@Param("200000")
+	public int lines;
+
+	private LogPlugin<?> plugin;
+	private final List<String> matching = new ArrayList<>();
+	private final List<String> following = new ArrayList<>();
+	private long[] matches;
+
+	@Setup
+	public void setup() throws IOException {
+		plugin = SyntheticLogs.plugin(log);
+		Path file = SyntheticLogs.write(log, SyntheticLogs.lines(log, lines, 1));
+		List<Long> masks = new ArrayList<>();
+		try (LineSource source = LineSource.open(file, plugin.markers(), plugin.filter())) {
+			String line;
+			while ((line = source.nextMatching()) != null) {
+				matching.add(line);
+				masks.add(source.matches());
+				following.add(plugin.needsFollowingLine(source.matches()) ? source.nextLine() : null);
+			}
+		} finally {
+			Files.deleteIfExists(file);
+		}
+		matches = masks.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	@Benchmark
+	public Serializable line() throws Exception {
+		return feed(plugin);
+	}
+
+	private <T extends Serializable> T feed(LogPlugin<T> plugin) throws Exception {
+		T partial = plugin.newPartial();
+		// Как при чтении файла с начала: иначе LogAnalyzer откладывает сопоставление переходов как для куска файла
+		plugin.fileStarted(partial, matching.isEmpty() ? null : matching.get(0));
+		for (int i = 0; i < matches.length; i++) {
+			plugin.line(partial, matching.get(i), matches[i], following.get(i), LogPlugin.ParseMark.NONE);
+		}
+		return partial;
+	}
+}
@@ -0,0 +1,64 @@
+package ru.sam47kon.log_analyzer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/// Поиск строк с маркерами анализатора в файле: {@link LineSource} с автоматом маркеров
+/// против построчного чтения с декодированием каждой строки
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScanBenchmark {
+	@Param({"server", "poib", "dlcperf"})
+	public String log;
+
+	@Param("200000")
+	public int lines;
+
+	private Path file;
+	private LogPlugin<?> plugin;
+
+	@Setup
+	public void setup() throws IOException {
+		file = SyntheticLogs.write(log, SyntheticLogs.lines(log, lines, 1));
+		plugin = SyntheticLogs.plugin(log);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public long markerMatcher() throws IOException {
+		long matching = 0;
+		try (LineSource source = LineSource.open(file, plugin.markers(), plugin.filter())) {
+			while (source.nextMatching() != null) {
+				matching++;
+			}
+		}
+		return matching;
+	}
+
+	/// Нижняя граница прежнего чтения: каждая строка декодируется, поиск подстрок не считается
+	@Benchmark
+	public long bufferedReader() throws IOException {
+		long length = 0;
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				length += line.length();
+			}
+		}
+		return length;
+	}
+}
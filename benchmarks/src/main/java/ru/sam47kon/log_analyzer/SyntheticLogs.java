@@ -0,0 +1,139 @@
+package ru.sam47kon.log_analyzer;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/// Синтетические логи с формой строк реальных логов сервера, POIB и dlcperf. При одном seed строки одинаковы
+final class SyntheticLogs {
+	private static final String[] TRANSITIONS = {"MSC_Approve", "MSC_Sign", "MSC_Send", "MSC_Check", "MSC_Export", "MSC_Delete", "MSC_Create"};
+	private static final String[] REQUEST_TYPES = {"getAllowedResources", "checkAccess", "getUserInfo"};
+	private static final String[] DOC_TYPES = {"MSC_ApplCashFlowShrt", "MSC_Payment", "MSC_Order"};
+	private static final int THREADS = 30;
+	private static final int DOCUMENTS = 3000;
+
+	private final SplittableRandom random;
+	private final String[] threads = new String[THREADS];
+	private final String[] guids = new String[DOCUMENTS];
+	private long time = LocalDateTime.of(2025, 3, 27, 9, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+	private SyntheticLogs(long seed) {
+		random = new SplittableRandom(seed);
+		for (int i = 0; i < THREADS; i++) {
+			threads[i] = i < 25 ? "default task-" + (i + 1) : "ExecutorService" + uuid();
+		}
+		for (int i = 0; i < DOCUMENTS; i++) {
+			guids[i] = uuid();
+		}
+	}
+
+	/// Строки лога анализатора: "server", "poib" или "dlcperf"
+	static @NotNull List<String> lines(@NotNull String prefix, int count, long seed) {
+		SyntheticLogs logs = new SyntheticLogs(seed);
+		return switch (prefix) {
+			case "server" -> logs.server(count);
+			case "poib" -> logs.poib(count);
+			case "dlcperf" -> logs.dlcPerf(count);
+			default -> throw new IllegalArgumentException("Неизвестный лог: " + prefix);
+		};
+	}
+
+	static @NotNull LogPlugin<?> plugin(@NotNull String prefix) {
+		return switch (prefix) {
+			case "server" -> new LogAnalyzer.Plugin();
+			case "poib" -> new PoibAnalyzer.Plugin();
+			case "dlcperf" -> new DLCPerfAnalyzer.Plugin();
+			default -> throw new IllegalArgumentException("Неизвестный лог: " + prefix);
+		};
+	}
+
+	/// Временный файл со строками, удаляется вызывающим
+	static @NotNull Path write(@NotNull String prefix, @NotNull List<String> lines) throws IOException {
+		Path file = Files.createTempFile(prefix, ".log");
+		Files.write(file, lines, StandardCharsets.UTF_8);
+		return file;
+	}
+
+	/// 60% прочих строк, 5% проверок, остальное — запуски и завершения переходов, часть завершений не по порядку запуска
+	private @NotNull List<String> server(int count) {
+		List<String> lines = new ArrayList<>(count);
+		List<String[]> pending = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			String timestamp = tick(40, TimestampFormat.MONTH_DAY);
+			String thread = pick(threads);
+			double r = random.nextDouble();
+			if (r < 0.6 || r >= 0.83 && pending.isEmpty()) {
+				lines.add(timestamp + " INFO  [" + thread + "] [c.o.s.s.s.OtherServiceImpl] Обычная строка лога номер " + i + " с текстом");
+			} else if (r < 0.65) {
+				lines.add(timestamp + " INFO  [" + thread + "] [c.o.s.s.v.VerifyImpl] Операция checkDocument " + (random.nextBoolean() ? "завершена" : "начата"));
+			} else if (r < 0.83) {
+				String[] transition = {pick(guids), pick(TRANSITIONS)};
+				pending.add(transition);
+				lines.add(transitionLine(timestamp, thread, transition, "запущен."));
+			} else {
+				String[] transition = pending.remove(random.nextDouble() < 0.3 ? random.nextInt(pending.size()) : 0);
+				lines.add(transitionLine(timestamp, thread, transition, "завершен."));
+			}
+		}
+		return lines;
+	}
+
+	private static @NotNull String transitionLine(String timestamp, String thread, String @NotNull [] transition, String state) {
+		return timestamp + " INFO  [" + thread + "] [c.o.s.s.d.LifeCycleServiceImpl] Переход " + transition[1] + " для документа [" + transition[0] + "] " + state;
+	}
+
+	/// 40% запросов к SOBI с разным числом ресурсов
+	private @NotNull List<String> poib(int count) {
+		List<String> lines = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			String prefix = tick(60, TimestampFormat.YEAR_MONTH_DAY) + " DEBUG [" + pick(threads) + "] [r.s.Poib] ";
+			if (random.nextDouble() < 0.4) {
+				StringBuilder resources = new StringBuilder();
+				for (int k = random.nextInt(7) - 1; k >= 0; k--) {
+					resources.append(resources.isEmpty() ? "" : ", ").append("SobiResourceActionPair{r=").append(k).append('}');
+				}
+				lines.add(prefix + "Сформирован запрос на SOBI: " + pick(REQUEST_TYPES) + String.format("(%08x) [", random.nextInt()) + resources + "]");
+			} else {
+				lines.add(prefix + "Прочее сообщение " + i);
+			}
+		}
+		return lines;
+	}
+
+	/// Записи из строки заголовка и строки деталей, между записями иногда прочие строки
+	private @NotNull List<String> dlcPerf(int count) {
+		List<String> lines = new ArrayList<>(count);
+		while (lines.size() < count) {
+			String timestamp = tick(80, TimestampFormat.MONTH_DAY);
+			String thread = pick(threads);
+			lines.add(timestamp + " DEBUG [" + thread + "] [LIFECYCLE-PERF-LOG] []: Детали перехода " + pick(guids) + " для документа " + pick(DOC_TYPES) + ": ");
+			lines.add("\\ " + pick(TRANSITIONS) + " " + (long) (-Math.log(1 - random.nextDouble()) * 3000) + " ms");
+			if (random.nextDouble() < 0.2) {
+				lines.add(timestamp + " DEBUG [" + thread + "] [X] noise: value");
+			}
+		}
+		return lines;
+	}
+
+	private @NotNull String tick(int maxStepMillis, @NotNull TimestampFormat format) {
+		time += random.nextInt(maxStepMillis + 1);
+		return format.format(time);
+	}
+
+	private <T> T pick(T @NotNull [] values) {
+		return values[random.nextInt(values.length)];
+	}
+
+	private @NotNull String uuid() {
+		return new UUID(random.nextLong(), random.nextLong()).toString();
+	}
+}
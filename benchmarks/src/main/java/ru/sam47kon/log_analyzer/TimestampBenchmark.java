@@ -0,0 +1,61 @@
+package ru.sam47kon.log_analyzer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/// Разбор метки времени в начале строки: {@link TimestampFormat} против SimpleDateFormat и DateTimeFormatter
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimestampBenchmark {
+	// Степень двойки: индекс строки берется по маске
+	private static final int LINES = 1 << 12;
+
+	@Param({"MONTH_DAY", "YEAR_MONTH_DAY"})
+	public TimestampFormat format;
+
+	private String[] lines;
+	private SimpleDateFormat simpleDateFormat;
+	private DateTimeFormatter formatter;
+	private int index;
+
+	@Setup
+	public void setup() {
+		List<String> generated = SyntheticLogs.lines(format == TimestampFormat.MONTH_DAY ? "server" : "poib", LINES, 1);
+		lines = generated.toArray(String[]::new);
+		simpleDateFormat = new SimpleDateFormat(format.pattern());
+		formatter = DateTimeFormatter.ofPattern(format == TimestampFormat.MONTH_DAY ? "yyyy-" + format.pattern() : format.pattern());
+	}
+
+	@Benchmark
+	public long timestampFormat() throws ParseException {
+		return format.parse(nextLine());
+	}
+
+	@Benchmark
+	public long simpleDateFormat() throws ParseException {
+		return simpleDateFormat.parse(nextLine().substring(0, format.pattern().length())).getTime();
+	}
+
+	@Benchmark
+	public long dateTimeFormatter() {
+		String timestamp = nextLine().substring(0, format.pattern().length());
+		// У MONTH_DAY нет года, как у SimpleDateFormat берем 1970
+		return LocalDateTime.parse(format == TimestampFormat.MONTH_DAY ? "1970-" + timestamp : timestamp, formatter)
+				.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+
+	private String nextLine() {
+		return lines[index++ & LINES - 1];
+	}
+}